@@ -0,0 +1,54 @@
+package net.avdw.git.changelog;
+
+import com.google.inject.Guice;
+import com.google.inject.util.Modules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import picocli.CommandLine;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole run of the command, from reading the range to rendering it, over a {@link SyntheticCommitSource} so that
+ * neither git nor bash is involved and the history can be far larger than any checked out repository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ChangelogBenchmark {
+    private static final int TAG_INTERVAL = 1000;
+    @Param({"10000", "1000000"})
+    private int commits;
+    @Param({"range", "history"})
+    private String changelog;
+    private String[] args;
+    private GuiceFactory guiceFactory;
+
+    @Setup
+    public void setup() {
+        guiceFactory = new GuiceFactory(Guice.createInjector(Modules.override(new MainModule()).with(binder -> binder.bind(CommitSource.Factory.class)
+                .toInstance((repository, nativeReader, cache) -> new SyntheticCommitSource(commits, TAG_INTERVAL)))));
+        args = "history".equals(changelog) ? new String[]{"--history", "--no-cache"} : new String[]{"v1.0.0", "--no-cache"};
+    }
+
+    @Benchmark
+    public int run() {
+        CommandLine commandLine = new CommandLine(MainCli.class, guiceFactory);
+        commandLine.setOut(new PrintWriter(Writer.nullWriter()));
+        return commandLine.execute(args);
+    }
+}
@@ -0,0 +1,65 @@
+package net.avdw.git.changelog;
+
+import com.google.inject.Guice;
+import net.avdw.git.changelog.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Categorisation of a whole synthetic range by the {@link ParallelClassifier} with one to sixteen workers; one worker
+ * files straight into the sink, as {@link PipelineBenchmark#categorise()} does. Workers beyond the cores of the machine
+ * only add contention, so read the scores up to {@code nproc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ClassifyScalingBenchmark {
+    @Param({"100000", "1000000"})
+    private int commits;
+    private ForkJoinPool forkJoinPool;
+    private List<GitChange> gitChanges;
+    private GitChangeClassifier gitChangeClassifier;
+    private Metrics metrics;
+    @Param({"1", "2", "4", "8", "16"})
+    private int threads;
+
+    @Setup
+    public void setup() {
+        gitChanges = CommitCorpus.gitChanges(CommitCorpus.subjects(commits));
+        gitChangeClassifier = Guice.createInjector(new MainModule()).getInstance(GitChangeClassifier.class);
+        metrics = new Metrics();
+        forkJoinPool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        forkJoinPool.shutdown();
+    }
+
+    @Benchmark
+    public ChangeTypeSink categorise() {
+        ParallelClassifier parallelClassifier = new ParallelClassifier(() -> new ChangeTypeSink(gitChangeClassifier, metrics), forkJoinPool);
+        for (GitChange gitChange : gitChanges) {
+            gitChange.changeType = null;
+            parallelClassifier.accept(gitChange);
+        }
+        return parallelClassifier.join();
+    }
+}
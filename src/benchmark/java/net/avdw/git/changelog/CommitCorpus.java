@@ -0,0 +1,103 @@
+package net.avdw.git.changelog;
+
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic commit subjects with roughly the prefix mix of a real repository.
+ */
+final class CommitCorpus {
+    private static final String[] PREFIXES = {"Add", "Update", "Fix", "fix:", "Merge branch", "Refactor", "Remove",
+            "Deprecate", "Secure", "Setup", "Maintain", "Change", "Enhance", "Bump", "WIP", "Revert"};
+    private static final String[] WORDS = {"parser", "changelog", "template", "repository", "release", "tag",
+            "branch", "module", "output", "index", "walker", "cache", "config", "build", "docs", "tests"};
+    private static final String[] TYPES = {"feat", "fix", "perf", "refactor", "chore", "docs", "test", "ci"};
+    private static final long SEED = 42;
+
+    private CommitCorpus() {
+    }
+
+    static List<String> subjects(final int size) {
+        Random random = new Random(SEED);
+        List<String> subjects = new ArrayList<>(size);
+        StringBuilder subject = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            subject.setLength(0);
+            subject.append(PREFIXES[random.nextInt(PREFIXES.length)]);
+            int words = 2 + random.nextInt(6);
+            for (int word = 0; word < words; word++) {
+                subject.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            subjects.add(subject.toString());
+        }
+        return subjects;
+    }
+
+    static List<GitChange> gitChanges(final List<String> subjects) {
+        List<GitChange> gitChanges = new ArrayList<>(subjects.size());
+        for (String subject : subjects) {
+            GitChange gitChange = new GitChange();
+            gitChange.subject = subject;
+            gitChanges.add(gitChange);
+        }
+        return gitChanges;
+    }
+
+    /**
+     * The subjects as {@code git-ls.sh} streams them, with a fake id, author and time per commit.
+     */
+    static byte[] records(final List<String> subjects) {
+        ByteArrayOutputStream records = new ByteArrayOutputStream(subjects.size() * 96);
+        for (int i = 0; i < subjects.size(); i++) {
+            String record = String.format("%040x\0Jane Doe\0%d\0%s\0\0\u001e\n", i, 1_600_000_000L + i, subjects.get(i));
+            records.writeBytes(record.getBytes(StandardCharsets.UTF_8));
+        }
+        return records.toByteArray();
+    }
+
+    static List<String> jsonLines(final List<String> subjects) {
+        Gson gson = new Gson();
+        List<String> lines = new ArrayList<>(subjects.size());
+        for (GitChange gitChange : gitChanges(subjects)) {
+            lines.add(gson.toJson(gitChange));
+        }
+        return lines;
+    }
+
+    /**
+     * Conventional commits: one in two has a scope, one in sixteen a {@code !}, and one in sixteen a body ending in a
+     * {@code BREAKING CHANGE} footer; the others have a one line body or none.
+     */
+    static List<GitChange> conventionalGitChanges(final int size) {
+        Random random = new Random(SEED);
+        List<GitChange> gitChanges = new ArrayList<>(size);
+        StringBuilder subject = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            subject.setLength(0);
+            subject.append(TYPES[random.nextInt(TYPES.length)]);
+            if (random.nextBoolean()) {
+                subject.append('(').append(WORDS[random.nextInt(WORDS.length)]).append(')');
+            }
+            if (random.nextInt(16) == 0) {
+                subject.append('!');
+            }
+            subject.append(':');
+            int words = 2 + random.nextInt(6);
+            for (int word = 0; word < words; word++) {
+                subject.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            GitChange gitChange = new GitChange();
+            gitChange.subject = subject.toString();
+            int body = random.nextInt(16);
+            gitChange.body = body == 0 ? "Explain the change.\n\nBREAKING CHANGE: the old " + WORDS[random.nextInt(WORDS.length)] + " is gone"
+                    : body < 8 ? "Explain the change." : "";
+            gitChanges.add(gitChange);
+        }
+        return gitChanges;
+    }
+}
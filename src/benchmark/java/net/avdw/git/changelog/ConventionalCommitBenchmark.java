@@ -0,0 +1,57 @@
+package net.avdw.git.changelog;
+
+import com.google.inject.Guice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commits per second through the conventional commit parser, on its own and as part of classification. Run with
+ * {@code -prof gc} to see that neither allocates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConventionalCommitBenchmark {
+    private static final int COMMITS = 100_000;
+    private List<GitChange> gitChanges;
+    private GitChangeClassifier gitChangeClassifier;
+
+    @Setup
+    public void setup() {
+        gitChanges = CommitCorpus.conventionalGitChanges(COMMITS);
+        gitChangeClassifier = Guice.createInjector(new MainModule()).getInstance(GitChangeClassifier.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMITS)
+    public void parse(final Blackhole blackhole) {
+        for (GitChange gitChange : gitChanges) {
+            blackhole.consume(ConventionalCommit.parse(gitChange.subject));
+            blackhole.consume(ConventionalCommit.hasBreakingFooter(gitChange.body));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMITS)
+    public void classify(final Blackhole blackhole) {
+        for (GitChange gitChange : gitChanges) {
+            blackhole.consume(gitChangeClassifier.classify(gitChange));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package net.avdw.git.changelog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one changelog of this repository as seen by the caller: a cold launch of the packaged jar against the
+ * thin client talking to a warm daemon. Needs {@code mvn package} first.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaemonBenchmark {
+    private static final Path JAR = Paths.get("target/git-changelog-jar-with-dependencies.jar").toAbsolutePath();
+    private static final String JAVA = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    private static final File NULL_FILE = new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+    @Param({"cold", "warm"})
+    private String mode;
+    private List<String> commandLine;
+    private Process daemon;
+
+    @Setup
+    public void setup() throws Exception {
+        if (!Files.exists(JAR)) {
+            throw new IllegalStateException(String.format("Run mvn package to build %s", JAR));
+        }
+        if ("warm".equals(mode)) {
+            daemon = new ProcessBuilder(JAVA, "-jar", JAR.toString(), "daemon")
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            BufferedReader daemonOutput = new BufferedReader(new InputStreamReader(daemon.getInputStream(), StandardCharsets.UTF_8));
+            String listening = daemonOutput.readLine();
+            if (listening == null) {
+                throw new IllegalStateException("Daemon did not start");
+            }
+            commandLine = List.of(JAVA, "-cp", JAR.toString(), DaemonClient.class.getName());
+        } else {
+            commandLine = List.of(JAVA, "-jar", JAR.toString());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (daemon != null) {
+            Properties daemonFile = DaemonClient.readDaemonFile();
+            DaemonClient.stop(Integer.parseInt(daemonFile.getProperty(DaemonClient.PORT)), daemonFile.getProperty(DaemonClient.TOKEN));
+            daemon.waitFor();
+        }
+    }
+
+    @Benchmark
+    public int changelog() throws Exception {
+        return new ProcessBuilder(commandLine)
+                .redirectOutput(ProcessBuilder.Redirect.to(NULL_FILE))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start()
+                .waitFor();
+    }
+}
@@ -0,0 +1,133 @@
+package net.avdw.git.changelog;
+
+import com.google.gson.Gson;
+import com.google.inject.Guice;
+import net.avdw.git.changelog.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each pipeline stage over a whole synthetic range; divide the score by the corpus size for per-commit cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int commits;
+    private List<GitChange> gitChanges;
+    private GitChangeClassifier gitChangeClassifier;
+    private Gson gson;
+    private List<String> jsonLines;
+    private Metrics metrics;
+    private byte[] records;
+    private Templator templator;
+
+    @Setup
+    public void setup() {
+        List<String> subjects = CommitCorpus.subjects(commits);
+        jsonLines = CommitCorpus.jsonLines(subjects);
+        records = CommitCorpus.records(subjects);
+        gitChanges = CommitCorpus.gitChanges(subjects);
+        gitChangeClassifier = Guice.createInjector(new MainModule()).getInstance(GitChangeClassifier.class);
+        gson = new Gson();
+        metrics = new Metrics();
+        templator = new Templator(ResourceBundle.getBundle("changelog", Locale.ENGLISH));
+    }
+
+    @Benchmark
+    public void parse(final Blackhole blackhole) {
+        GitChangeDecoder gitChangeDecoder = new GitChangeDecoder(blackhole::consume);
+        gitChangeDecoder.write(records, 0, records.length);
+        gitChangeDecoder.close();
+    }
+
+    /**
+     * The parse as it was before the record format: one JSON line per commit, read through Gson reflection.
+     */
+    @Benchmark
+    public void parseJson(final Blackhole blackhole) {
+        for (String line : jsonLines) {
+            blackhole.consume(gson.fromJson(line, GitChange.class));
+        }
+    }
+
+    @Benchmark
+    public void classify(final Blackhole blackhole) {
+        for (GitChange gitChange : gitChanges) {
+            blackhole.consume(gitChangeClassifier.classify(gitChange));
+        }
+    }
+
+    /**
+     * The classification as it was before the prefix trie: one lowercase copy of the subject per prefix tested.
+     */
+    @Benchmark
+    public void classifyLowerCase(final Blackhole blackhole) {
+        for (GitChange gitChange : gitChanges) {
+            blackhole.consume(classifyLowerCase(gitChange.subject));
+        }
+    }
+
+    @Benchmark
+    public ChangeTypeSink categorise() {
+        ChangeTypeSink changeTypeSink = new ChangeTypeSink(gitChangeClassifier, metrics);
+        gitChanges.forEach(changeTypeSink);
+        return changeTypeSink;
+    }
+
+    @Benchmark
+    public void populate(final Blackhole blackhole) {
+        for (GitChange gitChange : gitChanges) {
+            blackhole.consume(templator.populate(ResourceBundleKey.LINE_ITEM, gitChange));
+        }
+    }
+
+    @Benchmark
+    public void render() {
+        Writer writer = Writer.nullWriter();
+        for (GitChange gitChange : gitChanges) {
+            templator.render(ResourceBundleKey.LINE_ITEM, gitChange, writer);
+        }
+    }
+
+    private static ChangeType classifyLowerCase(final String subject) {
+        if (subject.toLowerCase().startsWith("setup") || subject.toLowerCase().startsWith("maintain") || subject.toLowerCase().startsWith("merge")) {
+            return ChangeType.IGNORED;
+        } else if (subject.toLowerCase().startsWith("add")) {
+            return ChangeType.ADDED;
+        } else if (subject.toLowerCase().startsWith("update") || subject.toLowerCase().startsWith("change")
+                || subject.toLowerCase().startsWith("enhance") || subject.toLowerCase().startsWith("refactor")) {
+            return ChangeType.CHANGED;
+        } else if (subject.toLowerCase().startsWith("deprecate")) {
+            return ChangeType.DEPRECATED;
+        } else if (subject.toLowerCase().startsWith("remove")) {
+            return ChangeType.REMOVED;
+        } else if (subject.toLowerCase().startsWith("fix")) {
+            return ChangeType.FIXED;
+        } else if (subject.toLowerCase().startsWith("secure")) {
+            return ChangeType.SECURITY;
+        } else {
+            return ChangeType.UNCLASSIFIED;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.avdw.git.changelog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall time of a whole launch of the packaged jar, from process start to exit, with and without the class data
+ * sharing archive. Needs {@code mvn package -P cds} first; the archive only applies to the jar path it was dumped with.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    private static final Path JAR = Paths.get("target/git-changelog-jar-with-dependencies.jar").toAbsolutePath();
+    private static final Path ARCHIVE = Paths.get("target/git-changelog.jsa").toAbsolutePath();
+    @Param({"off", "on"})
+    private String archive;
+    @Param({"--version", "--no-cache"})
+    private String command;
+    private List<String> commandLine;
+
+    @Setup
+    public void setup() {
+        if (!Files.exists(JAR) || !Files.exists(ARCHIVE)) {
+            throw new IllegalStateException(String.format("Run mvn package -P cds to build %s and %s", JAR, ARCHIVE));
+        }
+        commandLine = new ArrayList<>();
+        commandLine.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        commandLine.add("on".equals(archive) ? "-XX:SharedArchiveFile=" + ARCHIVE : "-Xshare:auto");
+        commandLine.add("-jar");
+        commandLine.add(JAR.toString());
+        commandLine.add(command);
+    }
+
+    @Benchmark
+    public int launch() throws Exception {
+        return new ProcessBuilder(commandLine)
+                .redirectOutput(ProcessBuilder.Redirect.to(new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null")))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start()
+                .waitFor();
+    }
+}
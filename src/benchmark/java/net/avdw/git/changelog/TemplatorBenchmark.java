@@ -0,0 +1,64 @@
+package net.avdw.git.changelog;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplatorBenchmark {
+    private GitChange gitChange;
+    private ResourceBundle resourceBundle;
+    private Templator templator;
+    private Writer nullWriter;
+
+    @Setup
+    public void setup() {
+        resourceBundle = ResourceBundle.getBundle("changelog", Locale.ENGLISH);
+        templator = new Templator(resourceBundle);
+        nullWriter = Writer.nullWriter();
+        gitChange = new GitChange();
+        gitChange.subject = "Add benchmark for the line item template";
+    }
+
+    /**
+     * The line rendering as it was before templates were cached: a new factory and compile per line.
+     */
+    @Benchmark
+    public String lineItemRecompiled() {
+        Mustache mustache = new DefaultMustacheFactory().compile(new StringReader(resourceBundle.getString(ResourceBundleKey.LINE_ITEM)), ResourceBundleKey.LINE_ITEM);
+        StringWriter stringWriter = new StringWriter();
+        return mustache.execute(stringWriter, gitChange).toString();
+    }
+
+    @Benchmark
+    public String lineItemPopulate() {
+        return templator.populate(ResourceBundleKey.LINE_ITEM, gitChange);
+    }
+
+    @Benchmark
+    public Writer lineItemRender() {
+        templator.render(ResourceBundleKey.LINE_ITEM, gitChange, nullWriter);
+        return nullWriter;
+    }
+}
@@ -0,0 +1,138 @@
+package net.avdw.git.changelog;
+
+import lombok.SneakyThrows;
+import org.tinylog.Logger;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@Command(name = "batch", description = "Generate a changelog for every repository in a manifest", mixinStandardHelpOptions = true)
+public class BatchCli implements Runnable {
+    private static final String OK = "OK";
+    private static final String FAILED = "FAILED";
+    @Parameters(index = "0", description = "Manifest with one repository per line: <repository> [<to> [<from>]]")
+    private Path manifest;
+    @Option(names = {"-o", "--output"}, defaultValue = "changelogs", description = "Directory to write the changelogs to (default: ${DEFAULT-VALUE})")
+    private Path outputDirectory;
+    @Spec
+    private CommandSpec spec;
+    @Option(names = {"-t", "--threads"}, defaultValue = "4", description = "Repositories to process at the same time (default: ${DEFAULT-VALUE})")
+    private int threads;
+
+    @SneakyThrows
+    private List<BatchEntry> readManifest() {
+        List<BatchEntry> entries = new ArrayList<>();
+        Set<String> outputNames = new HashSet<>();
+        Path manifestDirectory = manifest.toAbsolutePath().getParent();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split("\\s+");
+            Path repository = manifestDirectory.resolve(fields[0]).normalize();
+            String outputName = repository.getFileName().toString();
+            for (int suffix = 2; !outputNames.add(outputName); suffix++) {
+                outputName = String.format("%s-%d", repository.getFileName(), suffix);
+            }
+            entries.add(new BatchEntry(repository, Arrays.copyOfRange(fields, 1, fields.length), outputDirectory.resolve(outputName + ".md")));
+        }
+        return entries;
+    }
+
+    private BatchResult generate(final BatchEntry entry) {
+        long start = System.nanoTime();
+        StringWriter errWriter = new StringWriter();
+        int exitCode;
+        try {
+            CommandLine commandLine = new CommandLine(MainCli.class, GuiceFactory.getInstance());
+            commandLine.setErr(new PrintWriter(errWriter));
+            String[] args = Arrays.copyOf(entry.range, entry.range.length + 2);
+            args[entry.range.length] = "-r=" + entry.repository;
+            args[entry.range.length + 1] = "--output=" + entry.output;
+            exitCode = commandLine.execute(args);
+        } catch (Exception e) {
+            Logger.debug(e);
+            errWriter.write(e.toString());
+            exitCode = 1;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (exitCode != 0) {
+            Logger.error("Changelog for {} failed:\n{}", entry.repository, errWriter);
+        }
+        return new BatchResult(entry, exitCode == 0 ? OK : FAILED, millis);
+    }
+
+    /**
+     * Entry point for picocli.
+     */
+    @Override
+    @SneakyThrows
+    public void run() {
+        long start = System.nanoTime();
+        List<BatchEntry> entries = readManifest();
+        Files.createDirectories(outputDirectory);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<BatchResult> results = new ArrayList<>();
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>();
+            entries.forEach(entry -> futures.add(executorService.submit(() -> generate(entry))));
+            for (Future<BatchResult> future : futures) {
+                results.add(future.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        PrintWriter out = spec.commandLine().getOut();
+        out.println(String.format("%-50s %-6s %10s", "Repository", "Status", "Time (ms)"));
+        results.forEach(result -> out.println(String.format("%-50s %-6s %10d", result.entry.repository, result.status, result.millis)));
+        out.println(String.format("%d repositories, %d failed, %d ms", results.size(),
+                results.stream().filter(result -> FAILED.equals(result.status)).count(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        out.flush();
+    }
+
+    private static final class BatchEntry {
+        private final Path output;
+        private final String[] range;
+        private final Path repository;
+
+        BatchEntry(final Path repository, final String[] range, final Path output) {
+            this.repository = repository;
+            this.range = range;
+            this.output = output;
+        }
+    }
+
+    private static final class BatchResult {
+        private final BatchEntry entry;
+        private final long millis;
+        private final String status;
+
+        BatchResult(final BatchEntry entry, final String status, final long millis) {
+            this.entry = entry;
+            this.status = status;
+            this.millis = millis;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package net.avdw.git.changelog;
+
+import net.avdw.git.changelog.repository.MappedFile;
+import net.avdw.git.changelog.repository.ObjectId;
+import org.tinylog.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers the decoded {@link GitChange} and its {@link ChangeType} of every commit already classified, keyed by commit id, in an
+ * append-only file under the git directory. A rerun only decodes and classifies the commits appended after the
+ * previous high-water mark. The file is started over when it was written with other classification rules.
+ *
+ * <p>Records are not read up front: a sorted index of commit id and record offset sits next to the file and both are
+ * {@link MappedFile mapped}, so a lookup is a binary search in the index and only the records asked for are decoded.
+ * The records appended since the index was last written are found by scanning them on open and are merged into it
+ * on close.
+ *
+ * <p>Layout: a header of magic, format version and rules fingerprint, followed by records of
+ * {@code id[20] type[1] time[8]} followed by the author, subject and body, each as {@code length[4] utf8[length]}. The
+ * high bit of the type marks a breaking change. A record cut short by an interrupted run is
+ * dropped and overwritten by the next append. The index holds the same header plus the length of the file it covers,
+ * followed by entries of {@code id[20] offset[8]} in id order.
+ */
+public class ChangeCache implements AutoCloseable {
+    static final String FILE_NAME = "changelog.cache";
+    static final String INDEX_FILE_NAME = "changelog.cache.idx";
+    private static final int MAGIC = 0x47434c43;
+    private static final int INDEX_MAGIC = 0x47434c49;
+    private static final int VERSION = 3;
+    private static final int BREAKING_FLAG = 0x80;
+    private static final int HEADER_LENGTH = Integer.BYTES * 2 + Long.BYTES;
+    private static final int INDEX_HEADER_LENGTH = HEADER_LENGTH + Long.BYTES;
+    private static final int INDEX_ENTRY_LENGTH = ObjectId.LENGTH + Long.BYTES;
+    private static final int RECORD_HEADER_LENGTH = ObjectId.LENGTH + 1 + Long.BYTES;
+    private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+    private final Map<ObjectId, Long> unindexed = new HashMap<>();
+    private final byte[] idBuffer = new byte[ObjectId.LENGTH];
+    private final Path cachePath;
+    private final Path indexPath;
+    private final long fingerprint;
+    private FileChannel channel;
+    private DataOutputStream appender;
+    private MappedFile records;
+    private MappedFile index;
+    private long indexed;
+    private long highWaterMark;
+    private int appended;
+
+    private ChangeCache(final Path cachePath, final Path indexPath, final long fingerprint) {
+        this.cachePath = cachePath;
+        this.indexPath = indexPath;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Opens the cache of the git directory, or an empty one when the file is missing, unreadable or was written
+     * with other rules. Only one writer is allowed at a time; when another process holds the file, the cache is
+     * read but nothing new is appended.
+     */
+    public static ChangeCache open(final Path gitDirectory, final GitChangeClassifier gitChangeClassifier) {
+        ChangeCache changeCache = new ChangeCache(gitDirectory.resolve(FILE_NAME), gitDirectory.resolve(INDEX_FILE_NAME), fingerprint(gitChangeClassifier));
+        try {
+            changeCache.load();
+        } catch (IOException e) {
+            Logger.debug("Change cache {} is not usable, continuing without it: {}", changeCache.cachePath, e.getMessage());
+            changeCache.closeQuietly();
+            changeCache.unindexed.clear();
+            changeCache.index = null;
+        }
+        return changeCache;
+    }
+
+    static long fingerprint(final GitChangeClassifier gitChangeClassifier) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(gitChangeClassifier.rules().toString().getBytes(StandardCharsets.UTF_8));
+        crc32.update(gitChangeClassifier.conventionalRules().toString().getBytes(StandardCharsets.UTF_8));
+        crc32.update(GitChangeClassifier.PRECEDENCE.toString().getBytes(StandardCharsets.UTF_8));
+        return crc32.getValue();
+    }
+
+    private void load() throws IOException {
+        channel = FileChannel.open(cachePath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+
+        long size = channel.size();
+        if (size >= HEADER_LENGTH) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            int read = 0;
+            while (header.hasRemaining() && read >= 0) {
+                read = channel.read(header, header.position());
+            }
+            header.flip();
+            if (header.getInt() == MAGIC && header.getInt() == VERSION && header.getLong() == fingerprint) {
+                highWaterMark = scanRecords(mapIndex(size), size);
+            } else {
+                Logger.debug("Change cache {} was written with other rules, starting over", cachePath);
+            }
+        }
+
+        if (fileLock == null) {
+            Logger.debug("Change cache {} is in use, reading only", cachePath);
+            closeQuietly();
+            return;
+        }
+        if (highWaterMark == 0) {
+            Files.deleteIfExists(indexPath);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION).putLong(fingerprint);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            highWaterMark = HEADER_LENGTH;
+        }
+        channel.truncate(highWaterMark);
+        channel.position(highWaterMark);
+        appender = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Maps the index when it was written for these rules and the file still holds all it covers.
+     *
+     * @return the offset the records not in the index start at
+     */
+    private long mapIndex(final long size) throws IOException {
+        if (!Files.exists(indexPath)) {
+            return HEADER_LENGTH;
+        }
+        MappedFile mappedIndex = MappedFile.map(indexPath);
+        long entries = Math.max(0, mappedIndex.size() - INDEX_HEADER_LENGTH) / INDEX_ENTRY_LENGTH;
+        if (mappedIndex.size() != INDEX_HEADER_LENGTH + entries * INDEX_ENTRY_LENGTH
+                || mappedIndex.getInt(0) != INDEX_MAGIC || mappedIndex.getInt(Integer.BYTES) != VERSION
+                || mappedIndex.getLong(Integer.BYTES * 2) != fingerprint
+                || mappedIndex.getLong(HEADER_LENGTH) < HEADER_LENGTH || mappedIndex.getLong(HEADER_LENGTH) > size) {
+            Logger.debug("Change cache index {} does not match {}, scanning the records instead", indexPath, cachePath);
+            return HEADER_LENGTH;
+        }
+        index = mappedIndex;
+        indexed = entries;
+        return mappedIndex.getLong(HEADER_LENGTH);
+    }
+
+    /**
+     * Notes the offset of every record from the start on, without decoding them.
+     *
+     * @return the end of the last whole record
+     */
+    private long scanRecords(final long start, final long size) throws IOException {
+        long end = start;
+        // The stream is left open, closing it would close the channel.
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(start)), 64 * 1024));
+        byte[] id = new byte[ObjectId.LENGTH];
+        try {
+            while (end + RECORD_HEADER_LENGTH <= size) {
+                in.readFully(id);
+                int type = in.readUnsignedByte() & ~BREAKING_FLAG;
+                in.readLong();
+                long length = skipStrings(in, size - end - RECORD_HEADER_LENGTH);
+                if (length < 0 || type >= CHANGE_TYPES.length) {
+                    break;
+                }
+                unindexed.put(ObjectId.fromRaw(id, 0), end);
+                end += RECORD_HEADER_LENGTH + length;
+            }
+        } catch (EOFException e) {
+            Logger.debug("Change cache {} ends in a partial record at {}", cachePath, end);
+        }
+        Logger.debug("Change cache {} holds {} commit(s), {} of them not indexed yet", cachePath, indexed + unindexed.size(), unindexed.size());
+        return end;
+    }
+
+    /**
+     * Skips the author, subject and body of a record.
+     *
+     * @return the length skipped, or {@code -1} when they do not fit in what remains of the file
+     */
+    private static long skipStrings(final DataInputStream in, final long remaining) throws IOException {
+        long length = 0;
+        for (int field = 0; field < 3; field++) {
+            int fieldLength = in.readInt();
+            length += Integer.BYTES;
+            if (fieldLength < 0 || fieldLength > remaining - length) {
+                return -1;
+            }
+            if (in.skipBytes(fieldLength) < fieldLength) {
+                throw new EOFException();
+            }
+            length += fieldLength;
+        }
+        return length;
+    }
+
+    private static int writeString(final DataOutputStream out, final String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    /**
+     * The offset of the record of the commit, or {@code -1} when the commit has not been seen before.
+     */
+    private long find(final ObjectId commitId) {
+        Long offset = unindexed.get(commitId);
+        if (offset != null) {
+            return offset;
+        }
+        long low = 0;
+        long high = index == null ? -1 : indexed - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long entry = INDEX_HEADER_LENGTH + middle * INDEX_ENTRY_LENGTH;
+            index.get(entry, idBuffer);
+            int comparison = commitId.compareTo(idBuffer, 0);
+            if (comparison == 0) {
+                return index.getLong(entry + ObjectId.LENGTH);
+            } else if (comparison < 0) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return -1;
+    }
+
+    private GitChange read(final ObjectId commitId, final long offset) throws IOException {
+        if (records == null || offset + RECORD_HEADER_LENGTH > records.size()) {
+            if (appender != null) {
+                appender.flush();
+            }
+            records = MappedFile.map(cachePath);
+        }
+        records.get(offset, idBuffer);
+        int type = records.get(offset + ObjectId.LENGTH);
+        if (commitId.compareTo(idBuffer, 0) != 0 || (type & ~BREAKING_FLAG) >= CHANGE_TYPES.length) {
+            Logger.debug("Change cache {} does not hold {} at {}", cachePath, commitId, offset);
+            return null;
+        }
+        GitChange gitChange = new GitChange();
+        gitChange.id = commitId.name();
+        gitChange.changeType = CHANGE_TYPES[type & ~BREAKING_FLAG];
+        gitChange.breaking = (type & BREAKING_FLAG) != 0;
+        gitChange.time = records.getLong(offset + ObjectId.LENGTH + 1);
+        long[] position = {offset + RECORD_HEADER_LENGTH};
+        gitChange.author = readString(position);
+        gitChange.subject = readString(position);
+        gitChange.body = readString(position);
+        gitChange.trailers = GitTrailers.parse(gitChange.body);
+        return gitChange;
+    }
+
+    private String readString(final long[] position) {
+        byte[] bytes = new byte[records.getInt(position[0])];
+        records.get(position[0] + Integer.BYTES, bytes);
+        position[0] += Integer.BYTES + bytes.length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A freshly decoded copy of the cached change, or {@code null} when the commit has not been seen before.
+     */
+    public synchronized GitChange get(final ObjectId commitId) {
+        long offset = find(commitId);
+        if (offset < 0) {
+            return null;
+        }
+        try {
+            return read(commitId, offset);
+        } catch (IOException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            Logger.debug("Cannot read {} from change cache {}: {}", commitId, cachePath, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Remembers a classified change. Changes without a {@link ChangeType} are not cached, nor is anything while
+     * another process writes the cache.
+     */
+    public synchronized void put(final ObjectId commitId, final GitChange gitChange) {
+        if (gitChange.changeType == null || appender == null || find(commitId) >= 0) {
+            return;
+        }
+        try {
+            commitId.copyTo(idBuffer, 0);
+            appender.write(idBuffer);
+            appender.writeByte(gitChange.changeType.ordinal() | (gitChange.breaking ? BREAKING_FLAG : 0));
+            appender.writeLong(gitChange.time);
+            long length = RECORD_HEADER_LENGTH + writeString(appender, gitChange.author) + writeString(appender, gitChange.subject)
+                    + writeString(appender, gitChange.body);
+            unindexed.put(commitId, highWaterMark);
+            highWaterMark += length;
+            appended++;
+        } catch (IOException e) {
+            Logger.debug("Cannot append to change cache {}, continuing without it: {}", cachePath, e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    public synchronized long size() {
+        return indexed + unindexed.size();
+    }
+
+    /**
+     * Merges the records not in the index yet into it. The merged index is written aside and moved over the old one,
+     * which a reader may still have mapped; when the move is refused, the old index stays and the records are merged
+     * again next time.
+     *
+     * @return whether the index now covers every record
+     */
+    private boolean writeIndex() {
+        List<Map.Entry<ObjectId, Long>> entries = new ArrayList<>(unindexed.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+        Path staging = indexPath.resolveSibling(INDEX_FILE_NAME + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(staging)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fingerprint);
+                out.writeLong(highWaterMark);
+                long next = 0;
+                for (Map.Entry<ObjectId, Long> entry : entries) {
+                    while (next < indexed) {
+                        long indexEntry = INDEX_HEADER_LENGTH + next * INDEX_ENTRY_LENGTH;
+                        index.get(indexEntry, idBuffer);
+                        int comparison = entry.getKey().compareTo(idBuffer, 0);
+                        if (comparison < 0) {
+                            break;
+                        }
+                        if (comparison > 0) {
+                            out.write(idBuffer);
+                            out.writeLong(index.getLong(indexEntry + ObjectId.LENGTH));
+                        }
+                        next++;
+                    }
+                    entry.getKey().copyTo(idBuffer, 0);
+                    out.write(idBuffer);
+                    out.writeLong(entry.getValue());
+                }
+                for (; next < indexed; next++) {
+                    long indexEntry = INDEX_HEADER_LENGTH + next * INDEX_ENTRY_LENGTH;
+                    index.get(indexEntry, idBuffer);
+                    out.write(idBuffer);
+                    out.writeLong(index.getLong(indexEntry + ObjectId.LENGTH));
+                }
+            }
+            Files.move(staging, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Logger.debug("Indexed {} commit(s) of change cache {}", entries.size(), cachePath);
+            return true;
+        } catch (IOException e) {
+            Logger.debug("Cannot write change cache index {}: {}", indexPath, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Writes out what was appended and indexes it, so that a cache kept open between runs is as current on disk as
+     * one that was closed.
+     */
+    public synchronized void flush() throws IOException {
+        if (appender == null) {
+            return;
+        }
+        appender.flush();
+        if (!unindexed.isEmpty() && writeIndex()) {
+            mapIndex(highWaterMark);
+            unindexed.clear();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (appender != null) {
+            appender.flush();
+            Logger.debug("Appended {} commit(s) to change cache {}", appended, cachePath);
+            if (!unindexed.isEmpty()) {
+                writeIndex();
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        appender = null;
+        channel = null;
+        records = null;
+        index = null;
+        indexed = 0;
+        unindexed.clear();
+    }
+
+    private void closeQuietly() {
+        try {
+            appender = null;
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            Logger.debug("Cannot close change cache {}: {}", cachePath, e.getMessage());
+        }
+        channel = null;
+    }
+}
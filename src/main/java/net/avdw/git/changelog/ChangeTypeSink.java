@@ -0,0 +1,112 @@
+package net.avdw.git.changelog;
+
+import net.avdw.git.changelog.metrics.Metrics;
+import net.avdw.git.changelog.metrics.Stage;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Last stage of the commit pipeline: classifies each change as it arrives and files it under its {@link ChangeType}.
+ * Changes that were already classified, e.g. by the {@link ChangeCache}, keep their type; the ones classified here are
+ * handed on, e.g. for the cache to remember them. Filed changes are kept in a
+ * {@link CommitStore} rather than as objects, so that a range of millions of commits fits the heap.
+ */
+public class ChangeTypeSink implements Consumer<GitChange> {
+    private final CommitStore commitStore = new CommitStore();
+    private final Map<ChangeType, CommitStore.IndexList> categorisedIndexMap = new EnumMap<>(ChangeType.class);
+    private final GitChangeClassifier gitChangeClassifier;
+    private final Metrics metrics;
+    private final Consumer<GitChange> classifiedConsumer;
+    private boolean breaking;
+
+    public ChangeTypeSink(final GitChangeClassifier gitChangeClassifier, final Metrics metrics) {
+        this(gitChangeClassifier, metrics, gitChange -> { });
+    }
+
+    /**
+     * @param classifiedConsumer given every change once it was classified here, from the thread that filed it
+     */
+    public ChangeTypeSink(final GitChangeClassifier gitChangeClassifier, final Metrics metrics, final Consumer<GitChange> classifiedConsumer) {
+        this.gitChangeClassifier = gitChangeClassifier;
+        this.metrics = metrics;
+        this.classifiedConsumer = classifiedConsumer;
+    }
+
+    @Override
+    public void accept(final GitChange gitChange) {
+        ChangeType key = gitChange.changeType;
+        if (key == null) {
+            if (metrics.isDetailed()) {
+                try (Metrics.Timer timer = metrics.start(Stage.CLASSIFY)) {
+                    key = gitChangeClassifier.classify(gitChange);
+                }
+            } else {
+                key = gitChangeClassifier.classify(gitChange);
+            }
+            gitChange.changeType = key;
+            classifiedConsumer.accept(gitChange);
+        }
+        breaking |= gitChange.breaking;
+        categorisedIndexMap.computeIfAbsent(key, changeType -> commitStore.new IndexList()).add(commitStore.add(gitChange));
+    }
+
+    /**
+     * Adds the commits filed so far to the commit counts of the metrics.
+     */
+    public void countCommits() {
+        categorisedIndexMap.forEach((changeType, indexes) -> metrics.count(changeType, indexes.size()));
+    }
+
+    /**
+     * Files the changes of a newer range in front of the ones filed so far, keeping every list newest first.
+     */
+    public void addNewer(final ChangeTypeSink newer) {
+        int shift = commitStore.addAll(newer.commitStore);
+        newer.categorisedIndexMap.forEach((changeType, indexes) ->
+                categorisedIndexMap.computeIfAbsent(changeType, key -> commitStore.new IndexList()).addFirst(indexes, shift));
+        breaking |= newer.breaking;
+    }
+
+    /**
+     * Files the changes of an older part of the range after the ones filed so far, keeping every list newest first.
+     */
+    public void addOlder(final ChangeTypeSink older) {
+        int shift = commitStore.addAll(older.commitStore);
+        older.categorisedIndexMap.forEach((changeType, indexes) ->
+                categorisedIndexMap.computeIfAbsent(changeType, key -> commitStore.new IndexList()).addAll(indexes, shift));
+        breaking |= older.breaking;
+    }
+
+    /**
+     * The filed changes by type, newest first. The lists decode a change each time it is read.
+     */
+    public Map<ChangeType, List<GitChange>> categorisedGitChangeMap() {
+        return Collections.unmodifiableMap(categorisedIndexMap);
+    }
+
+    /**
+     * Whether any filed change is marked as breaking.
+     */
+    public boolean hasBreakingChange() {
+        return breaking;
+    }
+
+    /**
+     * The release the filed changes call for, {@link ReleaseType#NONE} when nothing was filed.
+     */
+    public ReleaseType releaseType() {
+        ReleaseType releaseType = breaking ? ReleaseType.MAJOR : ReleaseType.NONE;
+        for (ChangeType changeType : categorisedIndexMap.keySet()) {
+            releaseType = releaseType.max(ReleaseType.of(changeType, false));
+        }
+        return releaseType;
+    }
+
+    public boolean isEmpty() {
+        return categorisedIndexMap.isEmpty();
+    }
+}
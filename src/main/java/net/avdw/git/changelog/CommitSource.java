@@ -0,0 +1,100 @@
+package net.avdw.git.changelog;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Where the commits of a changelog come from. An empty revision means {@code HEAD}, as it does for git. Sources are
+ * asked from several threads at once and are closed once the changelog is written.
+ */
+public interface CommitSource extends AutoCloseable {
+    /**
+     * The names of the local branches, sorted.
+     */
+    List<String> branches();
+
+    /**
+     * The branch that is checked out.
+     */
+    String currentBranch();
+
+    /**
+     * The id of the oldest commit.
+     */
+    String firstCommit();
+
+    /**
+     * The name of the tag nearest to the revision, or an empty string when none is reachable.
+     */
+    String latestTag(String revision);
+
+    /**
+     * Streams the changes in {@code to..from}, newest first. A change comes classified only when the source
+     * {@link #remember remembered} it before; classifying the others is left to the consumer.
+     */
+    void log(String to, String from, Consumer<GitChange> gitChangeConsumer);
+
+    /**
+     * Hands every change in {@code to..from} over once for each module whose path it touches, together with the
+     * index of that module. Each module gets its changes newest first.
+     */
+    void log(String to, String from, List<String> modulePaths, ObjIntConsumer<GitChange> moduleChangeConsumer);
+
+    /**
+     * Hands every change of several ranges {@code tos[i]..froms[i]} over once, in no particular order, with the indexes
+     * of the ranges holding it, so that history the ranges share is read once. Changes come classified as they do from
+     * {@link #log(String, String, Consumer)}. By default the ranges are read one by one and gathered by id.
+     */
+    default void logRanges(final List<String> tos, final List<String> froms, final BiConsumer<GitChange, BitSet> rangesConsumer) {
+        Map<String, GitChange> gitChanges = new LinkedHashMap<>();
+        Map<String, BitSet> ranges = new HashMap<>();
+        for (int range = 0; range < tos.size(); range++) {
+            int index = range;
+            log(tos.get(range), froms.get(range), gitChange -> {
+                gitChanges.putIfAbsent(gitChange.id, gitChange);
+                ranges.computeIfAbsent(gitChange.id, id -> new BitSet()).set(index);
+            });
+        }
+        gitChanges.forEach((id, gitChange) -> rangesConsumer.accept(gitChange, ranges.get(id)));
+    }
+
+    /**
+     * The tags reachable from the revision, oldest first.
+     */
+    List<GitTag> tags(String revision);
+
+    /**
+     * Keeps a change the caller classified, so that a later log hands it over classified. Sources without a cache
+     * forget it.
+     */
+    default void remember(GitChange gitChange) {
+    }
+
+    /**
+     * Forgets what was read of refs and packs, so that commits and tags added since are seen by the next call.
+     */
+    void refresh();
+
+    @Override
+    void close();
+
+    /**
+     * Opens the source of a repository for one run.
+     */
+    @FunctionalInterface
+    interface Factory {
+        /**
+         * @param repository the directory of the repository, or {@code null} for the working directory
+         * @param nativeReader whether history may be read straight from the {@code .git} directory
+         * @param cache whether classified commits and the commit graph may be remembered
+         */
+        CommitSource open(Path repository, boolean nativeReader, boolean cache);
+    }
+}
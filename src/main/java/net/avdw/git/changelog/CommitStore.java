@@ -0,0 +1,257 @@
+package net.avdw.git.changelog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Holds the classified changes of a range without keeping a {@link GitChange} and its strings per commit. The id,
+ * subject and body of every commit are appended as UTF-8 to one byte arena, with their start offsets in an
+ * {@code int[]}, the author time in a {@code long[]} and the {@link ChangeType} in a {@code byte[]} whose high bit
+ * marks a breaking change, as in the {@link ChangeCache}. A full hexadecimal id is packed to its 20 raw bytes and
+ * authors, who recur across a history, are interned. A change is only decoded again when it is read, e.g. to be
+ * rendered, and that copy can be dropped right after.
+ *
+ * <p>Categories are {@link IndexList}s of store indexes. A store is filled by one thread at a time.
+ */
+final class CommitStore {
+    private static final int FIELDS = 3;
+    private static final int ID = 0;
+    private static final int SUBJECT = 1;
+    private static final int BODY = 2;
+    private static final int BREAKING_FLAG = 0x80;
+    private static final int RAW_ID_FLAG = 0x40;
+    private static final int TYPE_MASK = 0x3f;
+    private static final int RAW_ID_LENGTH = 20;
+    private static final int INITIAL_COMMITS = 64;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+    private final List<String> authors = new ArrayList<>();
+    private final Map<String, Integer> authorIndexes = new HashMap<>();
+    private byte[] arena = new byte[INITIAL_COMMITS * 64];
+    private int arenaSize;
+    private int[] offsets = new int[INITIAL_COMMITS * FIELDS + 1];
+    private int[] authorIds = new int[INITIAL_COMMITS];
+    private long[] times = new long[INITIAL_COMMITS];
+    private byte[] types = new byte[INITIAL_COMMITS];
+    private int size;
+
+    /**
+     * Appends a classified change.
+     *
+     * @return the index of the change in the store
+     */
+    int add(final GitChange gitChange) {
+        ensureCommitCapacity(size + 1);
+        int field = size * FIELDS;
+        offsets[field + ID] = arenaSize;
+        boolean rawId = appendId(gitChange.id);
+        offsets[field + SUBJECT] = arenaSize;
+        append(gitChange.subject);
+        offsets[field + BODY] = arenaSize;
+        append(gitChange.body);
+        offsets[field + FIELDS] = arenaSize;
+        authorIds[size] = authorId(gitChange.author);
+        times[size] = gitChange.time;
+        types[size] = (byte) (gitChange.changeType.ordinal() | (gitChange.breaking ? BREAKING_FLAG : 0) | (rawId ? RAW_ID_FLAG : 0));
+        return size++;
+    }
+
+    /**
+     * Appends every change of the other store, whose indexes move up by the size of this store.
+     *
+     * @return the index the first change of the other store got
+     */
+    int addAll(final CommitStore other) {
+        int shift = size;
+        ensureCommitCapacity(size + other.size);
+        ensureArenaCapacity((long) arenaSize + other.arenaSize);
+        System.arraycopy(other.arena, 0, arena, arenaSize, other.arenaSize);
+        for (int field = 1; field <= other.size * FIELDS; field++) {
+            offsets[size * FIELDS + field] = other.offsets[field] + arenaSize;
+        }
+        for (int index = 0; index < other.size; index++) {
+            authorIds[size + index] = authorId(other.authors.get(other.authorIds[index]));
+        }
+        System.arraycopy(other.times, 0, times, size, other.size);
+        System.arraycopy(other.types, 0, types, size, other.size);
+        arenaSize += other.arenaSize;
+        size += other.size;
+        return shift;
+    }
+
+    /**
+     * Decodes a fresh copy of the change; changing it does not change the store.
+     */
+    GitChange get(final int index) {
+        GitChange gitChange = new GitChange();
+        gitChange.id = (types[index] & RAW_ID_FLAG) == 0 ? field(index, ID) : hexId(offsets[index * FIELDS + ID]);
+        gitChange.author = authors.get(authorIds[index]);
+        gitChange.subject = field(index, SUBJECT);
+        gitChange.body = field(index, BODY);
+        gitChange.trailers = GitTrailers.parse(gitChange.body);
+        gitChange.time = times[index];
+        gitChange.changeType = changeType(index);
+        gitChange.breaking = isBreaking(index);
+        return gitChange;
+    }
+
+    ChangeType changeType(final int index) {
+        return CHANGE_TYPES[types[index] & TYPE_MASK];
+    }
+
+    boolean isBreaking(final int index) {
+        return (types[index] & BREAKING_FLAG) != 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The bytes the arena holds, for sizing and tests.
+     */
+    int arenaSize() {
+        return arenaSize;
+    }
+
+    private String field(final int index, final int field) {
+        int start = offsets[index * FIELDS + field];
+        return new String(arena, start, offsets[index * FIELDS + field + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    private int authorId(final String author) {
+        return authorIndexes.computeIfAbsent(author == null ? "" : author, key -> {
+            authors.add(key);
+            return authors.size() - 1;
+        });
+    }
+
+    /**
+     * Appends a full hexadecimal id as its raw bytes, and any other id as it is.
+     *
+     * @return whether the id was packed
+     */
+    private boolean appendId(final String id) {
+        if (id == null || id.length() != RAW_ID_LENGTH * 2) {
+            append(id);
+            return false;
+        }
+        ensureArenaCapacity((long) arenaSize + RAW_ID_LENGTH);
+        for (int i = 0; i < RAW_ID_LENGTH; i++) {
+            int high = hexValue(id.charAt(i * 2));
+            int low = hexValue(id.charAt(i * 2 + 1));
+            if (high < 0 || low < 0) {
+                append(id);
+                return false;
+            }
+            arena[arenaSize + i] = (byte) (high << 4 | low);
+        }
+        arenaSize += RAW_ID_LENGTH;
+        return true;
+    }
+
+    private static int hexValue(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        return c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+    }
+
+    private String hexId(final int start) {
+        char[] hex = new char[RAW_ID_LENGTH * 2];
+        for (int i = 0; i < RAW_ID_LENGTH; i++) {
+            hex[i * 2] = HEX_DIGITS[arena[start + i] >> 4 & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[arena[start + i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private void append(final String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureArenaCapacity((long) arenaSize + bytes.length);
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        arenaSize += bytes.length;
+    }
+
+    private void ensureArenaCapacity(final long capacity) {
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("The commits of the range take more than 2 GB, split it into smaller ranges");
+        }
+        if (capacity > arena.length) {
+            arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, arena.length + (arena.length >> 1))));
+        }
+    }
+
+    private void ensureCommitCapacity(final int capacity) {
+        if (capacity > types.length) {
+            int length = Math.max(capacity, types.length + (types.length >> 1));
+            offsets = Arrays.copyOf(offsets, length * FIELDS + 1);
+            authorIds = Arrays.copyOf(authorIds, length);
+            times = Arrays.copyOf(times, length);
+            types = Arrays.copyOf(types, length);
+        }
+    }
+
+    /**
+     * A category of the store: a list of store indexes, read as the changes they point to.
+     */
+    final class IndexList extends AbstractList<GitChange> implements RandomAccess {
+        private int[] indexes = new int[8];
+        private int length;
+
+        void add(final int index) {
+            if (length == indexes.length) {
+                indexes = Arrays.copyOf(indexes, length + (length >> 1));
+            }
+            indexes[length++] = index;
+        }
+
+        /**
+         * Puts the indexes of the other list, moved up by the shift, in front of the ones of this list.
+         */
+        void addFirst(final IndexList other, final int shift) {
+            int[] merged = new int[Math.max(8, length + other.length)];
+            for (int i = 0; i < other.length; i++) {
+                merged[i] = other.indexes[i] + shift;
+            }
+            System.arraycopy(indexes, 0, merged, other.length, length);
+            indexes = merged;
+            length += other.length;
+        }
+
+        /**
+         * Puts the indexes of the other list, moved up by the shift, after the ones of this list.
+         */
+        void addAll(final IndexList other, final int shift) {
+            if (length + other.length > indexes.length) {
+                indexes = Arrays.copyOf(indexes, Math.max(length + other.length, length + (length >> 1)));
+            }
+            for (int i = 0; i < other.length; i++) {
+                indexes[length + i] = other.indexes[i] + shift;
+            }
+            length += other.length;
+        }
+
+        @Override
+        public GitChange get(final int position) {
+            if (position >= length) {
+                throw new IndexOutOfBoundsException(position);
+            }
+            return CommitStore.this.get(indexes[position]);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+}
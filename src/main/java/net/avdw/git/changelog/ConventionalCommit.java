@@ -0,0 +1,158 @@
+package net.avdw.git.changelog;
+
+/**
+ * Reads <a href="https://www.conventionalcommits.org/en/v1.0.0/">Conventional Commits</a>: a subject of
+ * {@code type(scope)!: description} and {@code BREAKING CHANGE: } footers in the body. Nothing is allocated; a
+ * parsed header is a {@code long} of offsets into the subject, read with the static accessors, so one parser can
+ * serve every thread.
+ *
+ * <p>The type is a word of letters, digits, {@code -} and {@code _} starting with a letter, the optional scope is
+ * any text without parentheses or line breaks, and the colon is followed by a space and a description that is not
+ * blank. Types are matched case-insensitively, footer tokens only in upper case, as the specification asks.
+ */
+final class ConventionalCommit {
+    static final long NOT_CONVENTIONAL = -1;
+    private static final int OFFSET_BITS = 15;
+    private static final int OFFSET_MASK = (1 << OFFSET_BITS) - 1;
+    private static final int SCOPE_START_SHIFT = OFFSET_BITS;
+    private static final int SCOPE_END_SHIFT = OFFSET_BITS * 2;
+    private static final int DESCRIPTION_SHIFT = OFFSET_BITS * 3;
+    private static final long BREAKING_FLAG = 1L << (OFFSET_BITS * 4);
+    private static final String BREAKING_CHANGE = "BREAKING CHANGE: ";
+    private static final String BREAKING_CHANGE_HYPHENATED = "BREAKING-CHANGE: ";
+
+    private ConventionalCommit() {
+    }
+
+    /**
+     * @return the packed header, or {@link #NOT_CONVENTIONAL} when the subject does not follow the grammar or its
+     * header is too long to pack
+     */
+    static long parse(final CharSequence subject) {
+        int length = subject.length();
+        int position = 0;
+        if (length == 0 || !isLetter(subject.charAt(0))) {
+            return NOT_CONVENTIONAL;
+        }
+        while (position < length && isTypeChar(subject.charAt(position))) {
+            position++;
+        }
+        int typeEnd = position;
+        int scopeStart = typeEnd;
+        int scopeEnd = typeEnd;
+        if (position < length && subject.charAt(position) == '(') {
+            scopeStart = ++position;
+            while (position < length && isScopeChar(subject.charAt(position))) {
+                position++;
+            }
+            if (position == length || subject.charAt(position) != ')' || position == scopeStart) {
+                return NOT_CONVENTIONAL;
+            }
+            scopeEnd = position++;
+        }
+        long breaking = 0;
+        if (position < length && subject.charAt(position) == '!') {
+            breaking = BREAKING_FLAG;
+            position++;
+        }
+        if (position + 2 >= length || subject.charAt(position) != ':' || subject.charAt(position + 1) != ' ') {
+            return NOT_CONVENTIONAL;
+        }
+        int descriptionStart = position + 2;
+        if (descriptionStart > OFFSET_MASK || Character.isWhitespace(subject.charAt(descriptionStart))) {
+            return NOT_CONVENTIONAL;
+        }
+        return typeEnd
+                | (long) scopeStart << SCOPE_START_SHIFT
+                | (long) scopeEnd << SCOPE_END_SHIFT
+                | (long) descriptionStart << DESCRIPTION_SHIFT
+                | breaking;
+    }
+
+    /**
+     * The type starts the subject and ends here.
+     */
+    static int typeEnd(final long header) {
+        return (int) (header & OFFSET_MASK);
+    }
+
+    /**
+     * The scope without its parentheses; it starts and ends at the end of the type when there is none.
+     */
+    static int scopeStart(final long header) {
+        return (int) (header >>> SCOPE_START_SHIFT & OFFSET_MASK);
+    }
+
+    static int scopeEnd(final long header) {
+        return (int) (header >>> SCOPE_END_SHIFT & OFFSET_MASK);
+    }
+
+    static int descriptionStart(final long header) {
+        return (int) (header >>> DESCRIPTION_SHIFT & OFFSET_MASK);
+    }
+
+    /**
+     * Whether the header marks a breaking change with {@code !}.
+     */
+    static boolean isBreaking(final long header) {
+        return header != NOT_CONVENTIONAL && (header & BREAKING_FLAG) != 0;
+    }
+
+    /**
+     * Whether a line of the body starts with a {@code BREAKING CHANGE: } or {@code BREAKING-CHANGE: } footer.
+     */
+    static boolean hasBreakingFooter(final CharSequence body) {
+        if (body == null) {
+            return false;
+        }
+        int length = body.length();
+        for (int lineStart = 0; lineStart < length; lineStart++) {
+            if (body.charAt(lineStart) == 'B' && (startsWith(body, lineStart, BREAKING_CHANGE) || startsWith(body, lineStart, BREAKING_CHANGE_HYPHENATED))) {
+                return true;
+            }
+            while (lineStart < length && body.charAt(lineStart) != '\n') {
+                lineStart++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the type of the header is the given type, ignoring case.
+     */
+    static boolean hasType(final CharSequence subject, final long header, final char[] type) {
+        if (typeEnd(header) != type.length) {
+            return false;
+        }
+        for (int i = 0; i < type.length; i++) {
+            if (Character.toLowerCase(subject.charAt(i)) != type[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(final CharSequence text, final int offset, final String prefix) {
+        if (text.length() - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isTypeChar(final char c) {
+        return isLetter(c) || c >= '0' && c <= '9' || c == '-' || c == '_';
+    }
+
+    private static boolean isScopeChar(final char c) {
+        return c != '(' && c != ')' && c != '\n' && c != '\r';
+    }
+}
@@ -0,0 +1,98 @@
+package net.avdw.git.changelog;
+
+import lombok.SneakyThrows;
+import org.tinylog.Logger;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.Properties;
+
+@Command(name = "daemon", description = "Keep a warm JVM serving changelog requests from the thin client", mixinStandardHelpOptions = true)
+public class DaemonCli implements Runnable {
+    private static final int TOKEN_BYTES = 32;
+    @Option(names = "--port", defaultValue = "0", description = "Loopback port to listen on, 0 for any free port (default: ${DEFAULT-VALUE})")
+    private int port;
+    @Spec
+    private CommandSpec spec;
+    @Option(names = "--stop", description = "Stop the running daemon")
+    private boolean stop;
+    @Option(names = {"-t", "--threads"}, defaultValue = "4", description = "Requests to serve at the same time (default: ${DEFAULT-VALUE})")
+    private int threads;
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Removes the daemon file, unless a newer daemon has replaced it since.
+     */
+    @SneakyThrows
+    private static void removeDaemonFile(final String token) {
+        Properties daemon = DaemonClient.readDaemonFile();
+        if (daemon != null && token.equals(daemon.getProperty(DaemonClient.TOKEN))) {
+            Files.deleteIfExists(DaemonClient.DAEMON_FILE);
+        }
+    }
+
+    /**
+     * Publishes the port and token for clients. The file is written to a temporary file first, which is only
+     * readable by the owner, and then moved into place.
+     */
+    @SneakyThrows
+    private static void writeDaemonFile(final int port, final String token) {
+        Properties daemon = new Properties();
+        daemon.setProperty(DaemonClient.PORT, Integer.toString(port));
+        daemon.setProperty(DaemonClient.TOKEN, token);
+        Files.createDirectories(DaemonClient.DAEMON_FILE.getParent());
+        Path staging = Files.createTempFile(DaemonClient.DAEMON_FILE.getParent(), "daemon", ".properties");
+        try (Writer writer = Files.newBufferedWriter(staging, StandardCharsets.UTF_8)) {
+            daemon.store(writer, "git-changelog daemon");
+        }
+        Files.move(staging, DaemonClient.DAEMON_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Entry point for picocli.
+     */
+    @Override
+    @SneakyThrows
+    public void run() {
+        if (stop) {
+            Properties daemon = DaemonClient.readDaemonFile();
+            if (daemon == null) {
+                spec.commandLine().getErr().println("No daemon is running");
+            } else {
+                DaemonClient.stop(Integer.parseInt(daemon.getProperty(DaemonClient.PORT)), daemon.getProperty(DaemonClient.TOKEN));
+            }
+            return;
+        }
+
+        String token = newToken();
+        try (DaemonServer daemonServer = new DaemonServer(port, threads, token)) {
+            writeDaemonFile(daemonServer.port(), token);
+            Thread removeOnExit = new Thread(() -> removeDaemonFile(token));
+            Runtime.getRuntime().addShutdownHook(removeOnExit);
+            spec.commandLine().getOut().println(String.format("Listening on port %d", daemonServer.port()));
+            spec.commandLine().getOut().flush();
+            daemonServer.await();
+            Runtime.getRuntime().removeShutdownHook(removeOnExit);
+        } finally {
+            removeDaemonFile(token);
+            Logger.debug("Daemon file {} released", DaemonClient.DAEMON_FILE);
+        }
+    }
+}
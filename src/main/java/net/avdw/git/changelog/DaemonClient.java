@@ -0,0 +1,116 @@
+package net.avdw.git.changelog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Thin client for the daemon started with {@code git-changelog daemon}: takes the same arguments as {@link Main},
+ * sends them to the daemon and relays its output and exit code. Only JDK classes are loaded on the way, so the
+ * client starts in a fraction of the time of a full run. Without a running daemon the arguments run in this JVM.
+ */
+public final class DaemonClient {
+    static final Path DAEMON_FILE = Paths.get(System.getProperty("user.home"), "net.avdw", "git", "daemon.properties");
+    static final String PORT = "port";
+    static final String TOKEN = "token";
+
+    private DaemonClient() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        Properties daemon = readDaemonFile();
+        if (daemon != null) {
+            try {
+                int exitCode = send(Integer.parseInt(daemon.getProperty(PORT)), daemon.getProperty(TOKEN),
+                        Paths.get("").toAbsolutePath(), args, System.out, System.err);
+                System.out.flush();
+                System.exit(exitCode);
+            } catch (ConnectException e) {
+                System.err.println(String.format("No daemon on port %s, running in process", daemon.getProperty(PORT)));
+            }
+        }
+        Main.main(args);
+    }
+
+    /**
+     * @return the port and token of the running daemon, or {@code null} when none was started
+     */
+    static Properties readDaemonFile() throws IOException {
+        if (!Files.isRegularFile(DAEMON_FILE)) {
+            return null;
+        }
+        Properties daemon = new Properties();
+        try (Reader reader = Files.newBufferedReader(DAEMON_FILE, StandardCharsets.UTF_8)) {
+            daemon.load(reader);
+        }
+        return daemon;
+    }
+
+    /**
+     * Runs the arguments on the daemon, writing its standard and error output to the streams.
+     *
+     * @return the exit code of the run
+     */
+    static int send(final int port, final String token, final Path workingDirectory, final String[] args,
+                    final OutputStream out, final OutputStream err) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(workingDirectory.toString().getBytes(StandardCharsets.UTF_8));
+        body.write(0);
+        for (String arg : args) {
+            body.write(arg.getBytes(StandardCharsets.UTF_8));
+            body.write(0);
+        }
+        HttpURLConnection connection = post(port, token, "/run");
+        connection.setFixedLengthStreamingMode(body.size());
+        try (OutputStream requestBody = connection.getOutputStream()) {
+            body.writeTo(requestBody);
+        }
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException(String.format("Daemon refused the request: HTTP %d", connection.getResponseCode()));
+        }
+        long outLength = Long.parseLong(connection.getHeaderField(DaemonServer.OUT_LENGTH_HEADER));
+        int exitCode = Integer.parseInt(connection.getHeaderField(DaemonServer.EXIT_CODE_HEADER));
+        try (InputStream responseBody = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            long remaining = outLength;
+            int read;
+            while ((read = responseBody.read(buffer)) >= 0) {
+                int outPart = (int) Math.min(remaining, read);
+                out.write(buffer, 0, outPart);
+                err.write(buffer, outPart, read - outPart);
+                remaining -= outPart;
+            }
+        }
+        return exitCode;
+    }
+
+    /**
+     * Asks the daemon to shut down.
+     */
+    static void stop(final int port, final String token) throws IOException {
+        HttpURLConnection connection = post(port, token, "/stop");
+        connection.getOutputStream().close();
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException(String.format("Daemon refused to stop: HTTP %d", connection.getResponseCode()));
+        }
+    }
+
+    private static HttpURLConnection post(final int port, final String token, final String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), port, path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty(DaemonServer.TOKEN_HEADER, token);
+        return connection;
+    }
+}
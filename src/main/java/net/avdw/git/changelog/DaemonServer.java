@@ -0,0 +1,157 @@
+package net.avdw.git.changelog;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.avdw.git.changelog.process.ProcessRunner;
+import org.tinylog.Logger;
+import picocli.CommandLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs {@link MainCli} requests inside this JVM, so the injector, the compiled templates and the pooled git
+ * processes stay warm between calls. Only the loopback interface is bound, and a request without the token handed
+ * out in the daemon file is refused.
+ *
+ * <p>{@code POST /run} takes the working directory of the client followed by its arguments, each terminated by NUL.
+ * Relative paths in the arguments are resolved against that directory; {@code -} stays as it is. The exit code and the length of the standard
+ * output come back in headers; the body is the standard output followed by the error output. {@code POST /stop}
+ * releases {@link #await()}.
+ *
+ * <p>The repositories requested stay open with their caches until the daemon is closed; see {@link ResidentRepositories}.
+ */
+class DaemonServer implements AutoCloseable {
+    static final String EXIT_CODE_HEADER = "Exit-Code";
+    static final String OUT_LENGTH_HEADER = "Out-Length";
+    static final String TOKEN_HEADER = "Token";
+    private static final int OK = 200;
+    private static final int FORBIDDEN = 403;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private final HttpServer httpServer;
+    private final ExecutorService executorService;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final byte[] token;
+
+    DaemonServer(final int port, final int threads, final String token) throws IOException {
+        this.token = token.getBytes(StandardCharsets.US_ASCII);
+        GuiceFactory.getInstance().create(ResidentRepositories.class).keep();
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executorService = Executors.newFixedThreadPool(Math.max(1, threads));
+        httpServer.setExecutor(executorService);
+        httpServer.createContext("/run", this::run);
+        httpServer.createContext("/stop", this::stop);
+        httpServer.start();
+        Logger.debug("Daemon listening on {}", httpServer.getAddress());
+    }
+
+    /**
+     * Executes the arguments the way {@link Main} would, from the working directory of the client.
+     */
+    static int execute(final Path workingDirectory, final List<String> args, final PrintWriter out, final PrintWriter err) {
+        CommandLine commandLine = new CommandLine(MainCli.class, GuiceFactory.getInstance());
+        commandLine.setCaseInsensitiveEnumValuesAllowed(true);
+        commandLine.setOverwrittenOptionsAllowed(true);
+        commandLine.registerConverter(Path.class, value -> "-".equals(value) ? Paths.get(value) : workingDirectory.resolve(value).normalize());
+        commandLine.setOut(out);
+        commandLine.setErr(err);
+        List<String> resolvedArgs = new ArrayList<>();
+        resolvedArgs.add("--repository=.");
+        resolvedArgs.addAll(args);
+        return commandLine.execute(resolvedArgs.toArray(new String[0]));
+    }
+
+    private static List<String> fields(final byte[] body) {
+        List<String> fields = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < body.length; i++) {
+            if (body[i] == 0) {
+                fields.add(new String(body, start, i - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        return fields;
+    }
+
+    private boolean accept(final HttpExchange exchange) throws IOException {
+        String requestToken = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, -1);
+        } else if (requestToken == null || !MessageDigest.isEqual(token, requestToken.getBytes(StandardCharsets.US_ASCII))) {
+            Logger.warn("Refused a daemon request without a valid token from {}", exchange.getRemoteAddress());
+            exchange.sendResponseHeaders(FORBIDDEN, -1);
+        } else {
+            return true;
+        }
+        exchange.close();
+        return false;
+    }
+
+    private void run(final HttpExchange exchange) throws IOException {
+        if (!accept(exchange)) {
+            return;
+        }
+        try {
+            List<String> fields = fields(exchange.getRequestBody().readAllBytes());
+            ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+            ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+            int exitCode;
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(outBytes, StandardCharsets.UTF_8));
+                 PrintWriter err = new PrintWriter(new OutputStreamWriter(errBytes, StandardCharsets.UTF_8))) {
+                exitCode = fields.isEmpty() ? CommandLine.ExitCode.USAGE : execute(Paths.get(fields.get(0)), fields.subList(1, fields.size()), out, err);
+            }
+            exchange.getResponseHeaders().set(EXIT_CODE_HEADER, Integer.toString(exitCode));
+            exchange.getResponseHeaders().set(OUT_LENGTH_HEADER, Integer.toString(outBytes.size()));
+            exchange.sendResponseHeaders(OK, outBytes.size() + errBytes.size());
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                outBytes.writeTo(responseBody);
+                errBytes.writeTo(responseBody);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void stop(final HttpExchange exchange) throws IOException {
+        if (accept(exchange)) {
+            exchange.sendResponseHeaders(OK, -1);
+            exchange.close();
+            stopped.countDown();
+        }
+    }
+
+    int port() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Blocks until a stop request arrives.
+     */
+    void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executorService.shutdownNow();
+        stopped.countDown();
+        GuiceFactory.getInstance().create(ResidentRepositories.class).close();
+        GuiceFactory.getInstance().create(ProcessRunner.class).close();
+        Logger.debug("Daemon stopped");
+    }
+}
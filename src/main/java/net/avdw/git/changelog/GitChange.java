@@ -1,5 +1,16 @@
 package net.avdw.git.changelog;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 public class GitChange {
+    public String author;
+    public String body;
+    public boolean breaking;
+    public ChangeType changeType;
+    public String id;
     public String subject;
+    public long time;
+    public Map<String, List<String>> trailers = Collections.emptyMap();
 }
@@ -0,0 +1,109 @@
+package net.avdw.git.changelog;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Classifies a change by the prefix of its subject. All rules are compiled into one trie, so a subject is
+ * classified in a single pass without allocating. When several rules match, the earlier type in
+ * {@link #PRECEDENCE} wins, which keeps ignored changes out of every other section.
+ *
+ * <p>A {@link ConventionalCommit} subject whose type has a conventional rule, e.g. {@code feat} or {@code chore},
+ * is classified by its type instead; other subjects, and conventional ones of unknown types, fall back to the
+ * prefixes.
+ */
+public class GitChangeClassifier {
+    static final List<ChangeType> PRECEDENCE = List.of(ChangeType.IGNORED, ChangeType.ADDED, ChangeType.CHANGED,
+            ChangeType.DEPRECATED, ChangeType.REMOVED, ChangeType.FIXED, ChangeType.SECURITY);
+    private final Map<ChangeType, List<String>> rules;
+    private final Map<ChangeType, List<String>> conventionalRules;
+    private final PrefixTrie prefixTrie = new PrefixTrie();
+    private char[][] conventionalTypes = new char[0][];
+    private int[] conventionalRanks = new int[0];
+
+    public GitChangeClassifier(final Map<ChangeType, List<String>> rules) {
+        this(rules, Collections.emptyMap());
+    }
+
+    public GitChangeClassifier(final Map<ChangeType, List<String>> rules, final Map<ChangeType, List<String>> conventionalRules) {
+        this.rules = copy(rules, prefixTrie::add);
+        this.conventionalRules = copy(conventionalRules, this::addConventionalType);
+    }
+
+    private static Map<ChangeType, List<String>> copy(final Map<ChangeType, List<String>> rules, final ObjIntConsumer<String> ruleConsumer) {
+        Map<ChangeType, List<String>> ruleCopy = new EnumMap<>(ChangeType.class);
+        rules.forEach((changeType, prefixes) -> {
+            int rank = PRECEDENCE.indexOf(changeType);
+            if (rank < 0) {
+                throw new IllegalArgumentException(String.format("No rules can be defined for %s", changeType));
+            }
+            prefixes.forEach(prefix -> ruleConsumer.accept(prefix, rank));
+            ruleCopy.put(changeType, List.copyOf(prefixes));
+        });
+        return Collections.unmodifiableMap(ruleCopy);
+    }
+
+    private void addConventionalType(final String type, final int rank) {
+        char[] lowerCaseType = type.toLowerCase(Locale.ROOT).toCharArray();
+        for (int i = 0; i < conventionalTypes.length; i++) {
+            if (Arrays.equals(conventionalTypes[i], lowerCaseType)) {
+                conventionalRanks[i] = Math.min(conventionalRanks[i], rank);
+                return;
+            }
+        }
+        conventionalTypes = Arrays.copyOf(conventionalTypes, conventionalTypes.length + 1);
+        conventionalTypes[conventionalTypes.length - 1] = lowerCaseType;
+        conventionalRanks = Arrays.copyOf(conventionalRanks, conventionalRanks.length + 1);
+        conventionalRanks[conventionalRanks.length - 1] = rank;
+    }
+
+    /**
+     * Splits a comma separated rule property, e.g. {@code update, change, enhance}, into its prefixes.
+     */
+    public static List<String> parseRule(final String rule) {
+        return Arrays.stream(rule.split(","))
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Also marks the change as {@link GitChange#breaking} when its header has a {@code !} or its body a
+     * {@code BREAKING CHANGE} footer.
+     */
+    public ChangeType classify(final GitChange gitChange) {
+        long header = ConventionalCommit.parse(gitChange.subject);
+        gitChange.breaking = ConventionalCommit.isBreaking(header) || ConventionalCommit.hasBreakingFooter(gitChange.body);
+        return classify(gitChange.subject, header);
+    }
+
+    public ChangeType classify(final CharSequence subject) {
+        return classify(subject, ConventionalCommit.parse(subject));
+    }
+
+    private ChangeType classify(final CharSequence subject, final long header) {
+        if (header != ConventionalCommit.NOT_CONVENTIONAL) {
+            for (int i = 0; i < conventionalTypes.length; i++) {
+                if (ConventionalCommit.hasType(subject, header, conventionalTypes[i])) {
+                    return PRECEDENCE.get(conventionalRanks[i]);
+                }
+            }
+        }
+        int rank = prefixTrie.match(subject);
+        return rank == PrefixTrie.NO_MATCH ? ChangeType.UNCLASSIFIED : PRECEDENCE.get(rank);
+    }
+
+    public Map<ChangeType, List<String>> conventionalRules() {
+        return conventionalRules;
+    }
+
+    public Map<ChangeType, List<String>> rules() {
+        return rules;
+    }
+}
@@ -0,0 +1,128 @@
+package net.avdw.git.changelog;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the records written by {@code git-ls.sh} as they stream in and hands each {@link GitChange} over as soon
+ * as its record is complete. A record is the fields id, author, author time, subject and body, each terminated by
+ * NUL, followed by the record separator {@code 0x1e}; anything between records, such as the newline git appends,
+ * is skipped. Git messages cannot contain NUL, so no field needs escaping.
+ *
+ * <p>Field bytes are collected in one reused buffer and only decoded into the final field value.
+ */
+public class GitChangeDecoder extends OutputStream {
+    static final byte FIELD_SEPARATOR = 0;
+    static final byte RECORD_SEPARATOR = 0x1e;
+    private static final int ID = 0;
+    private static final int AUTHOR = 1;
+    private static final int TIME = 2;
+    private static final int SUBJECT = 3;
+    private static final int BODY = 4;
+    private static final int FIELDS = 5;
+    private final Consumer<GitChange> gitChangeConsumer;
+    private final byte[] single = new byte[1];
+    private byte[] field = new byte[256];
+    private int fieldLength;
+    private int fieldIndex;
+    private GitChange gitChange;
+
+    public GitChangeDecoder(final Consumer<GitChange> gitChangeConsumer) {
+        this.gitChangeConsumer = gitChangeConsumer;
+    }
+
+    @Override
+    public void write(final int b) {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] buffer, final int offset, final int length) {
+        int end = offset + length;
+        int position = offset;
+        while (position < end) {
+            if (gitChange == null) {
+                if (buffer[position] != '\n' && buffer[position] != '\r') {
+                    gitChange = new GitChange();
+                    fieldIndex = 0;
+                } else {
+                    position++;
+                }
+            } else if (fieldIndex < FIELDS) {
+                int fieldEnd = position;
+                while (fieldEnd < end && buffer[fieldEnd] != FIELD_SEPARATOR) {
+                    fieldEnd++;
+                }
+                append(buffer, position, fieldEnd - position);
+                if (fieldEnd < end) {
+                    endField();
+                    fieldEnd++;
+                }
+                position = fieldEnd;
+            } else if (buffer[position] == RECORD_SEPARATOR) {
+                gitChangeConsumer.accept(gitChange);
+                gitChange = null;
+                position++;
+            } else {
+                throw new IllegalStateException(String.format("Expected a record separator after %s, found 0x%02x", gitChange.id, buffer[position]));
+            }
+        }
+    }
+
+    /**
+     * Fails when the stream ended inside a record.
+     */
+    @Override
+    public void close() {
+        if (gitChange != null) {
+            throw new IllegalStateException(String.format("Truncated record after %s", gitChange.id));
+        }
+    }
+
+    private void append(final byte[] buffer, final int offset, final int length) {
+        if (fieldLength + length > field.length) {
+            field = Arrays.copyOf(field, Math.max(field.length * 2, fieldLength + length));
+        }
+        System.arraycopy(buffer, offset, field, fieldLength, length);
+        fieldLength += length;
+    }
+
+    private void endField() {
+        switch (fieldIndex) {
+            case ID:
+                gitChange.id = new String(field, 0, fieldLength, StandardCharsets.US_ASCII);
+                break;
+            case AUTHOR:
+                gitChange.author = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+                break;
+            case TIME:
+                gitChange.time = parseLong(field, fieldLength);
+                break;
+            case SUBJECT:
+                gitChange.subject = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+                break;
+            case BODY:
+                gitChange.body = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+                gitChange.trailers = GitTrailers.parse(gitChange.body);
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unexpected field %d", fieldIndex));
+        }
+        fieldIndex++;
+        fieldLength = 0;
+    }
+
+    private static long parseLong(final byte[] digits, final int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            if (digits[i] < '0' || digits[i] > '9') {
+                throw new IllegalStateException("Author time is not a number");
+            }
+            value = value * 10 + (digits[i] - '0');
+        }
+        return value;
+    }
+}
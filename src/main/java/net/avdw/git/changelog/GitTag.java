@@ -0,0 +1,11 @@
+package net.avdw.git.changelog;
+
+public class GitTag {
+    public final String name;
+    public final long time;
+
+    public GitTag(final String name, final long time) {
+        this.name = name;
+        this.time = time;
+    }
+}
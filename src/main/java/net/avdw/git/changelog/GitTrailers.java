@@ -0,0 +1,58 @@
+package net.avdw.git.changelog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the trailers, e.g. {@code Signed-off-by: ...}, from the last paragraph of a commit body. The paragraph only
+ * counts as trailers when every line is a {@code Token: value} pair or an indented continuation of the previous one.
+ */
+final class GitTrailers {
+    private GitTrailers() {
+    }
+
+    static Map<String, List<String>> parse(final String body) {
+        if (body == null) {
+            return Collections.emptyMap();
+        }
+        int end = body.length();
+        while (end > 0 && Character.isWhitespace(body.charAt(end - 1))) {
+            end--;
+        }
+        int start = body.lastIndexOf("\n\n", end);
+        String paragraph = body.substring(start < 0 ? 0 : start + 2, end);
+        if (paragraph.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, List<String>> trailers = new LinkedHashMap<>();
+        List<String> previous = null;
+        for (String line : paragraph.split("\n")) {
+            String trimmed = line.strip();
+            if (previous != null && !line.isEmpty() && Character.isWhitespace(line.charAt(0))) {
+                previous.set(previous.size() - 1, previous.get(previous.size() - 1) + " " + trimmed);
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0 || !isToken(line.substring(0, colon))) {
+                return Collections.emptyMap();
+            }
+            previous = trailers.computeIfAbsent(line.substring(0, colon), key -> new ArrayList<>());
+            previous.add(line.substring(colon + 1).strip());
+        }
+        return Collections.unmodifiableMap(trailers);
+    }
+
+    private static boolean isToken(final String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
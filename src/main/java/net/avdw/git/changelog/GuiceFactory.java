@@ -4,16 +4,23 @@ import com.google.inject.*;
 import picocli.CommandLine;
 
 final class GuiceFactory implements CommandLine.IFactory {
-    private static final GuiceFactory INSTANCE = new GuiceFactory();
-    private static final Injector INJECTOR = Guice.createInjector(new MainModule());
+    private static final GuiceFactory INSTANCE = new GuiceFactory(Guice.createInjector(new MainModule()));
+    private final Injector injector;
 
-    public static CommandLine.IFactory getInstance() {
+    /**
+     * A factory over other bindings, e.g. a {@link CommitSource.Factory} that needs no git.
+     */
+    GuiceFactory(final Injector injector) {
+        this.injector = injector;
+    }
+
+    public static GuiceFactory getInstance() {
         return INSTANCE;
     }
 
     @Override
     public <K> K create(final Class<K> aClass) {
-        return INJECTOR.getInstance(aClass);
+        return injector.getInstance(aClass);
     }
 
 }
@@ -1,209 +1,373 @@
 package net.avdw.git.changelog;
 
-import com.google.gson.Gson;
 import com.google.inject.Inject;
 import lombok.SneakyThrows;
-import net.avdw.git.changelog.process.ProcessRunner;
+import net.avdw.git.changelog.metrics.Metrics;
+import net.avdw.git.changelog.metrics.Stage;
+import net.avdw.git.changelog.output.ChangelogOutput;
+import net.avdw.git.changelog.repository.Repository;
 import org.tinylog.Logger;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Spec;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Command(name = "git-changelog", description = "Git changelog transformer",
-        versionProvider = MainVersion.class, mixinStandardHelpOptions = true)
+        versionProvider = MainVersion.class, mixinStandardHelpOptions = true,
+        subcommands = {BatchCli.class, DaemonCli.class, VersionsCli.class})
 public class MainCli implements Runnable {
-    private String currentBranch;
-    private String firstCommit;
+    private static final String VERSION_PLACEHOLDER = "${version}";
+    @Option(names = "--cache", negatable = true, defaultValue = "true", fallbackValue = "true",
+            description = "Remember classified commits in .git/changelog.cache and commit reachability in .git/changelog.graph so reruns only read new commits (default: ${DEFAULT-VALUE})")
+    private boolean cache;
+    private CommitSource commitSource;
+    @Inject
+    private CommitSource.Factory commitSourceFactory;
+    private CompletableFuture<String> currentBranch;
+    private CompletableFuture<String> firstCommit;
     @Parameters(arity = "0..1", index = "1")
     private String from = "";
     @Inject
-    @GitCheckout
-    private Path gitCheckoutScript;
-    @Inject
-    @GitCurrentBranch
-    private Path gitCurrentBranchScript;
-    @Inject
-    @GitFirstCommit
-    private Path gitFirstCommitScript;
-    @Inject
-    @GitLatestTag
-    private Path gitLatestTagScript;
+    private GitChangeClassifier gitChangeClassifier;
+    @Option(names = "--history", description = "Render every release of <to>, one section per tag, newest first")
+    private boolean history;
+    private CompletableFuture<String> latestTag;
     @Inject
-    @GitLs
-    private Path gitLogScript;
-    private Gson gson = new Gson();
-    private String latestTag;
+    private Metrics metrics;
+    @Option(names = "--metrics", arity = "0..1", fallbackValue = "-", paramLabel = "<file>",
+            description = "Write wall time and allocation per stage and commits per change type as JSON to the file, or to the error output without one")
+    private Path metricsReport;
+    private Metrics.Run metricsRun;
+    @Option(names = {"-m", "--module"}, paramLabel = "<path>",
+            description = "Write a changelog of only the commits that touch the path, one per module and all from a single walk of the range, into the --output directory (default: changelogs)")
+    private List<String> modules = new ArrayList<>();
+    @Option(names = "--native", negatable = true, defaultValue = "true", fallbackValue = "true",
+            description = "Read history straight from the .git directory, falling back to git when it cannot (default: ${DEFAULT-VALUE})")
+    private boolean nativeReader;
+    private PrintWriter out;
+    @Option(names = {"-o", "--output"}, paramLabel = "<file>", description = "Write the changelog to the file, replacing it only once it is complete")
+    private Path output;
+    private RepositoryQuery query;
     @Inject
-    private ProcessRunner processRunner;
+    @QueryExecutor
+    private ExecutorService queryExecutor;
     @Option(names = {"-r", "--repository"})
     private Path repository;
     @Spec
     private CommandSpec spec;
     @Inject
     private Templator templator;
+    @Option(names = "--timeout", defaultValue = "120", description = "Seconds to wait for the repository lookups before giving up (default: ${DEFAULT-VALUE})")
+    private long timeout;
     @Parameters(arity = "0..1", index = "0")
     private String to = "master";
+    @Option(names = "--watch", description = "Keep rewriting the --output file as commits are added, reading only the new ones, until stopped")
+    private boolean watch;
+
+    private static String modulePath(final String module) {
+        String modulePath = module.replace('\\', '/');
+        while (modulePath.startsWith("./")) {
+            modulePath = modulePath.substring(2);
+        }
+        while (modulePath.endsWith("/")) {
+            modulePath = modulePath.substring(0, modulePath.length() - 1);
+        }
+        return ".".equals(modulePath) ? "" : modulePath;
+    }
 
     private boolean calculateRecommend(final Map<ChangeType, List<GitChange>> categorisedGitChangeMap) {
         return categorisedGitChangeMap.containsKey(ChangeType.SECURITY);
     }
 
-    private String calculateType(final Map<ChangeType, List<GitChange>> categorisedGitChangeMap) {
-        if (isMajor(categorisedGitChangeMap)) {
-            return "Major";
-        } else if (isMinor(categorisedGitChangeMap)) {
-            return "Feature";
-        } else if (isPatch(categorisedGitChangeMap)) {
-            return "Maintenance";
-        } else {
-            throw new UnsupportedOperationException();
+    private String calculateType(final ChangeTypeSink changeTypeSink) {
+        return changeTypeSink.releaseType().title();
+    }
+
+    /**
+     * A sink that hands the changes it classifies back to the source to remember.
+     */
+    private ChangeTypeSink changeTypeSink() {
+        return new ChangeTypeSink(gitChangeClassifier, metrics, commitSource()::remember);
+    }
+
+    private List<ChangeTypeSink> changeTypeSinks(final int count) {
+        List<ChangeTypeSink> changeTypeSinks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            changeTypeSinks.add(changeTypeSink());
         }
+        return changeTypeSinks;
     }
 
-    private Map<ChangeType, List<GitChange>> categoriseGitChangeList(final List<GitChange> gitChangeList) {
-        Map<ChangeType, List<GitChange>> categorisedGitChangeMap = new HashMap<>();
-        gitChangeList.forEach(gitChange -> {
-            ChangeType key = identifyGitChangeType(gitChange);
-            categorisedGitChangeMap.putIfAbsent(key, new ArrayList<>());
-            categorisedGitChangeMap.get(key).add(gitChange);
-        });
-        return categorisedGitChangeMap;
+    private synchronized CommitSource commitSource() {
+        if (commitSource == null) {
+            commitSource = commitSourceFactory.open(repository, nativeReader, cache);
+        }
+        return commitSource;
     }
 
-    private String currentBranch() {
+    private synchronized CompletableFuture<String> currentBranch() {
         if (currentBranch == null) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            processRunner.execute(gitCurrentBranchScript, repository, new PrintStream(baos, true, StandardCharsets.UTF_8));
-            currentBranch = new String(baos.toByteArray()).trim();
-            Logger.debug("Current branch: {}", currentBranch);
+            currentBranch = query.submit(metricsRun.bind(() -> {
+                String branch = commitSource().currentBranch();
+                Logger.debug("Current branch: {}", branch);
+                return branch;
+            }));
         }
         return currentBranch;
     }
 
-    private String firstCommit() {
+    private synchronized CompletableFuture<String> firstCommit() {
         if (firstCommit == null) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            processRunner.execute(gitFirstCommitScript, repository, new PrintStream(baos, true, StandardCharsets.UTF_8));
-            firstCommit = new String(baos.toByteArray()).trim();
-            Logger.debug("First commit: {}", firstCommit);
+            firstCommit = query.submit(metricsRun.bind(() -> {
+                String commit = commitSource().firstCommit();
+                Logger.debug("First commit: {}", commit);
+                return commit;
+            }));
         }
         return firstCommit;
     }
 
-    private ChangeType identifyGitChangeType(final GitChange gitChange) {
-        if (isIgnored(gitChange)) {
-            return ChangeType.IGNORED;
-        }
+    /**
+     * Whether the commit is no longer part of the history of {@code from}.
+     */
+    private boolean isRewritten(final String commit, final String from) {
+        boolean[] rewritten = {false};
+        commitSource().log(from, commit, gitChange -> rewritten[0] = true);
+        return rewritten[0];
+    }
 
-        if (isAdded(gitChange)) {
-            return ChangeType.ADDED;
-        } else if (isChanged(gitChange)) {
-            return ChangeType.CHANGED;
-        } else if (isDeprecated(gitChange)) {
-            return ChangeType.DEPRECATED;
-        } else if (isRemoved(gitChange)) {
-            return ChangeType.REMOVED;
-        } else if (isFixed(gitChange)) {
-            return ChangeType.FIXED;
-        } else if (isSecurity(gitChange)) {
-            return ChangeType.SECURITY;
-        } else {
-            return ChangeType.UNCLASSIFIED;
+    private synchronized CompletableFuture<String> latestTag() {
+        if (latestTag == null) {
+            latestTag = query.submit(metricsRun.bind(() -> {
+                String tag = commitSource().latestTag("master");
+                Logger.debug("Latest tag: {}", tag);
+                return tag;
+            }));
         }
+        return latestTag;
     }
 
-    private boolean isAdded(final GitChange gitChange) {
-        return gitChange.subject.toLowerCase().startsWith("add");
+    /**
+     * Files the changes in {@code to..from}.
+     *
+     * @return the id of the newest change, or {@code to} when the range is empty
+     */
+    private String log(final String to, final String from, final ChangeTypeSink changeTypeSink) {
+        List<String> newest = new ArrayList<>(1);
+        commitSource().log(to, from, gitChange -> {
+            if (newest.isEmpty()) {
+                newest.add(gitChange.id);
+            }
+            changeTypeSink.accept(gitChange);
+        });
+        return newest.isEmpty() ? to : newest.get(0);
     }
 
-    private boolean isChanged(final GitChange gitChange) {
-        boolean startsWithUpdate = gitChange.subject.toLowerCase().startsWith("update");
-        boolean startsWithChange = gitChange.subject.toLowerCase().startsWith("change");
-        boolean startsWithEnhance = gitChange.subject.toLowerCase().startsWith("enhance");
-        boolean startsWithRefactor = gitChange.subject.toLowerCase().startsWith("refactor");
-        boolean isChanged = startsWithChange || startsWithUpdate || startsWithEnhance || startsWithRefactor;
-        return isChanged;
+    /**
+     * The version the changes since the base are released as: the next version after the tag nearest to the base, or
+     * after {@link SemanticVersion#INITIAL} when nothing is tagged. The {@code ${version}} placeholder is kept when that
+     * tag is not a semantic version.
+     */
+    private String nextVersion(final String base, final ChangeTypeSink changeTypeSink) {
+        Optional<SemanticVersion> previous = SemanticVersion.parse(base);
+        if (previous.isEmpty()) {
+            String previousTag = commitSource().latestTag(base);
+            previous = previousTag.isEmpty() ? Optional.of(SemanticVersion.INITIAL) : SemanticVersion.parse(previousTag);
+        }
+        return previous.map(version -> version.next(changeTypeSink.releaseType()).toString()).orElse(VERSION_PLACEHOLDER);
     }
 
-    private boolean isDeprecated(final GitChange gitChange) {
-        return gitChange.subject.toLowerCase().startsWith("deprecate");
+    private void printChangelog(final List<GitChange> gitChanges) {
+        gitChanges.forEach(gitChange -> {
+            templator.render(ResourceBundleKey.LINE_ITEM, gitChange, out);
+            out.println();
+        });
     }
 
-    private boolean isFixed(final GitChange gitChange) {
-        return gitChange.subject.toLowerCase().startsWith("fix");
+    private void printHistory() {
+        CompletableFuture<String> firstCommit = firstCommit();
+        List<GitTag> tags = commitSource().tags(to);
+        List<String> bounds = new ArrayList<>();
+        bounds.add(query.await(firstCommit));
+        tags.forEach(tag -> bounds.add(tag.name));
+        bounds.add(to);
+        Logger.debug("Rendering {} release range(s) of {}", bounds.size() - 1, to);
+
+        ForkJoinPool forkJoinPool = metricsRun.forkJoinPool();
+        List<ChangeTypeSink> releases;
+        try {
+            releases = forkJoinPool.invoke(new ReleaseHistoryTask(bounds, commitSource()::log, this::changeTypeSink));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+        releases.forEach(ChangeTypeSink::countCommits);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        for (int index = releases.size() - 1; index >= 0; index--) {
+            ChangeTypeSink release = releases.get(index);
+            if (release.isEmpty()) {
+                Logger.debug("No changes between {} and {}", bounds.get(index), bounds.get(index + 1));
+            } else if (index == tags.size()) {
+                printRelease(release, nextVersion(bounds.get(index), release), dateFormat.format(new Date()));
+            } else {
+                GitTag tag = tags.get(index);
+                String version = tag.name.startsWith("v") ? tag.name.substring(1) : tag.name;
+                printRelease(release, version, dateFormat.format(new Date(tag.time * 1000)));
+            }
+        }
     }
 
-    private boolean isIgnored(final GitChange gitChange) {
-        boolean startsWithSetup = gitChange.subject.toLowerCase().startsWith("setup");
-        boolean startsWithMaintain = gitChange.subject.toLowerCase().startsWith("maintain");
-        boolean startsWithMerge = gitChange.subject.toLowerCase().startsWith("merge");
-        boolean isIgnored = startsWithSetup || startsWithMaintain || startsWithMerge;
-        return isIgnored;
+    private void printRelease(final ChangeTypeSink changeTypeSink, final String version, final String date) {
+        try (Metrics.Timer timer = metrics.start(Stage.RENDER, version)) {
+            printReleaseSections(changeTypeSink, version, date);
+        }
     }
 
-    private boolean isMajor(final Map<ChangeType, List<GitChange>> categorisedGitChangeMap) {
-        return categorisedGitChangeMap.containsKey(ChangeType.CHANGED) || categorisedGitChangeMap.containsKey(ChangeType.REMOVED);
-    }
+    private void printReleaseSections(final ChangeTypeSink changeTypeSink, final String version, final String date) {
+        Map<ChangeType, List<GitChange>> categorisedGitChangeMap = changeTypeSink.categorisedGitChangeMap();
+        Map<String, Object> releaseTitle = new HashMap<>();
+        releaseTitle.put("version", version);
+        releaseTitle.put("type", calculateType(changeTypeSink));
+        releaseTitle.put("recommend", calculateRecommend(categorisedGitChangeMap));
+        releaseTitle.put("date", date);
+        templator.render(ResourceBundleKey.RELEASE_TITLE, releaseTitle, out);
+        out.println();
+        out.println();
+
+        if (categorisedGitChangeMap.get(ChangeType.ADDED) != null) {
+            out.println(templator.populate(ResourceBundleKey.ADDED_TITLE));
+            printChangelog(categorisedGitChangeMap.get(ChangeType.ADDED));
+            out.println();
+        }
 
-    private boolean isMinor(final Map<ChangeType, List<GitChange>> categorisedGitChangeMap) {
-        return categorisedGitChangeMap.containsKey(ChangeType.ADDED) || categorisedGitChangeMap.containsKey(ChangeType.DEPRECATED);
-    }
+        if (categorisedGitChangeMap.get(ChangeType.CHANGED) != null) {
+            out.println(templator.populate(ResourceBundleKey.CHANGED_TITLE));
+            printChangelog(categorisedGitChangeMap.get(ChangeType.CHANGED));
+            out.println();
+        }
 
-    private boolean isPatch(final Map<ChangeType, List<GitChange>> categorisedGitChangeMap) {
-        return categorisedGitChangeMap.containsKey(ChangeType.FIXED)
-                || categorisedGitChangeMap.containsKey(ChangeType.SECURITY)
-                || categorisedGitChangeMap.containsKey(ChangeType.UNCLASSIFIED)
-                || categorisedGitChangeMap.containsKey(ChangeType.IGNORED);
-    }
+        if (categorisedGitChangeMap.get(ChangeType.DEPRECATED) != null) {
+            out.println(templator.populate(ResourceBundleKey.DEPRECATED_TITLE));
+            printChangelog(categorisedGitChangeMap.get(ChangeType.DEPRECATED));
+            out.println();
+        }
 
-    private boolean isRemoved(final GitChange gitChange) {
-        return gitChange.subject.toLowerCase().startsWith("remove");
-    }
+        if (categorisedGitChangeMap.get(ChangeType.REMOVED) != null) {
+            out.println(templator.populate(ResourceBundleKey.REMOVED_TITLE));
+            printChangelog(categorisedGitChangeMap.get(ChangeType.REMOVED));
+            out.println();
+        }
 
-    private boolean isSecurity(final GitChange gitChange) {
-        return gitChange.subject.toLowerCase().startsWith("secure");
-    }
+        if (categorisedGitChangeMap.get(ChangeType.FIXED) != null) {
+            out.println(templator.populate(ResourceBundleKey.FIXED_TITLE));
+            printChangelog(categorisedGitChangeMap.get(ChangeType.FIXED));
+            out.println();
+        }
 
-    private String latestTag() {
-        if (latestTag == null) {
-            if (!"master".equals(currentBranch())) {
-                processRunner.execute(gitCheckoutScript, repository, null, "master");
-            }
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            processRunner.execute(gitLatestTagScript, repository, new PrintStream(baos, true, StandardCharsets.UTF_8));
-            latestTag = new String(baos.toByteArray()).trim();
+        if (categorisedGitChangeMap.get(ChangeType.SECURITY) != null) {
+            out.println(templator.populate(ResourceBundleKey.SECURITY_TITLE));
+            printChangelog(categorisedGitChangeMap.get(ChangeType.SECURITY));
+            out.println();
+        }
 
-            if (!"master".equals(currentBranch())) {
-                processRunner.execute(gitCheckoutScript, repository, null, currentBranch());
-            }
+        if (!categorisedGitChangeMap.containsKey(ChangeType.ADDED) &&
+                !categorisedGitChangeMap.containsKey(ChangeType.CHANGED) &&
+                !categorisedGitChangeMap.containsKey(ChangeType.DEPRECATED) &&
+                !categorisedGitChangeMap.containsKey(ChangeType.REMOVED) &&
+                !categorisedGitChangeMap.containsKey(ChangeType.FIXED) &&
+                !categorisedGitChangeMap.containsKey(ChangeType.SECURITY)) {
+            out.println(templator.populate(ResourceBundleKey.NONE_STANDARD_CHANGELOG));
+        }
+    }
 
-            Logger.debug("Latest tag: {}", latestTag);
+    @SneakyThrows
+    private void printModules() {
+        List<String> modulePaths = modules.stream().map(MainCli::modulePath).distinct().collect(Collectors.toList());
+        String[] range = unreleasedRange();
+        List<ChangeTypeSink> changeTypeSinks = changeTypeSinks(modulePaths.size());
+        commitSource().log(range[0], range[1], modulePaths, (gitChange, module) -> changeTypeSinks.get(module).accept(gitChange));
+        changeTypeSinks.forEach(ChangeTypeSink::countCommits);
+
+        Path outputDirectory = output == null ? Paths.get("changelogs") : output;
+        Files.createDirectories(outputDirectory);
+        for (int module = 0; module < modulePaths.size(); module++) {
+            String modulePath = modulePaths.get(module);
+            String fileName = (modulePath.isEmpty() ? "root" : modulePath.replace('/', '-')) + ".md";
+            try (ChangelogOutput changelogOutput = ChangelogOutput.toFile(outputDirectory.resolve(fileName), StandardCharsets.UTF_8)) {
+                out = changelogOutput.writer();
+                printUnreleased(changeTypeSinks.get(module), range[0]);
+                changelogOutput.commit();
+            }
+            Logger.debug("Module {} changelog written to {}", modulePath, fileName);
         }
-        return latestTag;
     }
 
-    private List<GitChange> parseGitChangeList(final String jsonChangelog) {
-        List<GitChange> gitChangeList = new ArrayList<>();
-        Scanner lineScanner = new Scanner(jsonChangelog);
-        while (lineScanner.hasNextLine()) {
-            String line = lineScanner.nextLine();
-            gitChangeList.add(gson.fromJson(line, GitChange.class));
+    private void printUnreleased() {
+        ForkJoinPool forkJoinPool = metricsRun.forkJoinPool();
+        ParallelClassifier parallelClassifier = new ParallelClassifier(this::changeTypeSink, forkJoinPool);
+        String[] range = unreleasedRange();
+        ChangeTypeSink changeTypeSink;
+        try {
+            commitSource().log(range[0], range[1], parallelClassifier);
+            changeTypeSink = parallelClassifier.join();
+        } finally {
+            forkJoinPool.shutdown();
         }
-        return gitChangeList;
+        changeTypeSink.countCommits();
+        printUnreleased(changeTypeSink, range[0]);
     }
 
-    private void printChangelog(final List<GitChange> gitChanges) {
-        gitChanges.forEach(gitChange -> spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.LINE_ITEM, gitChange)));
+    private void printUnreleased(final ChangeTypeSink changeTypeSink, final String base) {
+        if (changeTypeSink.isEmpty()) {
+            out.println(templator.populate(ResourceBundleKey.NO_CHANGE));
+        } else {
+            Map<ChangeType, List<GitChange>> categorisedGitChangeMap = changeTypeSink.categorisedGitChangeMap();
+
+            try (Metrics.Timer timer = metrics.start(Stage.RENDER, "unsorted")) {
+                if (categorisedGitChangeMap.get(ChangeType.IGNORED) != null) {
+                    out.println(templator.populate(ResourceBundleKey.IGNORED_TITLE));
+                    printChangelog(categorisedGitChangeMap.get(ChangeType.IGNORED));
+                    out.println();
+                }
+                if (categorisedGitChangeMap.get(ChangeType.UNCLASSIFIED) != null) {
+                    out.println(templator.populate(ResourceBundleKey.UNCLASSIFIED_TITLE));
+                    printChangelog(categorisedGitChangeMap.get(ChangeType.UNCLASSIFIED));
+                    out.println();
+                }
+            }
 
+            printRelease(changeTypeSink, nextVersion(base, changeTypeSink), new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
+        }
+    }
+
+    /**
+     * Forgets the lookups that move with the refs and starts a new deadline for looking them up again. The first
+     * commit stays, it would take a walk of the whole history to find it again.
+     */
+    private synchronized void refresh() {
+        query.close();
+        query = new RepositoryQuery(queryExecutor, Duration.ofSeconds(timeout));
+        currentBranch = null;
+        latestTag = null;
+        if (firstCommit != null && firstCommit.isCompletedExceptionally()) {
+            firstCommit = null;
+        }
+        commitSource().refresh();
     }
 
     /**
@@ -212,93 +376,129 @@ public class MainCli implements Runnable {
     @Override
     @SneakyThrows
     public void run() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        if (currentBranch().equals(to) && from.isEmpty()) {
-            Logger.debug("Cannot determine changelog as current ({}) is the same as to ({}) and from is not specified", currentBranch(), to);
-            if (!latestTag().isEmpty()) {
-                Logger.debug("Using latest tag ({}) as base", latestTag());
-                processRunner.execute(gitLogScript, repository, new PrintStream(baos, true, StandardCharsets.UTF_8), String.format("-t=%s", latestTag), String.format("-f=%s", "master"));
-            } else {
-                Logger.debug("Using first commit ({}) as base", firstCommit());
-                processRunner.execute(gitLogScript, repository, new PrintStream(baos, true, StandardCharsets.UTF_8), String.format("-t=%s", firstCommit()), String.format("-f=%s", "master"));
-            }
-        } else {
-            processRunner.execute(gitLogScript, repository, new PrintStream(baos, true, StandardCharsets.UTF_8), String.format("-t=%s", to), String.format("-f=%s", from));
+        if (history && !modules.isEmpty()) {
+            throw new ParameterException(spec.commandLine(), "--module cannot be combined with --history");
         }
-
-        String jsonChangelog = new String(baos.toByteArray());
-        if (jsonChangelog.length() == 0) {
-            spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.NO_CHANGE));
-        } else {
-            List<GitChange> gitChangeList = parseGitChangeList(jsonChangelog);
-            Map<ChangeType, List<GitChange>> categorisedGitChangeMap = categoriseGitChangeList(gitChangeList);
-
-            if (categorisedGitChangeMap.get(ChangeType.IGNORED) != null) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.IGNORED_TITLE));
-                printChangelog(categorisedGitChangeMap.get(ChangeType.IGNORED));
-                spec.commandLine().getOut().println();
-            }
-            if (categorisedGitChangeMap.get(ChangeType.UNCLASSIFIED) != null) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.UNCLASSIFIED_TITLE));
-                printChangelog(categorisedGitChangeMap.get(ChangeType.UNCLASSIFIED));
-                spec.commandLine().getOut().println();
-            }
-
-            if (!categorisedGitChangeMap.isEmpty()) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.RELEASE_TITLE,
-                        gson.fromJson(String.format("{version:'%s',type:'%s',recommend:%s,date:'%s'}",
-                                "${version}",
-                                calculateType(categorisedGitChangeMap),
-                                calculateRecommend(categorisedGitChangeMap),
-                                new SimpleDateFormat("yyyy-MM-dd").format(new Date())),
-                                Map.class)));
-                spec.commandLine().getOut().println();
-            }
-
-            if (categorisedGitChangeMap.get(ChangeType.ADDED) != null) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.ADDED_TITLE));
-                printChangelog(categorisedGitChangeMap.get(ChangeType.ADDED));
-                spec.commandLine().getOut().println();
-            }
-
-            if (categorisedGitChangeMap.get(ChangeType.CHANGED) != null) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.CHANGED_TITLE));
-                printChangelog(categorisedGitChangeMap.get(ChangeType.CHANGED));
-                spec.commandLine().getOut().println();
+        if (watch && (output == null || history || !modules.isEmpty())) {
+            throw new ParameterException(spec.commandLine(), "--watch needs --output and cannot be combined with --history or --module");
+        }
+        query = new RepositoryQuery(queryExecutor, Duration.ofSeconds(timeout));
+        metricsRun = metrics.startRun(metricsReport != null);
+        try {
+            if (watch) {
+                watch();
+            } else if (modules.isEmpty()) {
+                try (ChangelogOutput changelogOutput = output == null
+                        ? ChangelogOutput.toWriter(spec.commandLine().getOut())
+                        : ChangelogOutput.toFile(output, StandardCharsets.UTF_8)) {
+                    out = changelogOutput.writer();
+                    if (history) {
+                        printHistory();
+                    } else {
+                        printUnreleased();
+                    }
+                    changelogOutput.commit();
+                }
+            } else {
+                printModules();
             }
-
-            if (categorisedGitChangeMap.get(ChangeType.DEPRECATED) != null) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.DEPRECATED_TITLE));
-                printChangelog(categorisedGitChangeMap.get(ChangeType.DEPRECATED));
-                spec.commandLine().getOut().println();
+            writeMetrics();
+        } finally {
+            metricsRun.close();
+            synchronized (this) {
+                query.close();
+                currentBranch = null;
+                firstCommit = null;
+                latestTag = null;
+                if (commitSource != null) {
+                    commitSource.close();
+                }
+                commitSource = null;
             }
+        }
+    }
 
-            if (categorisedGitChangeMap.get(ChangeType.REMOVED) != null) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.REMOVED_TITLE));
-                printChangelog(categorisedGitChangeMap.get(ChangeType.REMOVED));
-                spec.commandLine().getOut().println();
+    /**
+     * The {@code to} and {@code from} of the unreleased changes. Without a {@code from} while on {@code to}, the
+     * changes since the latest tag are unreleased, or all of them when nothing was tagged yet.
+     */
+    private String[] unreleasedRange() {
+        if (from.isEmpty()) {
+            latestTag();
+            firstCommit();
+        }
+        if (from.isEmpty() && query.await(currentBranch()).equals(to)) {
+            Logger.debug("Cannot determine changelog as current ({}) is the same as to ({}) and from is not specified", query.await(currentBranch()), to);
+            String latestTag = query.await(latestTag());
+            if (!latestTag.isEmpty()) {
+                Logger.debug("Using latest tag ({}) as base", latestTag);
+                return new String[]{latestTag, "master"};
             }
+            String firstCommit = query.await(firstCommit());
+            Logger.debug("Using first commit ({}) as base", firstCommit);
+            return new String[]{firstCommit, "master"};
+        }
+        return new String[]{to, from};
+    }
 
-            if (categorisedGitChangeMap.get(ChangeType.FIXED) != null) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.FIXED_TITLE));
-                printChangelog(categorisedGitChangeMap.get(ChangeType.FIXED));
-                spec.commandLine().getOut().println();
+    /**
+     * Keeps the unreleased changes of the output file up to date. When the refs move, only the commits after the
+     * newest one already filed are read and classified, unless the base of the range moved, e.g. to a new tag, or the
+     * newest commit was rewritten away; then the whole range is read again.
+     */
+    @SneakyThrows
+    private void watch() {
+        Path gitDirectory = Repository.findGitDirectory(repository == null ? Paths.get("") : repository)
+                .orElseThrow(() -> new ParameterException(spec.commandLine(), "--watch needs a git repository"));
+        try (RefWatcher refWatcher = new RefWatcher(gitDirectory, Repository.commonDirectory(gitDirectory))) {
+            String[] range = unreleasedRange();
+            ChangeTypeSink unreleased = changeTypeSink();
+            String newest = log(range[0], range[1], unreleased);
+            writeUnreleased(unreleased, range[0]);
+            Logger.debug("Watching {} for new commits", gitDirectory);
+            while (refWatcher.awaitChange()) {
+                long start = System.nanoTime();
+                refresh();
+                String[] nextRange = unreleasedRange();
+                if (nextRange[0].equals(range[0]) && !isRewritten(newest, nextRange[1])) {
+                    ChangeTypeSink added = changeTypeSink();
+                    newest = log(newest, nextRange[1], added);
+                    if (added.isEmpty()) {
+                        continue;
+                    }
+                    unreleased.addNewer(added);
+                } else {
+                    Logger.debug("Unreleased range moved from {}..{} to {}..{}, reading it again", range[0], range[1], nextRange[0], nextRange[1]);
+                    unreleased = changeTypeSink();
+                    newest = log(nextRange[0], nextRange[1], unreleased);
+                }
+                range = nextRange;
+                writeUnreleased(unreleased, range[0]);
+                Logger.debug("Changelog {} updated in {} ms", output, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             }
+        }
+    }
 
-            if (categorisedGitChangeMap.get(ChangeType.SECURITY) != null) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.SECURITY_TITLE));
-                printChangelog(categorisedGitChangeMap.get(ChangeType.SECURITY));
-                spec.commandLine().getOut().println();
+    @SneakyThrows
+    private void writeMetrics() {
+        if (metricsReport == null) {
+            return;
+        }
+        if ("-".equals(metricsReport.toString())) {
+            metricsRun.writeJson(spec.commandLine().getErr());
+        } else {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(metricsReport, StandardCharsets.UTF_8))) {
+                metricsRun.writeJson(out);
             }
+        }
+    }
 
-            if (!categorisedGitChangeMap.containsKey(ChangeType.ADDED) &&
-                    !categorisedGitChangeMap.containsKey(ChangeType.CHANGED) &&
-                    !categorisedGitChangeMap.containsKey(ChangeType.DEPRECATED) &&
-                    !categorisedGitChangeMap.containsKey(ChangeType.REMOVED) &&
-                    !categorisedGitChangeMap.containsKey(ChangeType.FIXED) &&
-                    !categorisedGitChangeMap.containsKey(ChangeType.SECURITY)) {
-                spec.commandLine().getOut().println(templator.populate(ResourceBundleKey.NONE_STANDARD_CHANGELOG));
-            }
+    @SneakyThrows
+    private void writeUnreleased(final ChangeTypeSink changeTypeSink, final String base) {
+        try (ChangelogOutput changelogOutput = ChangelogOutput.toFile(output, StandardCharsets.UTF_8)) {
+            out = changelogOutput.writer();
+            printUnreleased(changeTypeSink, base);
+            changelogOutput.commit();
         }
     }
 }
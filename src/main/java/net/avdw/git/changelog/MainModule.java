@@ -2,16 +2,22 @@ package net.avdw.git.changelog;
 
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 import lombok.SneakyThrows;
+import net.avdw.git.changelog.metrics.Metrics;
+import net.avdw.git.changelog.metrics.Stage;
 import net.avdw.git.changelog.process.ProcessModule;
+import net.avdw.git.changelog.process.ProcessRunner;
 import net.avdw.git.changelog.property.AbstractPropertyModule;
-import net.avdw.git.changelog.temp.Temp;
 import net.avdw.git.changelog.temp.TempModule;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class MainModule extends AbstractPropertyModule {
     @Override
@@ -28,15 +34,80 @@ class MainModule extends AbstractPropertyModule {
     protected Properties defaultProperties() {
         Properties properties = new Properties();
         properties.put(PropertyKey.BASH_PATH, "C:\\Program Files\\Git\\usr\\bin\\bash.exe");
+        properties.put(PropertyKey.CONVENTIONAL_ADDED, "feat");
+        properties.put(PropertyKey.CONVENTIONAL_CHANGED, "refactor");
+        properties.put(PropertyKey.CONVENTIONAL_DEPRECATED, "deprecate");
+        properties.put(PropertyKey.CONVENTIONAL_FIXED, "fix,perf");
+        properties.put(PropertyKey.CONVENTIONAL_IGNORED, "build,chore,ci,docs,style,test");
+        properties.put(PropertyKey.CONVENTIONAL_REMOVED, "");
+        properties.put(PropertyKey.CONVENTIONAL_SECURITY, "security");
+        properties.put(PropertyKey.RULE_ADDED, "add");
+        properties.put(PropertyKey.RULE_CHANGED, "update,change,enhance,refactor");
+        properties.put(PropertyKey.RULE_DEPRECATED, "deprecate");
+        properties.put(PropertyKey.RULE_FIXED, "fix");
+        properties.put(PropertyKey.RULE_IGNORED, "setup,maintain,merge");
+        properties.put(PropertyKey.RULE_REMOVED, "remove");
+        properties.put(PropertyKey.RULE_SECURITY, "secure");
         return properties;
     }
 
+    /**
+     * Reads history natively when asked to, falling back to the scripts for what the native reader cannot read.
+     */
     @Provides
-    @GitCheckout
+    @Singleton
+    CommitSource.Factory commitSourceFactory(final ProcessRunner processRunner, final Metrics metrics, final GitChangeClassifier gitChangeClassifier,
+                                             final ResidentRepositories residentRepositories,
+                                             @GitBranchLs final Path gitBranchLsScript, @GitCurrentBranch final Path gitCurrentBranchScript, @GitFirstCommit final Path gitFirstCommitScript,
+                                             @GitLatestTag final Path gitLatestTagScript, @GitLs final Path gitLogScript, @GitTagLs final Path gitTagLsScript) {
+        return (repository, nativeReader, cache) -> {
+            ScriptCommitSource scriptCommitSource = new ScriptCommitSource(repository, processRunner, metrics, gitBranchLsScript,
+                    gitCurrentBranchScript, gitFirstCommitScript, gitLatestTagScript, gitLogScript, gitTagLsScript);
+            return nativeReader ? NativeCommitSource.open(repository, cache, residentRepositories, scriptCommitSource, gitChangeClassifier, metrics) : scriptCommitSource;
+        };
+    }
+
+    @Provides
+    @Singleton
+    GitChangeClassifier gitChangeClassifier(@Named(PropertyKey.CONVENTIONAL_ADDED) final String conventionalAdded,
+                                            @Named(PropertyKey.CONVENTIONAL_CHANGED) final String conventionalChanged,
+                                            @Named(PropertyKey.CONVENTIONAL_DEPRECATED) final String conventionalDeprecated,
+                                            @Named(PropertyKey.CONVENTIONAL_FIXED) final String conventionalFixed,
+                                            @Named(PropertyKey.CONVENTIONAL_IGNORED) final String conventionalIgnored,
+                                            @Named(PropertyKey.CONVENTIONAL_REMOVED) final String conventionalRemoved,
+                                            @Named(PropertyKey.CONVENTIONAL_SECURITY) final String conventionalSecurity,
+                                            @Named(PropertyKey.RULE_ADDED) final String added,
+                                            @Named(PropertyKey.RULE_CHANGED) final String changed,
+                                            @Named(PropertyKey.RULE_DEPRECATED) final String deprecated,
+                                            @Named(PropertyKey.RULE_FIXED) final String fixed,
+                                            @Named(PropertyKey.RULE_IGNORED) final String ignored,
+                                            @Named(PropertyKey.RULE_REMOVED) final String removed,
+                                            @Named(PropertyKey.RULE_SECURITY) final String security) {
+        Map<ChangeType, List<String>> rules = new EnumMap<>(ChangeType.class);
+        rules.put(ChangeType.ADDED, GitChangeClassifier.parseRule(added));
+        rules.put(ChangeType.CHANGED, GitChangeClassifier.parseRule(changed));
+        rules.put(ChangeType.DEPRECATED, GitChangeClassifier.parseRule(deprecated));
+        rules.put(ChangeType.FIXED, GitChangeClassifier.parseRule(fixed));
+        rules.put(ChangeType.IGNORED, GitChangeClassifier.parseRule(ignored));
+        rules.put(ChangeType.REMOVED, GitChangeClassifier.parseRule(removed));
+        rules.put(ChangeType.SECURITY, GitChangeClassifier.parseRule(security));
+        Map<ChangeType, List<String>> conventionalRules = new EnumMap<>(ChangeType.class);
+        conventionalRules.put(ChangeType.ADDED, GitChangeClassifier.parseRule(conventionalAdded));
+        conventionalRules.put(ChangeType.CHANGED, GitChangeClassifier.parseRule(conventionalChanged));
+        conventionalRules.put(ChangeType.DEPRECATED, GitChangeClassifier.parseRule(conventionalDeprecated));
+        conventionalRules.put(ChangeType.FIXED, GitChangeClassifier.parseRule(conventionalFixed));
+        conventionalRules.put(ChangeType.IGNORED, GitChangeClassifier.parseRule(conventionalIgnored));
+        conventionalRules.put(ChangeType.REMOVED, GitChangeClassifier.parseRule(conventionalRemoved));
+        conventionalRules.put(ChangeType.SECURITY, GitChangeClassifier.parseRule(conventionalSecurity));
+        return new GitChangeClassifier(rules, conventionalRules);
+    }
+
+    @Provides
+    @GitBranchLs
     @Singleton
     @SneakyThrows
-    Path gitCheckoutScript(@Script Path scriptPath) {
-        return scriptPath.resolve("scripts/git-checkout.sh");
+    Path gitBranchLsScript(@Script Path scriptPath) {
+        return scriptPath.resolve("scripts/git-branch-ls.sh");
     }
 
     @Provides
@@ -71,6 +142,26 @@ class MainModule extends AbstractPropertyModule {
         return scriptPath.resolve("scripts/git-ls.sh");
     }
 
+    @Provides
+    @GitTagLs
+    @Singleton
+    @SneakyThrows
+    Path gitTagLsScript(@Script Path scriptPath) {
+        return scriptPath.resolve("scripts/git-tag-ls.sh");
+    }
+
+    @Provides
+    @QueryExecutor
+    @Singleton
+    ExecutorService queryExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "repository-query-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     @Provides
     @Singleton
     ResourceBundle resourceBundle() {
@@ -81,12 +172,14 @@ class MainModule extends AbstractPropertyModule {
     @Singleton
     @Script
     @SneakyThrows
-    Path scriptPath(@Temp final Path tmpDir, final JarExtractor jarExtractor) {
-        if (Paths.get(this.getClass().getProtectionDomain().getCodeSource().getLocation().toURI()).toString().endsWith(".jar")) {
-            jarExtractor.extract(tmpDir, ".*\\.sh");
-            return tmpDir;
+    Path scriptPath(final Metrics metrics) {
+        Path codeSource = Paths.get(this.getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+        if (codeSource.toString().endsWith(".jar")) {
+            try (Metrics.Timer timer = metrics.start(Stage.EXTRACT)) {
+                return new ScriptCache(globalPropertyPath().resolveSibling("scripts")).resolve();
+            }
         } else {
-            return Paths.get(this.getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+            return codeSource;
         }
     }
 
@@ -0,0 +1,107 @@
+package net.avdw.git.changelog;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Prefix tree over module paths. A path belongs to every module whose path is the path itself or one of its parent
+ * directories, and all of them are found in a single pass over its characters. Paths are compared case-sensitively,
+ * as git does, and use {@code /} as separator; the empty path is the module of the whole repository.
+ */
+class ModulePathIndex {
+    private static final int NO_STATE = -1;
+    private static final char SEPARATOR = '/';
+    private static final char[] NO_LABELS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+    private char[][] labels = {NO_LABELS};
+    private int[][] targets = {NO_TARGETS};
+    private int[][] modules = {NO_TARGETS};
+    private int size = 1;
+
+    void add(final CharSequence modulePath, final int module) {
+        int state = 0;
+        for (int i = 0; i < modulePath.length(); i++) {
+            char c = modulePath.charAt(i);
+            int next = transition(state, c);
+            if (next == NO_STATE) {
+                next = newState();
+                int position = -Arrays.binarySearch(labels[state], c) - 1;
+                labels[state] = insert(labels[state], position, c);
+                targets[state] = insert(targets[state], position, next);
+            }
+            state = next;
+        }
+        modules[state] = insert(modules[state], modules[state].length, module);
+    }
+
+    /**
+     * Hands over every module the path belongs to, the outermost first.
+     */
+    void match(final CharSequence path, final IntConsumer moduleConsumer) {
+        int state = 0;
+        emit(state, moduleConsumer);
+        for (int i = 0; i < path.length(); i++) {
+            state = transition(state, path.charAt(i));
+            if (state == NO_STATE) {
+                return;
+            }
+            if (i + 1 == path.length() || path.charAt(i + 1) == SEPARATOR) {
+                emit(state, moduleConsumer);
+            }
+        }
+    }
+
+    /**
+     * Whether a module lies strictly below the directory, so that its changes must be looked at file by file.
+     */
+    boolean hasModuleBelow(final CharSequence directory) {
+        if (directory.length() == 0) {
+            return labels[0].length > 0;
+        }
+        int state = 0;
+        for (int i = 0; i < directory.length() && state != NO_STATE; i++) {
+            state = transition(state, directory.charAt(i));
+        }
+        return state != NO_STATE && transition(state, SEPARATOR) != NO_STATE;
+    }
+
+    private void emit(final int state, final IntConsumer moduleConsumer) {
+        for (int module : modules[state]) {
+            moduleConsumer.accept(module);
+        }
+    }
+
+    private int transition(final int state, final char c) {
+        int position = Arrays.binarySearch(labels[state], c);
+        return position < 0 ? NO_STATE : targets[state][position];
+    }
+
+    private int newState() {
+        if (size == labels.length) {
+            int capacity = size * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            modules = Arrays.copyOf(modules, capacity);
+        }
+        labels[size] = NO_LABELS;
+        targets[size] = NO_TARGETS;
+        modules[size] = NO_TARGETS;
+        return size++;
+    }
+
+    private static char[] insert(final char[] array, final int position, final char value) {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static int[] insert(final int[] array, final int position, final int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+}
@@ -0,0 +1,249 @@
+package net.avdw.git.changelog;
+
+import lombok.SneakyThrows;
+import net.avdw.git.changelog.metrics.Metrics;
+import net.avdw.git.changelog.metrics.Stage;
+import net.avdw.git.changelog.repository.GitCommit;
+import net.avdw.git.changelog.repository.ObjectId;
+import net.avdw.git.changelog.repository.Repository;
+import net.avdw.git.changelog.repository.RepositoryException;
+import net.avdw.git.changelog.repository.Tag;
+import org.tinylog.Logger;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads history straight from the {@code .git} directory, and asks the scripts for whatever it cannot read.
+ * Changes the caller classified are remembered in the {@link ChangeCache} when caching is on.
+ */
+class NativeCommitSource implements CommitSource {
+    private final ChangeCache changeCache;
+    private final Repository gitRepository;
+    private final Metrics metrics;
+    private final ScriptCommitSource scriptCommitSource;
+    private final ResidentRepositories.Resident resident;
+
+    private NativeCommitSource(final Repository gitRepository, final ChangeCache changeCache, final ScriptCommitSource scriptCommitSource,
+                               final Metrics metrics, final ResidentRepositories.Resident resident) {
+        this.gitRepository = gitRepository;
+        this.changeCache = changeCache;
+        this.scriptCommitSource = scriptCommitSource;
+        this.metrics = metrics;
+        this.resident = resident;
+    }
+
+    /**
+     * The native source of the repository, or the script source when no {@code .git} directory is found. While the
+     * repositories are {@link ResidentRepositories#keep() kept}, a cached source reads the resident repository and
+     * leaves it open on close.
+     */
+    static CommitSource open(final Path repository, final boolean cache, final ResidentRepositories residentRepositories,
+                             final ScriptCommitSource scriptCommitSource, final GitChangeClassifier gitChangeClassifier, final Metrics metrics) {
+        Path baseDirectory = repository == null ? Paths.get("") : repository;
+        if (cache && residentRepositories.isKept()) {
+            return residentRepositories.acquire(baseDirectory, scriptCommitSource::catFile, gitChangeClassifier)
+                    .<CommitSource>map(acquired -> new NativeCommitSource(acquired.repository(), acquired.changeCache(), scriptCommitSource, metrics, acquired))
+                    .orElse(scriptCommitSource);
+        }
+        Optional<Repository> gitRepository = Repository.open(baseDirectory, scriptCommitSource::catFile);
+        if (gitRepository.isEmpty()) {
+            return scriptCommitSource;
+        }
+        ChangeCache changeCache = null;
+        if (cache) {
+            changeCache = ChangeCache.open(gitRepository.get().gitDirectory(), gitChangeClassifier);
+            gitRepository.get().useCommitGraph();
+        }
+        return new NativeCommitSource(gitRepository.get(), changeCache, scriptCommitSource, metrics, null);
+    }
+
+    @Override
+    public List<String> branches() {
+        try {
+            return gitRepository.branches();
+        } catch (RepositoryException e) {
+            Logger.debug("Native branch listing failed, falling back to git: {}", e.getMessage());
+        }
+        return scriptCommitSource.branches();
+    }
+
+    @Override
+    public String currentBranch() {
+        return scriptCommitSource.currentBranch();
+    }
+
+    @Override
+    public String firstCommit() {
+        return scriptCommitSource.firstCommit();
+    }
+
+    /**
+     * The change of the commit, from the change cache when it is there, so that the commit itself is not read.
+     */
+    private GitChange gitChange(final ObjectId commitId) {
+        GitChange gitChange = changeCache == null ? null : changeCache.get(commitId);
+        return gitChange == null ? newGitChange(gitRepository.commit(commitId)) : gitChange;
+    }
+
+    private GitChange gitChange(final GitCommit gitCommit) {
+        GitChange gitChange = changeCache == null ? null : changeCache.get(gitCommit.id());
+        return gitChange == null ? newGitChange(gitCommit) : gitChange;
+    }
+
+    /**
+     * The change read from the commit, for a commit the cache was already asked for.
+     */
+    private static GitChange newGitChange(final GitCommit gitCommit) {
+        GitChange gitChange = new GitChange();
+        gitChange.id = gitCommit.id().name();
+        gitChange.author = gitCommit.author();
+        gitChange.time = gitCommit.authorTime();
+        gitChange.subject = gitCommit.subject();
+        gitChange.body = gitCommit.body();
+        gitChange.trailers = GitTrailers.parse(gitChange.body);
+        return gitChange;
+    }
+
+    @Override
+    public void remember(final GitChange gitChange) {
+        if (changeCache != null) {
+            changeCache.put(ObjectId.fromHex(gitChange.id), gitChange);
+        }
+    }
+
+    @Override
+    public String latestTag(final String revision) {
+        try {
+            return gitRepository.nearestTag(revision).map(Tag::name).orElse("");
+        } catch (RepositoryException e) {
+            Logger.debug("Native tag lookup failed, falling back to git: {}", e.getMessage());
+        }
+        return scriptCommitSource.latestTag(revision);
+    }
+
+    /**
+     * Falls back to git only while nothing has been handed over; once the consumer has seen part of the range, running
+     * it again would hand that part over twice, so a failure from there on is thrown instead.
+     */
+    @Override
+    public void log(final String to, final String from, final Consumer<GitChange> gitChangeConsumer) {
+        int[] emitted = {0};
+        Consumer<GitChange> countingConsumer = gitChange -> {
+            emitted[0]++;
+            gitChangeConsumer.accept(gitChange);
+        };
+        try (Metrics.Timer timer = metrics.start(Stage.PARSE, to + ".." + from)) {
+            if (changeCache == null) {
+                gitRepository.log(to, from, gitCommit -> countingConsumer.accept(gitChange(gitCommit)));
+            } else {
+                gitRepository.logIds(to, from, commitId -> countingConsumer.accept(gitChange(commitId)));
+            }
+            return;
+        } catch (RepositoryException e) {
+            if (emitted[0] > 0) {
+                throw new RepositoryException(String.format("Native log of %s..%s failed after %d change(s)", to, from, emitted[0]), e);
+            }
+            Logger.debug("Native log of {}..{} failed, falling back to git: {}", to, from, e.getMessage());
+        }
+        scriptCommitSource.log(to, from, gitChangeConsumer);
+    }
+
+    /**
+     * Limits every range in one walk of the commit graph, so history the ranges share is read once. Falls back to the
+     * ranges one by one only while nothing has been handed over, as {@link #log(String, String, Consumer)}.
+     */
+    @Override
+    public void logRanges(final List<String> tos, final List<String> froms, final BiConsumer<GitChange, BitSet> rangesConsumer) {
+        int[] emitted = {0};
+        try (Metrics.Timer timer = metrics.start(Stage.PARSE, tos.size() + " ranges")) {
+            gitRepository.logIds(tos, froms, (commitId, ranges) -> {
+                emitted[0]++;
+                rangesConsumer.accept(gitChange(commitId), ranges);
+            });
+            return;
+        } catch (RepositoryException e) {
+            if (emitted[0] > 0) {
+                throw new RepositoryException(String.format("Native log of %d ranges failed after %d change(s)", tos.size(), emitted[0]), e);
+            }
+            Logger.debug("Native log of {} ranges failed, falling back to one range at a time: {}", tos.size(), e.getMessage());
+        }
+        CommitSource.super.logRanges(tos, froms, rangesConsumer);
+    }
+
+    /**
+     * Hands every commit of the range over under each module whose path it touches as the walk reaches it, with one walk
+     * for all modules. As with {@code git log -- <path>}, a merge only touches a module when it differs from every
+     * parent there. Falls back to git only while nothing has been handed over, as {@link #log(String, String, Consumer)}.
+     */
+    @Override
+    public void log(final String to, final String from, final List<String> modulePaths, final ObjIntConsumer<GitChange> moduleChangeConsumer) {
+        ModulePathIndex modulePathIndex = new ModulePathIndex();
+        for (int module = 0; module < modulePaths.size(); module++) {
+            modulePathIndex.add(modulePaths.get(module), module);
+        }
+        int[] emitted = {0};
+        BitSet touched = new BitSet(modulePaths.size());
+        BitSet touchedFromParent = new BitSet(modulePaths.size());
+        try (Metrics.Timer timer = metrics.start(Stage.PARSE, to + ".." + from)) {
+            gitRepository.log(to, from, gitCommit -> {
+                touched.set(0, modulePaths.size());
+                for (Set<String> changedPaths : gitRepository.changedPaths(gitCommit, modulePathIndex::hasModuleBelow)) {
+                    touchedFromParent.clear();
+                    changedPaths.forEach(path -> modulePathIndex.match(path, touchedFromParent::set));
+                    touched.and(touchedFromParent);
+                }
+                if (!touched.isEmpty()) {
+                    GitChange gitChange = gitChange(gitCommit);
+                    emitted[0]++;
+                    touched.stream().forEach(module -> moduleChangeConsumer.accept(gitChange, module));
+                }
+            });
+            return;
+        } catch (RepositoryException e) {
+            if (emitted[0] > 0) {
+                throw new RepositoryException(String.format("Native module log of %s..%s failed after %d change(s)", to, from, emitted[0]), e);
+            }
+            Logger.debug("Native module log of {}..{} failed, falling back to git: {}", to, from, e.getMessage());
+        }
+        scriptCommitSource.log(to, from, modulePaths, moduleChangeConsumer);
+    }
+
+    @Override
+    public List<GitTag> tags(final String revision) {
+        try {
+            return gitRepository.tags(revision).stream()
+                    .map(tag -> new GitTag(tag.name(), tag.commitTime()))
+                    .collect(Collectors.toList());
+        } catch (RepositoryException e) {
+            Logger.debug("Native tag listing of {} failed, falling back to git: {}", revision, e.getMessage());
+        }
+        return scriptCommitSource.tags(revision);
+    }
+
+    @Override
+    public void refresh() {
+        gitRepository.refresh();
+    }
+
+    @Override
+    @SneakyThrows
+    public void close() {
+        if (resident != null) {
+            resident.release();
+            return;
+        }
+        if (changeCache != null) {
+            changeCache.close();
+        }
+        gitRepository.close();
+    }
+}
@@ -0,0 +1,91 @@
+package net.avdw.git.changelog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Classifies a long range on a fork-join pool. Changes arrive in the order of the log and are cut into chunks, each
+ * classified and filed into a sink of its own while the log reads on. Chunks are merged in the order they were cut,
+ * so every list keeps the order of the log. Only a few chunks per worker are in flight at a time; the oldest is merged
+ * before another is cut, which keeps the changes waiting as objects bounded however long the range is.
+ *
+ * <p>A pool of one worker gains nothing from chunks, so then every change is filed straight into the result.
+ */
+public class ParallelClassifier implements Consumer<GitChange> {
+    static final int CHUNK_SIZE = 4096;
+    private static final int CHUNKS_PER_WORKER = 4;
+    private final Supplier<ChangeTypeSink> changeTypeSinkFactory;
+    private final ForkJoinPool forkJoinPool;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final Deque<ForkJoinTask<ChangeTypeSink>> inFlight = new ArrayDeque<>();
+    private final ChangeTypeSink result;
+    private List<GitChange> chunk;
+
+    public ParallelClassifier(final Supplier<ChangeTypeSink> changeTypeSinkFactory, final ForkJoinPool forkJoinPool) {
+        this(changeTypeSinkFactory, forkJoinPool, CHUNK_SIZE);
+    }
+
+    ParallelClassifier(final Supplier<ChangeTypeSink> changeTypeSinkFactory, final ForkJoinPool forkJoinPool, final int chunkSize) {
+        this.changeTypeSinkFactory = changeTypeSinkFactory;
+        this.forkJoinPool = forkJoinPool;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = forkJoinPool.getParallelism() * CHUNKS_PER_WORKER;
+        this.result = changeTypeSinkFactory.get();
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    @Override
+    public void accept(final GitChange gitChange) {
+        if (forkJoinPool.getParallelism() == 1) {
+            result.accept(gitChange);
+            return;
+        }
+        chunk.add(gitChange);
+        if (chunk.size() == chunkSize) {
+            if (inFlight.size() == maxInFlight) {
+                result.addOlder(inFlight.removeFirst().join());
+            }
+            inFlight.addLast(forkJoinPool.submit(new ClassifyTask(chunk, changeTypeSinkFactory.get())));
+            chunk = new ArrayList<>(chunkSize);
+        }
+    }
+
+    /**
+     * Waits for the chunks still in flight and classifies the last, partial one on the calling thread.
+     *
+     * @return the sink holding every change accepted, in the order they were accepted
+     */
+    public ChangeTypeSink join() {
+        while (!inFlight.isEmpty()) {
+            result.addOlder(inFlight.removeFirst().join());
+        }
+        chunk.forEach(result);
+        chunk = new ArrayList<>(chunkSize);
+        return result;
+    }
+
+    private static final class ClassifyTask extends RecursiveTask<ChangeTypeSink> {
+        private static final long serialVersionUID = 1L;
+        private final List<GitChange> gitChanges;
+        private final ChangeTypeSink changeTypeSink;
+
+        ClassifyTask(final List<GitChange> gitChanges, final ChangeTypeSink changeTypeSink) {
+            this.gitChanges = gitChanges;
+            this.changeTypeSink = changeTypeSink;
+        }
+
+        @Override
+        protected ChangeTypeSink compute() {
+            gitChanges.forEach(changeTypeSink);
+            return changeTypeSink;
+        }
+    }
+}
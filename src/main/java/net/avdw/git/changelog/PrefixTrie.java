@@ -0,0 +1,89 @@
+package net.avdw.git.changelog;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive prefix automaton. Every prefix carries a rank and a match reports the lowest rank among all
+ * prefixes of the input, found in a single pass over its characters.
+ */
+class PrefixTrie {
+    static final int NO_MATCH = -1;
+    private static final char[] NO_LABELS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+    private char[][] labels = {NO_LABELS};
+    private int[][] targets = {NO_TARGETS};
+    private int[] ranks = {NO_MATCH};
+    private int size = 1;
+
+    void add(final CharSequence prefix, final int rank) {
+        int state = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = Character.toLowerCase(prefix.charAt(i));
+            int position = Arrays.binarySearch(labels[state], c);
+            if (position < 0) {
+                int next = newState();
+                position = -position - 1;
+                labels[state] = insert(labels[state], position, c);
+                targets[state] = insert(targets[state], position, next);
+            }
+            state = targets[state][position];
+        }
+        if (ranks[state] == NO_MATCH || rank < ranks[state]) {
+            ranks[state] = rank;
+        }
+    }
+
+    int match(final CharSequence input) {
+        int best = NO_MATCH;
+        int state = 0;
+        for (int i = 0; i < input.length(); i++) {
+            state = transition(state, Character.toLowerCase(input.charAt(i)));
+            if (state == NO_MATCH) {
+                break;
+            }
+            int rank = ranks[state];
+            if (rank != NO_MATCH && (best == NO_MATCH || rank < best)) {
+                best = rank;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The state reached from the state on the character. The labels of every state are kept sorted, so the transition
+     * is a binary search.
+     */
+    private int transition(final int state, final char c) {
+        int position = Arrays.binarySearch(labels[state], c);
+        return position < 0 ? NO_MATCH : targets[state][position];
+    }
+
+    private int newState() {
+        if (size == ranks.length) {
+            int capacity = size * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+        }
+        labels[size] = NO_LABELS;
+        targets[size] = NO_TARGETS;
+        ranks[size] = NO_MATCH;
+        return size++;
+    }
+
+    private static char[] insert(final char[] array, final int position, final char value) {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static int[] insert(final int[] array, final int position, final int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+}
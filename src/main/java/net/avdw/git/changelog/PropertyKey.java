@@ -2,4 +2,18 @@ package net.avdw.git.changelog;
 
 public class PropertyKey {
     public static final String BASH_PATH = "bash.path";
+    public static final String CONVENTIONAL_ADDED = "conventional.added";
+    public static final String CONVENTIONAL_CHANGED = "conventional.changed";
+    public static final String CONVENTIONAL_DEPRECATED = "conventional.deprecated";
+    public static final String CONVENTIONAL_FIXED = "conventional.fixed";
+    public static final String CONVENTIONAL_IGNORED = "conventional.ignored";
+    public static final String CONVENTIONAL_REMOVED = "conventional.removed";
+    public static final String CONVENTIONAL_SECURITY = "conventional.security";
+    public static final String RULE_ADDED = "rule.added";
+    public static final String RULE_CHANGED = "rule.changed";
+    public static final String RULE_DEPRECATED = "rule.deprecated";
+    public static final String RULE_FIXED = "rule.fixed";
+    public static final String RULE_IGNORED = "rule.ignored";
+    public static final String RULE_REMOVED = "rule.removed";
+    public static final String RULE_SECURITY = "rule.security";
 }
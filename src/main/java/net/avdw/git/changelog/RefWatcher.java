@@ -0,0 +1,128 @@
+package net.avdw.git.changelog;
+
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Waits for the refs of a repository to move: anything below {@code refs}, {@code packed-refs}, {@code HEAD} and its
+ * reflog {@code logs/HEAD}. A single git command touches several of them in a row, so events are gathered until the
+ * repository has been quiet for a moment and reported as one change. Lock files git writes on the way are ignored.
+ */
+class RefWatcher implements AutoCloseable {
+    private static final long QUIET_MILLIS = 50;
+    private static final Set<String> GIT_DIRECTORY_FILES = Set.of("HEAD", "packed-refs");
+    private static final String LOCK_SUFFIX = ".lock";
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Path gitDirectory;
+    private final Path refsDirectory;
+    private final Path logsDirectory;
+
+    RefWatcher(final Path gitDirectory, final Path commonDirectory) throws IOException {
+        this.gitDirectory = gitDirectory;
+        this.refsDirectory = commonDirectory.resolve("refs");
+        this.logsDirectory = gitDirectory.resolve("logs");
+        this.watchService = FileSystems.getDefault().newWatchService();
+        register(gitDirectory);
+        if (!commonDirectory.equals(gitDirectory)) {
+            register(commonDirectory);
+        }
+        if (Files.isDirectory(logsDirectory)) {
+            register(logsDirectory);
+        }
+        registerAll(refsDirectory);
+    }
+
+    private void register(final Path directory) throws IOException {
+        WatchKey watchKey = directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirectories.put(watchKey, directory);
+    }
+
+    private void registerAll(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> directories = Files.walk(directory).filter(Files::isDirectory)) {
+            for (Path subdirectory : (Iterable<Path>) directories::iterator) {
+                register(subdirectory);
+            }
+        }
+    }
+
+    /**
+     * Blocks until a ref moved and the repository is quiet again.
+     *
+     * @return {@code false} when the watch was closed or the thread interrupted instead, which stops the watch
+     */
+    boolean awaitChange() throws IOException {
+        try {
+            boolean changed = false;
+            WatchKey watchKey = watchService.take();
+            while (watchKey != null) {
+                changed |= handle(watchKey);
+                watchKey = changed ? watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS) : watchService.take();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            // The interrupt is how a watch is stopped; it is consumed so that the caches can still be written on the way out.
+            return false;
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        }
+    }
+
+    private boolean handle(final WatchKey watchKey) throws IOException {
+        Path directory = watchedDirectories.get(watchKey);
+        boolean changed = false;
+        for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+            if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) watchEvent.context());
+            String name = path.getFileName().toString();
+            if (name.endsWith(LOCK_SUFFIX)) {
+                continue;
+            }
+            if (path.startsWith(refsDirectory)) {
+                if (watchEvent.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    registerAll(path);
+                }
+                changed = true;
+            } else if (directory.equals(logsDirectory)) {
+                changed |= "HEAD".equals(name);
+            } else if (GIT_DIRECTORY_FILES.contains(name)) {
+                changed = true;
+            } else if (directory.equals(gitDirectory) && path.equals(logsDirectory) && Files.isDirectory(path)) {
+                register(logsDirectory);
+            }
+        }
+        if (!watchKey.reset()) {
+            watchedDirectories.remove(watchKey);
+        }
+        if (changed) {
+            Logger.debug("Refs changed in {}", directory);
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
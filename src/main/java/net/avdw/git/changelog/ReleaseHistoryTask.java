@@ -0,0 +1,59 @@
+package net.avdw.git.changelog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Categorises the changes between consecutive release bounds, splitting the ranges across the fork-join pool.
+ * The result holds one sink per range, in the order of the bounds.
+ */
+public class ReleaseHistoryTask extends RecursiveTask<List<ChangeTypeSink>> {
+    private static final long serialVersionUID = 1L;
+    private final List<String> bounds;
+    private final RangeLog rangeLog;
+    private final Supplier<ChangeTypeSink> changeTypeSinkFactory;
+    private final int start;
+    private final int end;
+
+    public ReleaseHistoryTask(final List<String> bounds, final RangeLog rangeLog, final Supplier<ChangeTypeSink> changeTypeSinkFactory) {
+        this(bounds, rangeLog, changeTypeSinkFactory, 0, bounds.size() - 1);
+    }
+
+    private ReleaseHistoryTask(final List<String> bounds, final RangeLog rangeLog, final Supplier<ChangeTypeSink> changeTypeSinkFactory,
+                               final int start, final int end) {
+        this.bounds = bounds;
+        this.rangeLog = rangeLog;
+        this.changeTypeSinkFactory = changeTypeSinkFactory;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    protected List<ChangeTypeSink> compute() {
+        List<ChangeTypeSink> releases = new ArrayList<>();
+        if (end - start == 1) {
+            ChangeTypeSink changeTypeSink = changeTypeSinkFactory.get();
+            rangeLog.log(bounds.get(start), bounds.get(end), changeTypeSink);
+            releases.add(changeTypeSink);
+        } else if (end - start > 1) {
+            int middle = (start + end) >>> 1;
+            ReleaseHistoryTask older = new ReleaseHistoryTask(bounds, rangeLog, changeTypeSinkFactory, start, middle);
+            older.fork();
+            List<ChangeTypeSink> newer = new ReleaseHistoryTask(bounds, rangeLog, changeTypeSinkFactory, middle, end).compute();
+            releases.addAll(older.join());
+            releases.addAll(newer);
+        }
+        return releases;
+    }
+
+    /**
+     * Streams the changes in {@code to..from} to the consumer.
+     */
+    @FunctionalInterface
+    public interface RangeLog {
+        void log(String to, String from, Consumer<GitChange> gitChangeConsumer);
+    }
+}
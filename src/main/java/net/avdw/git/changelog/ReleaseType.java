@@ -0,0 +1,38 @@
+package net.avdw.git.changelog;
+
+/**
+ * How far a release moves the semantic version, from least to most. A release is as far as its furthest change.
+ */
+public enum ReleaseType {
+    NONE("None"), MAINTENANCE("Maintenance"), FEATURE("Feature"), MAJOR("Major");
+
+    private final String title;
+
+    ReleaseType(final String title) {
+        this.title = title;
+    }
+
+    /**
+     * The release a single change calls for: breaking, changed and removed changes call for a major release, added and
+     * deprecated ones for a feature release and all others for maintenance.
+     */
+    public static ReleaseType of(final ChangeType changeType, final boolean breaking) {
+        if (breaking || changeType == ChangeType.CHANGED || changeType == ChangeType.REMOVED) {
+            return MAJOR;
+        } else if (changeType == ChangeType.ADDED || changeType == ChangeType.DEPRECATED) {
+            return FEATURE;
+        }
+        return MAINTENANCE;
+    }
+
+    public ReleaseType max(final ReleaseType other) {
+        return other.compareTo(this) > 0 ? other : this;
+    }
+
+    /**
+     * The name used in the release title.
+     */
+    public String title() {
+        return title;
+    }
+}
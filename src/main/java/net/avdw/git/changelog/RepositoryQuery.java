@@ -0,0 +1,82 @@
+package net.avdw.git.changelog;
+
+import lombok.SneakyThrows;
+import org.tinylog.Logger;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent repository lookups, such as the current branch and the latest tag, concurrently on a shared
+ * executor. Every lookup submitted here shares one deadline: waiting past it, or a lookup that fails, cancels all
+ * lookups still pending or running, so no git process is started for a result nobody will read.
+ */
+class RepositoryQuery implements AutoCloseable {
+    private final ExecutorService executorService;
+    private final long deadline;
+    private final Queue<Future<?>> running = new ConcurrentLinkedQueue<>();
+    private final Queue<CompletableFuture<?>> results = new ConcurrentLinkedQueue<>();
+
+    RepositoryQuery(final ExecutorService executorService, final Duration timeout) {
+        this.executorService = executorService;
+        this.deadline = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Starts the lookup. The returned future can be shared and awaited from any thread.
+     */
+    <T> CompletableFuture<T> submit(final Supplier<T> lookup) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        results.add(result);
+        running.add(executorService.submit(() -> {
+            try {
+                result.complete(lookup.get());
+            } catch (Throwable e) {
+                // lookups rethrow checked exceptions undeclared, so anything can arrive here
+                result.completeExceptionally(e);
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Waits for the lookup within what is left of the shared deadline and rethrows its failure as is.
+     */
+    @SneakyThrows
+    <T> T await(final CompletableFuture<T> result) {
+        try {
+            return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancel();
+            throw new IllegalStateException("Repository lookups did not finish in time", e);
+        } catch (ExecutionException e) {
+            cancel();
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Cancels every lookup that has not finished, interrupting those already running.
+     */
+    void cancel() {
+        results.forEach(result -> result.cancel(false));
+        running.forEach(future -> {
+            if (future.cancel(true)) {
+                Logger.debug("Cancelled a repository lookup");
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        cancel();
+    }
+}
@@ -0,0 +1,135 @@
+package net.avdw.git.changelog;
+
+import com.google.inject.Singleton;
+import net.avdw.git.changelog.repository.GitObject;
+import net.avdw.git.changelog.repository.ObjectId;
+import net.avdw.git.changelog.repository.Repository;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The repositories a daemon keeps open between requests, each with its commit graph and {@link ChangeCache}, so a
+ * request only reads what was added since the previous one instead of loading both again. What a request appended is
+ * written out when it is done, as it would be on close. Outside a daemon nothing is kept and every run opens its own.
+ * A repository no request asked for in {@link #IDLE_TIMEOUT} is closed.
+ */
+@Singleton
+class ResidentRepositories implements AutoCloseable {
+    static final Duration IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private final Map<Path, Resident> residents = new HashMap<>();
+    private boolean kept;
+
+    /**
+     * Keeps the repositories opened from now on until {@link #close()}.
+     */
+    synchronized void keep() {
+        kept = true;
+    }
+
+    synchronized boolean isKept() {
+        return kept;
+    }
+
+    synchronized int size() {
+        return residents.size();
+    }
+
+    /**
+     * The repository around the directory, opened on first use and refreshed on later ones, or nothing when no
+     * {@code .git} directory is found. {@link Resident#release() Release} it once the run is done.
+     */
+    synchronized Optional<Resident> acquire(final Path baseDirectory, final Function<ObjectId, Optional<GitObject>> missingObjectLoader,
+                                            final GitChangeClassifier gitChangeClassifier) {
+        long now = System.nanoTime();
+        residents.values().removeIf(resident -> {
+            boolean idle = resident.users == 0 && now - resident.lastUsed > IDLE_TIMEOUT.toNanos();
+            if (idle) {
+                Logger.debug("Closing {}, idle for {}", resident.repository.gitDirectory(), IDLE_TIMEOUT);
+                resident.close();
+            }
+            return idle;
+        });
+
+        Optional<Path> gitDirectory = Repository.findGitDirectory(baseDirectory);
+        if (gitDirectory.isEmpty()) {
+            return Optional.empty();
+        }
+        Resident resident = residents.get(gitDirectory.get());
+        if (resident == null) {
+            Optional<Repository> repository = Repository.open(baseDirectory, missingObjectLoader);
+            if (repository.isEmpty()) {
+                return Optional.empty();
+            }
+            repository.get().useCommitGraph();
+            resident = new Resident(repository.get(), ChangeCache.open(repository.get().gitDirectory(), gitChangeClassifier));
+            residents.put(gitDirectory.get(), resident);
+            Logger.debug("Keeping {} open between requests", gitDirectory.get());
+        } else {
+            resident.repository.refresh();
+        }
+        resident.users++;
+        return Optional.of(resident);
+    }
+
+    @Override
+    public synchronized void close() {
+        kept = false;
+        residents.values().forEach(Resident::close);
+        residents.clear();
+    }
+
+    /**
+     * A repository and its change cache, shared by the runs that acquired it.
+     */
+    final class Resident {
+        private final Repository repository;
+        private final ChangeCache changeCache;
+        private int users;
+        private long lastUsed;
+
+        private Resident(final Repository repository, final ChangeCache changeCache) {
+            this.repository = repository;
+            this.changeCache = changeCache;
+        }
+
+        Repository repository() {
+            return repository;
+        }
+
+        ChangeCache changeCache() {
+            return changeCache;
+        }
+
+        /**
+         * Writes out what the run appended and leaves the repository open for the next.
+         */
+        void release() {
+            try {
+                changeCache.flush();
+                repository.flush();
+            } catch (IOException e) {
+                Logger.debug("Cannot write out the caches of {}: {}", repository.gitDirectory(), e.getMessage());
+            }
+            synchronized (ResidentRepositories.this) {
+                users--;
+                lastUsed = System.nanoTime();
+            }
+        }
+
+        private void close() {
+            try {
+                changeCache.close();
+                repository.close();
+            } catch (IOException e) {
+                Logger.debug("Cannot close {}: {}", repository.gitDirectory(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.avdw.git.changelog;
+
+import lombok.SneakyThrows;
+import org.codehaus.plexus.util.FileUtils;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the scripts packed in the jar extracted under a directory named after the hash of their content, so a launch
+ * only reads the few script entries it needs and extracts nothing when an earlier launch of the same build already
+ * did. A new build with changed scripts hashes to a new directory; launches never write into a directory in use.
+ *
+ * <p>Extraction goes to a staging directory that is moved into place atomically, so a concurrent launch sees
+ * either no directory or a complete one.
+ */
+public class ScriptCache {
+    static final List<String> SCRIPTS = List.of(
+            "scripts/git-branch-ls.sh",
+            "scripts/git-current-branch.sh",
+            "scripts/git-first-commit.sh",
+            "scripts/git-latest-tag.sh",
+            "scripts/git-ls.sh",
+            "scripts/git-tag-ls.sh");
+    private final Path cacheDirectory;
+
+    public ScriptCache(final Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * @return the directory holding the current scripts, extracting them first when no earlier launch has
+     */
+    @SneakyThrows
+    public Path resolve() {
+        Map<String, byte[]> scripts = new LinkedHashMap<>();
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        for (String script : SCRIPTS) {
+            byte[] content = read(script);
+            digest.update(script.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(content);
+            scripts.put(script, content);
+        }
+        Path scriptDirectory = cacheDirectory.resolve(hex(digest.digest()));
+        if (Files.isDirectory(scriptDirectory)) {
+            Logger.debug("Using scripts in {}", scriptDirectory);
+            return scriptDirectory;
+        }
+
+        Files.createDirectories(cacheDirectory);
+        Path staging = Files.createTempDirectory(cacheDirectory, "extract-");
+        try {
+            for (Map.Entry<String, byte[]> script : scripts.entrySet()) {
+                Path file = staging.resolve(script.getKey());
+                Files.createDirectories(file.getParent());
+                Files.write(file, script.getValue());
+            }
+            Files.move(staging, scriptDirectory, StandardCopyOption.ATOMIC_MOVE);
+            Logger.debug("Extracted scripts to {}", scriptDirectory);
+        } catch (IOException e) {
+            if (!Files.isDirectory(scriptDirectory)) {
+                throw e;
+            }
+            Logger.debug("Scripts in {} were extracted by another launch", scriptDirectory);
+        } finally {
+            if (Files.exists(staging)) {
+                FileUtils.deleteDirectory(staging.toFile());
+            }
+        }
+        return scriptDirectory;
+    }
+
+    @SneakyThrows
+    private static byte[] read(final String script) {
+        try (InputStream inputStream = ScriptCache.class.getClassLoader().getResourceAsStream(script)) {
+            if (inputStream == null) {
+                throw new IllegalStateException(String.format("Script %s is not on the classpath", script));
+            }
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static String hex(final byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package net.avdw.git.changelog;
+
+import net.avdw.git.changelog.metrics.Metrics;
+import net.avdw.git.changelog.metrics.Stage;
+import net.avdw.git.changelog.process.ProcessRunner;
+import net.avdw.git.changelog.repository.GitObject;
+import net.avdw.git.changelog.repository.ObjectId;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Asks git for the history by running the bundled scripts.
+ */
+class ScriptCommitSource implements CommitSource {
+    private final Path gitBranchLsScript;
+    private final Path gitCurrentBranchScript;
+    private final Path gitFirstCommitScript;
+    private final Path gitLatestTagScript;
+    private final Path gitLogScript;
+    private final Path gitTagLsScript;
+    private final Metrics metrics;
+    private final ProcessRunner processRunner;
+    private final Path repository;
+
+    ScriptCommitSource(final Path repository, final ProcessRunner processRunner, final Metrics metrics, final Path gitBranchLsScript,
+                       final Path gitCurrentBranchScript, final Path gitFirstCommitScript, final Path gitLatestTagScript, final Path gitLogScript,
+                       final Path gitTagLsScript) {
+        this.repository = repository;
+        this.processRunner = processRunner;
+        this.metrics = metrics;
+        this.gitBranchLsScript = gitBranchLsScript;
+        this.gitCurrentBranchScript = gitCurrentBranchScript;
+        this.gitFirstCommitScript = gitFirstCommitScript;
+        this.gitLatestTagScript = gitLatestTagScript;
+        this.gitLogScript = gitLogScript;
+        this.gitTagLsScript = gitTagLsScript;
+    }
+
+    @Override
+    public List<String> branches() {
+        List<String> branches = new ArrayList<>();
+        processRunner.stream(gitBranchLsScript, repository, line -> {
+            if (!line.isBlank()) {
+                branches.add(line.trim());
+            }
+        });
+        Collections.sort(branches);
+        return branches;
+    }
+
+    /**
+     * Reads an object through {@code git cat-file}, for objects the native reader cannot find itself.
+     */
+    Optional<GitObject> catFile(final ObjectId objectId) {
+        return processRunner.catFile(repository, objectId.name());
+    }
+
+    @Override
+    public String currentBranch() {
+        return script(gitCurrentBranchScript);
+    }
+
+    @Override
+    public String firstCommit() {
+        return script(gitFirstCommitScript);
+    }
+
+    @Override
+    public String latestTag(final String revision) {
+        return script(gitLatestTagScript, revision);
+    }
+
+    @Override
+    public void log(final String to, final String from, final Consumer<GitChange> gitChangeConsumer) {
+        log(to, from, gitChangeConsumer, new String[0]);
+    }
+
+    /**
+     * Runs git once per module, with the module path as pathspec.
+     */
+    @Override
+    public void log(final String to, final String from, final List<String> modulePaths, final ObjIntConsumer<GitChange> moduleChangeConsumer) {
+        for (int module = 0; module < modulePaths.size(); module++) {
+            int index = module;
+            String modulePath = modulePaths.get(module);
+            log(to, from, gitChange -> moduleChangeConsumer.accept(gitChange, index), modulePath.isEmpty() ? "." : modulePath);
+        }
+    }
+
+    private void log(final String to, final String from, final Consumer<GitChange> gitChangeConsumer, final String... paths) {
+        String[] args = new String[paths.length + 2];
+        args[0] = String.format("-t=%s", to);
+        args[1] = String.format("-f=%s", from);
+        System.arraycopy(paths, 0, args, 2, paths.length);
+        try (GitChangeDecoder gitChangeDecoder = new GitChangeDecoder(gitChangeConsumer)) {
+            processRunner.pipe(gitLogScript, repository, metrics.timed(Stage.PARSE, gitChangeDecoder), args);
+        }
+    }
+
+    @Override
+    public List<GitTag> tags(final String revision) {
+        List<GitTag> tags = new ArrayList<>();
+        processRunner.stream(gitTagLsScript, repository, line -> {
+            String[] fields = line.trim().split(" ");
+            if (fields.length == 2) {
+                tags.add(new GitTag(fields[0], Long.parseLong(fields[1])));
+            }
+        }, revision);
+        tags.sort(Comparator.comparingLong((GitTag tag) -> tag.time).thenComparing(tag -> tag.name));
+        return tags;
+    }
+
+    private String script(final Path script, final String... args) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        processRunner.execute(script, repository, new PrintStream(baos, true, StandardCharsets.UTF_8), args);
+        return new String(baos.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+
+    @Override
+    public void refresh() {
+        // Every call asks git afresh.
+    }
+
+    @Override
+    public void close() {
+        // The shells belong to the process runner and are kept for the next run.
+    }
+}
@@ -0,0 +1,65 @@
+package net.avdw.git.changelog;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@code MAJOR.MINOR.PATCH} version read from a tag such as {@code v1.2.3} or {@code 1.2.3-rc.1+build.5}, see
+ * <a href="https://semver.org/spec/v2.0.0.html">Semantic Versioning</a>. Only what decides the next version is kept:
+ * build metadata is dropped and a pre-release only marks that its version was not released yet.
+ */
+final class SemanticVersion {
+    /**
+     * What an untagged history counts as released, so that its first release is {@code 0.0.1}, {@code 0.1.0} or
+     * {@code 1.0.0}.
+     */
+    static final SemanticVersion INITIAL = new SemanticVersion(0, 0, 0, false);
+    private static final Pattern PATTERN = Pattern.compile(
+            "v?(0|[1-9][0-9]{0,8})\\.(0|[1-9][0-9]{0,8})\\.(0|[1-9][0-9]{0,8})(-[0-9A-Za-z.-]+)?(\\+[0-9A-Za-z.-]+)?");
+    private final int major;
+    private final int minor;
+    private final int patch;
+    private final boolean preRelease;
+
+    private SemanticVersion(final int major, final int minor, final int patch, final boolean preRelease) {
+        this.major = major;
+        this.minor = minor;
+        this.patch = patch;
+        this.preRelease = preRelease;
+    }
+
+    /**
+     * @return the version of the tag, or nothing when the tag is not a semantic version
+     */
+    static Optional<SemanticVersion> parse(final String tag) {
+        Matcher matcher = PATTERN.matcher(tag);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(new SemanticVersion(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                Integer.parseInt(matcher.group(3)), matcher.group(4) != null));
+    }
+
+    /**
+     * The version the release after this one gets. A pre-release is followed by its own version when that is already
+     * as far a step, as {@code npm version} does, so {@code 2.0.0-rc.1} is followed by {@code 2.0.0} and not {@code 3.0.0}.
+     */
+    SemanticVersion next(final ReleaseType releaseType) {
+        switch (releaseType) {
+            case MAJOR:
+                return preRelease && minor == 0 && patch == 0 ? new SemanticVersion(major, 0, 0, false) : new SemanticVersion(major + 1, 0, 0, false);
+            case FEATURE:
+                return preRelease && patch == 0 ? new SemanticVersion(major, minor, 0, false) : new SemanticVersion(major, minor + 1, 0, false);
+            case MAINTENANCE:
+                return new SemanticVersion(major, minor, preRelease ? patch : patch + 1, false);
+            default:
+                return this;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return major + "." + minor + "." + patch;
+    }
+}
@@ -0,0 +1,143 @@
+package net.avdw.git.changelog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A made-up linear history for benchmarks and load tests, generated as it is read so that millions of commits cost
+ * no memory and need neither git nor bash. Commit n, counting from 0 for the oldest, has the id {@code n} in hex, is
+ * committed a minute after its parent and gets a subject with one of the usual prefixes. Every {@code tagInterval}th
+ * commit is tagged {@code v<n>.0.0}, and commit n touches module {@code n % modules}.
+ *
+ * <p>Revisions are tag names, commit ids, {@code master} and {@code HEAD}.
+ */
+public final class SyntheticCommitSource implements CommitSource {
+    private static final String[] PREFIXES = {"Add", "Update", "Fix", "fix:", "Merge branch", "Refactor", "Remove",
+            "Deprecate", "Secure", "Setup", "Maintain", "Change", "Enhance", "Bump", "WIP", "Revert"};
+    private static final String[] WORDS = {"parser", "changelog", "template", "repository", "release", "tag",
+            "branch", "module", "output", "index", "walker", "cache", "config", "build", "docs", "tests"};
+    private static final String[] AUTHORS = {"Jane Doe", "John Roe", "Ada Lovelace", "Alan Turing"};
+    private static final String BRANCH = "master";
+    private static final long EPOCH = 1_600_000_000L;
+    private final int commits;
+    private final int tagInterval;
+
+    public SyntheticCommitSource(final int commits, final int tagInterval) {
+        if (commits < 1 || tagInterval < 1) {
+            throw new IllegalArgumentException("A synthetic history needs at least one commit and a positive tag interval");
+        }
+        this.commits = commits;
+        this.tagInterval = tagInterval;
+    }
+
+    @Override
+    public List<String> branches() {
+        return List.of(BRANCH);
+    }
+
+    @Override
+    public String currentBranch() {
+        return BRANCH;
+    }
+
+    @Override
+    public String firstCommit() {
+        return id(0);
+    }
+
+    /**
+     * The change of commit n. Words are picked by a hash of n, so every read of a commit gives the same change.
+     */
+    GitChange gitChange(final int commit) {
+        long hash = mix(commit);
+        StringBuilder subject = new StringBuilder(PREFIXES[(int) (hash & 0xf)]);
+        int words = 2 + (int) ((hash >>> 4) % 6);
+        for (int word = 0; word < words; word++) {
+            subject.append(' ').append(WORDS[(int) ((hash >>> (8 + 4 * word)) & 0xf)]);
+        }
+        GitChange gitChange = new GitChange();
+        gitChange.id = id(commit);
+        gitChange.author = AUTHORS[(int) ((hash >>> 40) & 0x3)];
+        gitChange.time = EPOCH + commit * 60L;
+        gitChange.subject = subject.toString();
+        gitChange.body = "";
+        return gitChange;
+    }
+
+    @Override
+    public String latestTag(final String revision) {
+        int tagged = resolve(revision) + 1;
+        tagged -= tagged % tagInterval;
+        return tagged == 0 ? "" : tagName(tagged - 1);
+    }
+
+    @Override
+    public void log(final String to, final String from, final Consumer<GitChange> gitChangeConsumer) {
+        int oldest = resolve(to);
+        for (int commit = resolve(from); commit > oldest; commit--) {
+            gitChangeConsumer.accept(gitChange(commit));
+        }
+    }
+
+    @Override
+    public void log(final String to, final String from, final List<String> modulePaths, final ObjIntConsumer<GitChange> moduleChangeConsumer) {
+        int oldest = resolve(to);
+        for (int commit = resolve(from); commit > oldest && !modulePaths.isEmpty(); commit--) {
+            moduleChangeConsumer.accept(gitChange(commit), commit % modulePaths.size());
+        }
+    }
+
+    @Override
+    public List<GitTag> tags(final String revision) {
+        List<GitTag> tags = new ArrayList<>();
+        int newest = resolve(revision);
+        for (int commit = tagInterval - 1; commit <= newest; commit += tagInterval) {
+            tags.add(new GitTag(tagName(commit), EPOCH + commit * 60L));
+        }
+        return tags;
+    }
+
+    private int resolve(final String revision) {
+        if (revision.isEmpty() || "HEAD".equals(revision) || BRANCH.equals(revision)) {
+            return commits - 1;
+        } else if (revision.matches("v[0-9]+\\.0\\.0")) {
+            long commit = Long.parseLong(revision.substring(1, revision.indexOf('.'))) * tagInterval - 1;
+            if (commit >= 0 && commit < commits) {
+                return (int) commit;
+            }
+        } else if (revision.matches("[0-9a-f]{40}")) {
+            long commit = Long.parseLong(revision.substring(24), 16);
+            if (revision.startsWith("000000000000000000000000") && commit < commits) {
+                return (int) commit;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown revision: %s", revision));
+    }
+
+    private String tagName(final int commit) {
+        return String.format("v%d.0.0", (commit + 1) / tagInterval);
+    }
+
+    private static String id(final int commit) {
+        return String.format("%040x", commit);
+    }
+
+    private static long mix(final long value) {
+        long z = value * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public void refresh() {
+        // The history never grows.
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held between reads.
+    }
+}
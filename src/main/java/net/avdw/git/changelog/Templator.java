@@ -2,13 +2,19 @@ package net.avdw.git.changelog;
 
 import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheFactory;
 import com.google.inject.Inject;
 
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Templator {
+    private final Map<String, Mustache> compiledTemplates = new ConcurrentHashMap<>();
+    private final MustacheFactory mustacheFactory = new DefaultMustacheFactory();
     private final ResourceBundle resourceBundle;
 
     @Inject
@@ -16,13 +22,25 @@ public class Templator {
         this.resourceBundle = resourceBundle;
     }
 
+    private Mustache compiled(final String templateKey) {
+        return compiledTemplates.computeIfAbsent(templateKey,
+                key -> mustacheFactory.compile(new StringReader(resourceBundle.getString(key)), key));
+    }
+
     public String populate(final String templateKey, final Object data) {
-        Mustache mustache = new DefaultMustacheFactory().compile(new StringReader(resourceBundle.getString(templateKey)), templateKey);
         StringWriter stringWriter = new StringWriter();
-        return mustache.execute(stringWriter, data).toString();
+        render(templateKey, data, stringWriter);
+        return stringWriter.toString();
     }
 
     public String populate(final String templateKey) {
         return resourceBundle.getString(templateKey);
     }
+
+    /**
+     * Renders the template straight into the writer; each template is compiled once and shared between threads.
+     */
+    public void render(final String templateKey, final Object data, final Writer writer) {
+        compiled(templateKey).execute(writer, data);
+    }
 }
@@ -0,0 +1,82 @@
+package net.avdw.git.changelog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Works out the next semantic version of many branches at once, each from the tag nearest to it. Branches mostly share
+ * their history, so all of their ranges are read in one go, every commit once with the branches it belongs to. A commit
+ * classified here is handed back to the source to remember, so a rerun finds it classified.
+ */
+class VersionCalculator {
+    private final CommitSource commitSource;
+    private final GitChangeClassifier gitChangeClassifier;
+
+    VersionCalculator(final CommitSource commitSource, final GitChangeClassifier gitChangeClassifier) {
+        this.commitSource = commitSource;
+        this.gitChangeClassifier = gitChangeClassifier;
+    }
+
+    /**
+     * The next version of every branch, in the order of the branches. Without a tag the whole history is unreleased
+     * and counts from {@link SemanticVersion#INITIAL}; without a semantic version tag there is no next version.
+     */
+    List<BranchVersion> calculate(final List<String> branches) {
+        List<String> previousTags = branches.parallelStream().map(commitSource::latestTag).collect(Collectors.toList());
+        String firstCommit = previousTags.contains("") ? commitSource.firstCommit() : null;
+        List<String> tos = previousTags.stream().map(tag -> tag.isEmpty() ? firstCommit : tag).collect(Collectors.toList());
+        ReleaseType[] releaseTypes = new ReleaseType[branches.size()];
+        Arrays.fill(releaseTypes, ReleaseType.NONE);
+        int[] commits = new int[branches.size()];
+        commitSource.logRanges(tos, branches, (gitChange, ranges) -> {
+            ReleaseType releaseType = releaseType(gitChange);
+            ranges.stream().forEach(range -> {
+                commits[range]++;
+                releaseTypes[range] = releaseTypes[range].max(releaseType);
+            });
+        });
+
+        List<BranchVersion> branchVersions = new ArrayList<>(branches.size());
+        for (int branch = 0; branch < branches.size(); branch++) {
+            String previousTag = previousTags.get(branch);
+            ReleaseType releaseType = releaseTypes[branch];
+            Optional<SemanticVersion> previous = previousTag.isEmpty() ? Optional.of(SemanticVersion.INITIAL) : SemanticVersion.parse(previousTag);
+            branchVersions.add(new BranchVersion(branches.get(branch), previousTag, releaseType, commits[branch],
+                    previous.map(version -> version.next(releaseType).toString()).orElse(null)));
+        }
+        return branchVersions;
+    }
+
+    private ReleaseType releaseType(final GitChange gitChange) {
+        if (gitChange.changeType == null) {
+            gitChange.changeType = gitChangeClassifier.classify(gitChange);
+            commitSource.remember(gitChange);
+        }
+        return ReleaseType.of(gitChange.changeType, gitChange.breaking);
+    }
+
+    static final class BranchVersion {
+        final String branch;
+        final int commits;
+        /**
+         * The next version, or {@code null} when the previous tag is not a semantic version.
+         */
+        final String nextVersion;
+        /**
+         * The tag nearest to the branch, or an empty string when none is reachable.
+         */
+        final String previousTag;
+        final ReleaseType releaseType;
+
+        BranchVersion(final String branch, final String previousTag, final ReleaseType releaseType, final int commits, final String nextVersion) {
+            this.branch = branch;
+            this.previousTag = previousTag;
+            this.releaseType = releaseType;
+            this.commits = commits;
+            this.nextVersion = nextVersion;
+        }
+    }
+}
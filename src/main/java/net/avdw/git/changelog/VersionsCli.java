@@ -0,0 +1,56 @@
+package net.avdw.git.changelog;
+
+import com.google.inject.Inject;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Command(name = "versions", description = "Work out the next semantic version of many branches at once, each from its latest tag", mixinStandardHelpOptions = true)
+public class VersionsCli implements Runnable {
+    private static final String NONE = "-";
+    @Parameters(paramLabel = "<branch>", description = "Branches to evaluate (default: all local branches)")
+    private List<String> branches = new ArrayList<>();
+    @Option(names = "--cache", negatable = true, defaultValue = "true", fallbackValue = "true",
+            description = "Remember classified commits and commit reachability under .git so reruns only read new commits (default: ${DEFAULT-VALUE})")
+    private boolean cache;
+    @Inject
+    private CommitSource.Factory commitSourceFactory;
+    @Inject
+    private GitChangeClassifier gitChangeClassifier;
+    @Option(names = "--native", negatable = true, defaultValue = "true", fallbackValue = "true",
+            description = "Read history straight from the .git directory, falling back to git when it cannot (default: ${DEFAULT-VALUE})")
+    private boolean nativeReader;
+    @Option(names = {"-r", "--repository"})
+    private Path repository;
+    @Spec
+    private CommandSpec spec;
+
+    /**
+     * Entry point for picocli.
+     */
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        List<VersionCalculator.BranchVersion> branchVersions;
+        try (CommitSource commitSource = commitSourceFactory.open(repository, nativeReader, cache)) {
+            branchVersions = new VersionCalculator(commitSource, gitChangeClassifier).calculate(branches.isEmpty() ? commitSource.branches() : branches);
+        }
+
+        PrintWriter out = spec.commandLine().getOut();
+        out.println(String.format("%-40s %-20s %-12s %-12s %8s", "Branch", "Previous", "Next", "Release", "Commits"));
+        branchVersions.forEach(branchVersion -> out.println(String.format("%-40s %-20s %-12s %-12s %8d", branchVersion.branch,
+                branchVersion.previousTag.isEmpty() ? NONE : branchVersion.previousTag,
+                branchVersion.nextVersion == null ? NONE : branchVersion.nextVersion,
+                branchVersion.releaseType.title(), branchVersion.commits)));
+        out.println(String.format("%d branches, %d ms", branchVersions.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        out.flush();
+    }
+}
@@ -0,0 +1,248 @@
+package net.avdw.git.changelog.metrics;
+
+import com.google.inject.Singleton;
+import jdk.jfr.EventType;
+import net.avdw.git.changelog.ChangeType;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Wall time, allocation and call count per {@link Stage}, and commits per {@link ChangeType}, of each {@link Run}.
+ * A run is bound to the thread that started it and to the threads it hands work to, so two runs in the same JVM, e.g.
+ * daemon requests or batch entries, never see each other's totals. A stage timed outside a run is not recorded.
+ * Allocation and the per-commit classification cost a call into the VM each, so they are only tracked in a run that
+ * asked for them; other runs do not pay for them.
+ *
+ * <p>Every stage is also emitted as a {@link StageEvent} while a flight recording has it enabled.
+ */
+@Singleton
+public class Metrics {
+    private static final EventType STAGE_EVENT_TYPE = EventType.getEventType(StageEvent.class);
+    private final ThreadLocal<Timer> current = new ThreadLocal<>();
+    private final ThreadLocal<Run> currentRun = new ThreadLocal<>();
+    private volatile com.sun.management.ThreadMXBean allocationBean;
+
+    /**
+     * Starts a run on the calling thread; close it on the same thread.
+     *
+     * @param detailed whether to track allocation and the per-commit classification
+     */
+    public Run startRun(final boolean detailed) {
+        if (detailed && allocationBean == null) {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+                ((com.sun.management.ThreadMXBean) threadMXBean).setThreadAllocatedMemoryEnabled(true);
+                allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            }
+        }
+        Run run = new Run(detailed, currentRun.get());
+        currentRun.set(run);
+        return run;
+    }
+
+    public boolean isDetailed() {
+        Run run = currentRun.get();
+        return run != null && run.detailed || STAGE_EVENT_TYPE.isEnabled();
+    }
+
+    /**
+     * Adds the commits to the run of the calling thread.
+     */
+    public void count(final ChangeType changeType, final int commitCount) {
+        Run run = currentRun.get();
+        if (run != null) {
+            run.commits.get(changeType).add(commitCount);
+        }
+    }
+
+    /**
+     * Starts timing the stage on the calling thread; close the timer on the same thread.
+     */
+    public Timer start(final Stage stage) {
+        return start(stage, "");
+    }
+
+    public Timer start(final Stage stage, final String detail) {
+        Timer timer = new Timer(stage, detail, current.get(), currentRun.get());
+        current.set(timer);
+        return timer;
+    }
+
+    /**
+     * Times every write to the stream as the stage, e.g. a decoder fed by a script.
+     */
+    public OutputStream timed(final Stage stage, final OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(final byte[] buffer, final int offset, final int length) throws IOException {
+                try (Timer timer = start(stage)) {
+                    out.write(buffer, offset, length);
+                }
+            }
+        };
+    }
+
+    private long allocatedBytes(final boolean tracked) {
+        com.sun.management.ThreadMXBean bean = allocationBean;
+        return bean == null || !tracked ? 0 : bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static final class StageTotal {
+        private final LongAdder allocated = new LongAdder();
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+    /**
+     * The totals of one run, e.g. one command. Hand work to other threads through {@link #bind(Supplier)} or
+     * {@link #forkJoinPool()} so that it is counted in the run.
+     */
+    public final class Run implements AutoCloseable {
+        private final Map<Stage, StageTotal> stageTotals = new EnumMap<>(Stage.class);
+        private final Map<ChangeType, LongAdder> commits = new EnumMap<>(ChangeType.class);
+        private final boolean detailed;
+        private final Run previous;
+
+        private Run(final boolean detailed, final Run previous) {
+            this.detailed = detailed;
+            this.previous = previous;
+            for (Stage stage : Stage.values()) {
+                stageTotals.put(stage, new StageTotal());
+            }
+            for (ChangeType changeType : ChangeType.values()) {
+                commits.put(changeType, new LongAdder());
+            }
+        }
+
+        /**
+         * The lookup, run in this run on whichever thread calls it.
+         */
+        public <T> Supplier<T> bind(final Supplier<T> lookup) {
+            return () -> {
+                Run outer = currentRun.get();
+                currentRun.set(this);
+                try {
+                    return lookup.get();
+                } finally {
+                    currentRun.set(outer);
+                }
+            };
+        }
+
+        /**
+         * A pool whose workers run in this run. Shut it down when done.
+         */
+        public ForkJoinPool forkJoinPool() {
+            return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> new ForkJoinWorkerThread(pool) {
+                @Override
+                protected void onStart() {
+                    super.onStart();
+                    currentRun.set(Run.this);
+                }
+            }, null, false);
+        }
+
+        /**
+         * Writes the totals as a JSON object with {@code stages} and {@code commits}.
+         */
+        public void writeJson(final PrintWriter out) {
+            out.println("{");
+            out.println("  \"stages\": {");
+            int index = 0;
+            for (Map.Entry<Stage, StageTotal> entry : stageTotals.entrySet()) {
+                StageTotal total = entry.getValue();
+                out.print(String.format(Locale.ROOT, "    \"%s\": {\"count\": %d, \"wallMillis\": %.3f, \"allocatedBytes\": %d}",
+                        entry.getKey().name().toLowerCase(Locale.ROOT), total.count.sum(), total.nanos.sum() / 1e6, total.allocated.sum()));
+                out.println(++index < stageTotals.size() ? "," : "");
+            }
+            out.println("  },");
+            out.println("  \"commits\": {");
+            index = 0;
+            for (Map.Entry<ChangeType, LongAdder> entry : commits.entrySet()) {
+                out.print(String.format(Locale.ROOT, "    \"%s\": %d", entry.getKey().name().toLowerCase(Locale.ROOT), entry.getValue().sum()));
+                out.println(++index < commits.size() ? "," : "");
+            }
+            out.println("  }");
+            out.println("}");
+            out.flush();
+        }
+
+        /**
+         * Ends the run on the calling thread; its totals can still be written.
+         */
+        @Override
+        public void close() {
+            currentRun.set(previous);
+        }
+    }
+
+    /**
+     * One timed stage. On close, its own time and allocation, without those of nested timers, is added to the
+     * totals of the run it started in and handed to the enclosing timer.
+     */
+    public final class Timer implements AutoCloseable {
+        private final Stage stage;
+        private final String detail;
+        private final Timer parent;
+        private final Run run;
+        private final long startNanos;
+        private final long startAllocated;
+        private final boolean allocationTracked;
+        private final StageEvent stageEvent;
+        private long nestedNanos;
+        private long nestedAllocated;
+
+        private Timer(final Stage stage, final String detail, final Timer parent, final Run run) {
+            this.stage = stage;
+            this.detail = detail;
+            this.parent = parent;
+            this.run = run;
+            this.stageEvent = STAGE_EVENT_TYPE.isEnabled() ? new StageEvent() : null;
+            if (stageEvent != null) {
+                stageEvent.begin();
+            }
+            this.allocationTracked = run != null && run.detailed;
+            this.startAllocated = allocatedBytes(allocationTracked);
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = allocatedBytes(allocationTracked) - startAllocated;
+            if (run != null) {
+                StageTotal total = run.stageTotals.get(stage);
+                total.count.increment();
+                total.nanos.add(nanos - nestedNanos);
+                total.allocated.add(allocated - nestedAllocated);
+            }
+            if (parent != null) {
+                parent.nestedNanos += nanos;
+                parent.nestedAllocated += allocated;
+            }
+            current.set(parent);
+            if (stageEvent != null) {
+                stageEvent.end();
+                if (stageEvent.shouldCommit()) {
+                    stageEvent.stage = stage.name().toLowerCase(Locale.ROOT);
+                    stageEvent.detail = detail;
+                    stageEvent.allocated = allocated - nestedAllocated;
+                    stageEvent.commit();
+                }
+            }
+        }
+    }
+}
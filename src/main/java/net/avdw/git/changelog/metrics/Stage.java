@@ -0,0 +1,28 @@
+package net.avdw.git.changelog.metrics;
+
+/**
+ * The parts of a run that are timed. Stages nest; each records only its own time and allocation, excluding the
+ * stages nested in it, so the stages of a run add up to the run.
+ */
+public enum Stage {
+    /**
+     * Extracting the scripts from the jar.
+     */
+    EXTRACT,
+    /**
+     * Running a script, including the shell round trip and reading its output.
+     */
+    PROCESS,
+    /**
+     * Walking the commits of a range, natively or by decoding script output.
+     */
+    PARSE,
+    /**
+     * Classifying a single commit; only timed once metrics are enabled, as it runs per commit.
+     */
+    CLASSIFY,
+    /**
+     * Rendering the templates to the output.
+     */
+    RENDER
+}
@@ -0,0 +1,29 @@
+package net.avdw.git.changelog.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a timed {@link Stage}. Only stages of at least a millisecond are recorded unless the
+ * recording lowers the threshold, which keeps the per-commit classification out of a default recording.
+ */
+@Name("net.avdw.git.changelog.Stage")
+@Label("Changelog Stage")
+@Category("git-changelog")
+@Description("A timed stage of a changelog run")
+@StackTrace(false)
+@Threshold("1 ms")
+class StageEvent extends jdk.jfr.Event {
+    @Label("Stage")
+    String stage;
+    @Label("Detail")
+    String detail;
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,97 @@
+package net.avdw.git.changelog.output;
+
+import org.tinylog.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.SecureRandom;
+
+/**
+ * The one writer a changelog is rendered into, buffered so sections and lines reach the underlying stream in large
+ * blocks instead of one flush per line. Output is streamed as it is rendered and never collected in memory.
+ *
+ * <p>A file is written to a temporary file next to it and only moved over the file on {@link #commit()}, so a failed
+ * or interrupted run leaves the previous changelog untouched and readers never see a half-written one. The temporary
+ * file is created with the default permissions of a new file and takes those of the file it replaces, so the move
+ * leaves the changelog as readable as it was.
+ */
+public final class ChangelogOutput implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private final PrintWriter writer;
+    private final Path target;
+    private final Path staging;
+    private boolean committed;
+
+    private ChangelogOutput(final Writer writer, final Path target, final Path staging) {
+        this.writer = new PrintWriter(new BufferedWriter(writer, BUFFER_SIZE), false);
+        this.target = target;
+        this.staging = staging;
+    }
+
+    /**
+     * Buffers in front of a stream that stays open after {@link #close()}, e.g. standard output.
+     */
+    public static ChangelogOutput toWriter(final Writer writer) {
+        return new ChangelogOutput(writer, null, null);
+    }
+
+    /**
+     * Writes to a temporary file that replaces the file on {@link #commit()}.
+     */
+    public static ChangelogOutput toFile(final Path file, final Charset charset) throws IOException {
+        Path target = file.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path staging = target.resolveSibling("." + target.getFileName() + Long.toUnsignedString(RANDOM.nextLong()) + ".tmp");
+        return new ChangelogOutput(new OutputStreamWriter(Files.newOutputStream(staging, StandardOpenOption.CREATE_NEW), charset), target, staging);
+    }
+
+    public PrintWriter writer() {
+        return writer;
+    }
+
+    /**
+     * Flushes everything written and, for a file, atomically moves it into place.
+     *
+     * @throws IOException when any write failed, in which case a file is left untouched
+     */
+    public void commit() throws IOException {
+        writer.flush();
+        if (writer.checkError()) {
+            throw new IOException(String.format("Could not write the changelog%s", target == null ? "" : " to " + target));
+        }
+        if (target != null) {
+            writer.close();
+            if (Files.exists(target) && Files.getFileStore(staging).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(staging, Files.getPosixFilePermissions(target));
+            }
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Logger.debug("Changelog written to {}", target);
+        }
+        committed = true;
+    }
+
+    /**
+     * Flushes a stream, or discards an uncommitted file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (target == null) {
+            writer.flush();
+        } else {
+            writer.close();
+            if (!committed) {
+                Files.deleteIfExists(staging);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package net.avdw.git.changelog.process;
+
+import net.avdw.git.changelog.repository.GitObject;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A {@code git cat-file --batch} kept alive for one repository, answering one object per request.
+ */
+class CatFileProcess implements PooledProcess {
+    private final Process process;
+    private final OutputStream requests;
+    private final InputStream responses;
+
+    CatFileProcess(final Path baseDir, final ExecutorService streamRouter) throws IOException {
+        process = new ProcessBuilder("git", "cat-file", "--batch")
+                .directory(baseDir.toFile())
+                .start();
+        streamRouter.execute(new StreamRouter(process.getErrorStream()));
+        requests = process.getOutputStream();
+        responses = new BufferedInputStream(process.getInputStream());
+    }
+
+    /**
+     * Reads the object, or nothing when the repository does not have it.
+     */
+    Optional<GitObject> read(final String objectName) throws IOException {
+        if (objectName.indexOf('\n') >= 0) {
+            return Optional.empty();
+        }
+        requests.write((objectName + "\n").getBytes(StandardCharsets.UTF_8));
+        requests.flush();
+
+        String[] header = readLine().split(" ");
+        if (header.length != 3 || !header[2].chars().allMatch(Character::isDigit)) {
+            return Optional.empty();
+        }
+        int size = Integer.parseInt(header[2]);
+        byte[] data = responses.readNBytes(size);
+        if (data.length != size || responses.read() != '\n') {
+            throw new IOException(String.format("Truncated cat-file response for %s", objectName));
+        }
+        return Optional.of(new GitObject(GitObject.typeOf(header[1]), data));
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next;
+        while ((next = responses.read()) != '\n') {
+            if (next < 0) {
+                throw new IOException("cat-file exited while reading an object");
+            }
+            line.write(next);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+    }
+}
@@ -0,0 +1,52 @@
+package net.avdw.git.changelog.process;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Splits a byte stream into UTF-8 lines, like {@link java.io.BufferedReader#readLine()}: the line terminator is
+ * dropped and a last line without one is handed over on close.
+ */
+class LineSplitter extends OutputStream {
+    private final Consumer<String> lineConsumer;
+    private byte[] line = new byte[128];
+    private int lineLength;
+
+    LineSplitter(final Consumer<String> lineConsumer) {
+        this.lineConsumer = lineConsumer;
+    }
+
+    @Override
+    public void write(final int b) {
+        if (b == '\n') {
+            endLine();
+        } else {
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[lineLength++] = (byte) b;
+        }
+    }
+
+    @Override
+    public void write(final byte[] buffer, final int offset, final int length) {
+        for (int i = offset; i < offset + length; i++) {
+            write(buffer[i]);
+        }
+    }
+
+    private void endLine() {
+        int end = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+        lineLength = 0;
+        lineConsumer.accept(new String(line, 0, end, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        if (lineLength > 0) {
+            endLine();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package net.avdw.git.changelog.process;
+
+/**
+ * A long-lived process that serves one request at a time and is handed back to its {@link ProcessPool} in between.
+ */
+interface PooledProcess extends AutoCloseable {
+    boolean isAlive();
+
+    @Override
+    void close();
+}
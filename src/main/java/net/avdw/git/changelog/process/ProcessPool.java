@@ -0,0 +1,86 @@
+package net.avdw.git.changelog.process;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * The idle processes of each directory, the most recently handed back first. Whenever a process is handed back, the
+ * ones idle for longer than the timeout are closed and a directory without idle processes is forgotten, so a
+ * long-lived JVM that served many repositories only keeps the processes it still uses.
+ */
+final class ProcessPool<P extends PooledProcess> implements AutoCloseable {
+    private final Map<Path, Deque<Idle<P>>> idleProcesses = new ConcurrentHashMap<>();
+    private final long idleNanos;
+
+    ProcessPool(final Duration idleTimeout) {
+        this.idleNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * An idle process of the directory that is still alive, or {@code null} when there is none.
+     */
+    P borrow(final Path directory) {
+        Deque<Idle<P>> idle = idleProcesses.get(directory);
+        Idle<P> process = idle == null ? null : idle.poll();
+        while (process != null && !process.process.isAlive()) {
+            process.process.close();
+            process = idle.poll();
+        }
+        return process == null ? null : process.process;
+    }
+
+    void giveBack(final Path directory, final P process) {
+        long now = System.nanoTime();
+        idleProcesses.compute(directory, (key, idle) -> {
+            Deque<Idle<P>> processes = idle == null ? new ConcurrentLinkedDeque<>() : idle;
+            processes.push(new Idle<>(process, now));
+            return processes;
+        });
+        evict(now - idleNanos);
+    }
+
+    int size() {
+        return idleProcesses.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    private void evict(final long idleSince) {
+        List<P> evicted = new ArrayList<>();
+        for (Path directory : idleProcesses.keySet()) {
+            idleProcesses.computeIfPresent(directory, (key, idle) -> {
+                Idle<P> oldest = idle.peekLast();
+                while (oldest != null && oldest.since - idleSince <= 0) {
+                    if (idle.removeLastOccurrence(oldest)) {
+                        evicted.add(oldest.process);
+                    }
+                    oldest = idle.peekLast();
+                }
+                return idle.isEmpty() ? null : idle;
+            });
+        }
+        evicted.forEach(PooledProcess::close);
+    }
+
+    /**
+     * Closes every idle process. The pool stays usable.
+     */
+    @Override
+    public void close() {
+        evict(System.nanoTime() + 1);
+    }
+
+    private static final class Idle<P> {
+        private final P process;
+        private final long since;
+
+        Idle(final P process, final long since) {
+            this.process = process;
+            this.since = since;
+        }
+    }
+}
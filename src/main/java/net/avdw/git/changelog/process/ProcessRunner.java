@@ -1,59 +1,142 @@
 package net.avdw.git.changelog.process;
 
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import lombok.SneakyThrows;
+import net.avdw.git.changelog.metrics.Metrics;
+import net.avdw.git.changelog.metrics.Stage;
+import net.avdw.git.changelog.repository.GitObject;
 import org.tinylog.Logger;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.Scanner;
-
-public class ProcessRunner {
-    private static final int BASH_PROCESS_ARGS = 3;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Runs scripts and reads objects through long-lived processes, pooled per directory. A request borrows an idle
+ * process or starts one, and hands it back afterwards, so the pool grows to the number of concurrent requests.
+ * Processes idle for longer than {@link #IDLE_TIMEOUT} are closed, and the others end with the JVM: they exit when
+ * their standard input closes.
+ */
+@Singleton
+public class ProcessRunner implements AutoCloseable {
+    static final Duration IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final AtomicInteger STREAM_ROUTER_COUNT = new AtomicInteger();
+    private static final ExecutorService STREAM_ROUTER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "stream-router-" + STREAM_ROUTER_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
     private final Path bashExecutable;
+    private final ProcessPool<CatFileProcess> idleCatFiles;
+    private final ProcessPool<ShellProcess> idleShells;
+
+    private final Metrics metrics;
 
     @Inject
-    ProcessRunner(@Bash final Path bashPath) {
+    ProcessRunner(@Bash final Path bashPath, final Metrics metrics) {
+        this(bashPath, metrics, IDLE_TIMEOUT);
+    }
+
+    ProcessRunner(final Path bashPath, final Metrics metrics, final Duration idleTimeout) {
         this.bashExecutable = bashPath;
+        this.metrics = metrics;
+        this.idleCatFiles = new ProcessPool<>(idleTimeout);
+        this.idleShells = new ProcessPool<>(idleTimeout);
     }
 
+    private static Path directory(final Path baseDir) {
+        return ((baseDir == null) ? Paths.get("") : baseDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Reads an object through the {@code git cat-file --batch} of the repository.
+     *
+     * @return the object, or nothing when the repository does not have it
+     */
     @SneakyThrows
+    public Optional<GitObject> catFile(final Path baseDir, final String objectName) {
+        Path directory = directory(baseDir);
+        CatFileProcess catFileProcess = idleCatFiles.borrow(directory);
+        if (catFileProcess == null) {
+            Logger.debug("Starting cat-file in {}", directory);
+            catFileProcess = new CatFileProcess(directory, STREAM_ROUTER);
+        }
+        try {
+            Optional<GitObject> gitObject = catFileProcess.read(objectName);
+            idleCatFiles.giveBack(directory, catFileProcess);
+            return gitObject;
+        } catch (IOException | RuntimeException e) {
+            catFileProcess.close();
+            throw e;
+        }
+    }
+
     public void execute(final Path script, final Path baseDir, final PrintStream out, final String... scriptArgs) {
-        Path baseDirCopy = (baseDir == null) ? Paths.get("").toAbsolutePath() : baseDir;
-        Logger.debug("Executing script: {} {}", script.getFileName(), Arrays.toString(scriptArgs));
-        Logger.debug("Base directory: {}", baseDirCopy);
-        if (script.toString().endsWith(".sh")) {
-            String[] processArgs = new String[BASH_PROCESS_ARGS + scriptArgs.length];
-            processArgs[0] = bashExecutable.toString();
-            processArgs[1] = "--login";
-            processArgs[2] = script.toString();
-            System.arraycopy(scriptArgs, 0, processArgs, BASH_PROCESS_ARGS, scriptArgs.length);
-            Process process = new ProcessBuilder(processArgs)
-                    .directory(baseDirCopy.toFile())
-                    .start();
-
-            routeStream(process.getInputStream(), out);
-            routeStream(process.getErrorStream(), null);
-            process.waitFor();
-        } else {
+        stream(script, baseDir, out == null ? line -> Logger.debug("Script: {}", line) : out::println, scriptArgs);
+    }
+
+    /**
+     * Runs the script and writes its standard output to the stream as soon as it is read, untouched.
+     * Output is pulled on the calling thread, so a slow stream back-pressures the script instead of buffering its output.
+     */
+    @SneakyThrows
+    public void pipe(final Path script, final Path baseDir, final OutputStream out, final String... scriptArgs) {
+        if (!script.toString().endsWith(".sh")) {
             throw new UnsupportedOperationException(String.format("Unsupported script type: %s", script));
         }
-    }
+        Path directory = directory(baseDir);
+        Logger.debug("Executing script: {} {}", script.getFileName(), Arrays.toString(scriptArgs));
+        Logger.debug("Base directory: {}", directory);
 
-    private static void routeStream(final InputStream src, final PrintStream dest) {
-        new Thread(() -> {
-            Scanner scanner = new Scanner(src);
-            while(scanner.hasNextLine()) {
-                if (dest == null) {
-                    Logger.debug("Script: {}", scanner.nextLine());
-                } else {
-                    dest.println(scanner.nextLine());
-                }
+        ShellProcess shellProcess = idleShells.borrow(directory);
+        if (shellProcess == null) {
+            Logger.debug("Starting shell in {}", directory);
+            shellProcess = new ShellProcess(bashExecutable, directory, STREAM_ROUTER);
+        }
+        try (Metrics.Timer timer = metrics.start(Stage.PROCESS, script.getFileName().toString())) {
+            int exitStatus = shellProcess.run(script, scriptArgs, out);
+            idleShells.giveBack(directory, shellProcess);
+            if (exitStatus != 0) {
+                Logger.debug("Script {} exited with {}", script.getFileName(), exitStatus);
             }
-        }).start();
+        } catch (IOException | RuntimeException e) {
+            shellProcess.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the script and hands each line of its standard output to the consumer as soon as it is read.
+     */
+    public void stream(final Path script, final Path baseDir, final Consumer<String> lineConsumer, final String... scriptArgs) {
+        try (LineSplitter lineSplitter = new LineSplitter(lineConsumer)) {
+            pipe(script, baseDir, lineSplitter, scriptArgs);
+        }
+    }
+
+    /**
+     * The number of processes waiting for a request.
+     */
+    int idleCount() {
+        return idleCatFiles.size() + idleShells.size();
+    }
+
+    /**
+     * Closes every idle process, e.g. when a daemon stops. Processes are started again when asked for.
+     */
+    @Override
+    public void close() {
+        idleCatFiles.close();
+        idleShells.close();
     }
 }
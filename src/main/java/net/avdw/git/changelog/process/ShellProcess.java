@@ -0,0 +1,117 @@
+package net.avdw.git.changelog.process;
+
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A login shell kept alive for one directory. Each script runs sourced in a subshell, so it pays for a fork instead
+ * of a new login shell and cannot change the state of the next request. The end of a response is marked by a
+ * token that is unique to the shell, followed by the exit status of the script. The token starts with a byte that
+ * occurs nowhere else in it, so a partial match can never hide the start of the real one.
+ */
+class ShellProcess implements PooledProcess {
+    private static final int BUFFER_SIZE = 8192;
+    private final Process process;
+    private final Writer commands;
+    private final InputStream responses;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final String endToken = UUID.randomUUID().toString();
+    private final byte[] endMarker = ("\u0001" + endToken + " ").getBytes(StandardCharsets.US_ASCII);
+
+    ShellProcess(final Path bashExecutable, final Path baseDir, final ExecutorService streamRouter) throws IOException {
+        process = new ProcessBuilder(bashExecutable.toString(), "--login", "-s")
+                .directory(baseDir.toFile())
+                .start();
+        streamRouter.execute(new StreamRouter(process.getErrorStream()));
+        commands = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+        responses = process.getInputStream();
+        try (LineSplitter profileOutput = new LineSplitter(line -> Logger.debug("Shell: {}", line))) {
+            sync(profileOutput);
+        }
+    }
+
+    private static String quote(final String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * Runs the script and writes its standard output to the stream as soon as it is read.
+     *
+     * @return the exit status of the script
+     */
+    int run(final Path script, final String[] scriptArgs, final OutputStream out) throws IOException {
+        StringBuilder command = new StringBuilder("( . ").append(quote(script.toString().replace('\\', '/')));
+        for (String scriptArg : scriptArgs) {
+            command.append(' ').append(quote(scriptArg));
+        }
+        command.append(" ) < /dev/null");
+        commands.write(command.append('\n').toString());
+        return sync(out);
+    }
+
+    private int sync(final OutputStream out) throws IOException {
+        commands.write(String.format("printf '\\001%%s %%d\\n' %s $?%n", endToken));
+        commands.flush();
+        int matched = 0;
+        int read;
+        while ((read = responses.read(buffer)) >= 0) {
+            int spanStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == endMarker[matched]) {
+                    if (matched == 0) {
+                        out.write(buffer, spanStart, i - spanStart);
+                    }
+                    matched++;
+                    spanStart = i + 1;
+                    if (matched == endMarker.length) {
+                        return exitStatus(i + 1, read);
+                    }
+                } else if (matched > 0) {
+                    out.write(endMarker, 0, matched);
+                    matched = buffer[i] == endMarker[0] ? 1 : 0;
+                    spanStart = matched == 0 ? i : i + 1;
+                }
+            }
+            out.write(buffer, spanStart, read - spanStart);
+        }
+        throw new IOException("Shell exited while running a script");
+    }
+
+    private int exitStatus(final int from, final int read) throws IOException {
+        int exitStatus = 0;
+        int position = from;
+        int end = read;
+        while (true) {
+            for (; position < end; position++) {
+                if (buffer[position] == '\n') {
+                    return exitStatus;
+                }
+                exitStatus = exitStatus * 10 + (buffer[position] - '0');
+            }
+            end = responses.read(buffer);
+            if (end < 0) {
+                throw new IOException("Shell exited while reporting an exit status");
+            }
+            position = 0;
+        }
+    }
+
+    @Override
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+    }
+}
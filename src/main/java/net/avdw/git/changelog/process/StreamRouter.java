@@ -0,0 +1,29 @@
+package net.avdw.git.changelog.process;
+
+import org.tinylog.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Drains a process stream into the debug log until the process closes it.
+ */
+class StreamRouter implements Runnable {
+    private final InputStream src;
+
+    StreamRouter(final InputStream src) {
+        this.src = src;
+    }
+
+    @Override
+    public void run() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(src, StandardCharsets.UTF_8))) {
+            reader.lines().forEach(line -> Logger.debug("Script: {}", line));
+        } catch (IOException e) {
+            Logger.debug(e);
+        }
+    }
+}
@@ -0,0 +1,605 @@
+package net.avdw.git.changelog.repository;
+
+import org.tinylog.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Every commit indexed so far with its parents, commit time and generation number, plus the reachability bitmap of
+ * the commits that were asked to be remembered, e.g. tagged ones. Commits are numbered in the order they are
+ * indexed, which puts every parent before its children, and bit n of a bitmap is set when commit n is reachable.
+ * Bitmaps are kept packed as a {@link RunLengthBitmap}, on disk and in memory, so a thousand tags over a million
+ * commits cost kilobytes rather than a hundred megabytes. The graph is kept in an append-only file under the git
+ * directory, so a rerun only reads the commits and computes the bitmaps that are new. The file is read as a stream
+ * and never held on the heap as a whole.
+ *
+ * <p>Layout: a header of magic and format version, followed by commit records
+ * {@code 'C' id[20] time[8] parents[1] position[4]...} and bitmap records {@code 'B' position[4] words[4] word[8]...}
+ * with the packed words. A record cut short by an interrupted run is dropped and overwritten by the next append.
+ */
+class CommitGraph implements AutoCloseable {
+    static final String FILE_NAME = "changelog.graph";
+    private static final int MAGIC = 0x47434752;
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = Integer.BYTES * 2;
+    private static final byte COMMIT = 'C';
+    private static final byte BITMAP = 'B';
+    private static final int[] NO_PARENTS = new int[0];
+    private final Path graphPath;
+    private final ObjectDatabase objectDatabase;
+    private final Map<Integer, long[]> bitmaps = new HashMap<>();
+    private byte[] ids = new byte[256 * ObjectId.LENGTH];
+    private int[] slots = new int[512];
+    private int size;
+    private long[] commitTimes = new long[256];
+    private int[] generations = new int[256];
+    private int[][] parents = new int[256][];
+    private final Comparator<Integer> newestGeneration = Comparator.comparingInt((Integer position) -> generations[position]).reversed();
+    private FileChannel channel;
+    private DataOutputStream appender;
+    private long highWaterMark;
+    private int appended;
+
+    private CommitGraph(final Path graphPath, final ObjectDatabase objectDatabase) {
+        this.graphPath = graphPath;
+        this.objectDatabase = objectDatabase;
+    }
+
+    /**
+     * Opens the graph of the git directory, or an empty one when the file is missing or unreadable. Only one writer
+     * is allowed at a time; when another process holds the file, the graph is read and only grown in memory.
+     */
+    static CommitGraph open(final Path gitDirectory, final ObjectDatabase objectDatabase) {
+        CommitGraph commitGraph = new CommitGraph(gitDirectory.resolve(FILE_NAME), objectDatabase);
+        try {
+            commitGraph.load();
+        } catch (IOException e) {
+            Logger.debug("Commit graph {} is not usable, continuing without it: {}", commitGraph.graphPath, e.getMessage());
+            commitGraph.closeQuietly();
+        }
+        return commitGraph;
+    }
+
+    private void load() throws IOException {
+        channel = FileChannel.open(graphPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+
+        long size = channel.size();
+        if (size >= HEADER_LENGTH) {
+            // The stream is left open, closing it would close the channel.
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), 64 * 1024));
+            if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                highWaterMark = readRecords(in, size);
+            } else {
+                Logger.debug("Commit graph {} was written in another format, starting over", graphPath);
+            }
+        }
+
+        if (fileLock == null) {
+            Logger.debug("Commit graph {} is in use, reading only", graphPath);
+            closeQuietly();
+            return;
+        }
+        if (highWaterMark == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            highWaterMark = HEADER_LENGTH;
+        }
+        channel.truncate(highWaterMark);
+        channel.position(highWaterMark);
+        appender = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    private long readRecords(final DataInputStream in, final long fileSize) throws IOException {
+        long end = HEADER_LENGTH;
+        try {
+            while (end < fileSize) {
+                byte type = in.readByte();
+                if (type == COMMIT) {
+                    ensureCapacity();
+                    in.readFully(ids, size * ObjectId.LENGTH, ObjectId.LENGTH);
+                    long commitTime = in.readLong();
+                    int[] parentPositions = new int[in.readUnsignedByte()];
+                    for (int i = 0; i < parentPositions.length; i++) {
+                        parentPositions[i] = in.readInt();
+                        if (parentPositions[i] < 0 || parentPositions[i] >= size) {
+                            return end;
+                        }
+                    }
+                    index(commitTime, parentPositions);
+                    end += 1 + ObjectId.LENGTH + Long.BYTES + 1 + (long) parentPositions.length * Integer.BYTES;
+                } else if (type == BITMAP) {
+                    int position = in.readInt();
+                    int length = in.readInt();
+                    if (length < 0 || length > (fileSize - end) / Long.BYTES) {
+                        break;
+                    }
+                    long[] words = new long[length];
+                    for (int i = 0; i < words.length; i++) {
+                        words[i] = in.readLong();
+                    }
+                    if (position < 0 || position >= size) {
+                        return end;
+                    }
+                    bitmaps.put(position, words);
+                    end += 1 + Integer.BYTES * 2 + (long) length * Long.BYTES;
+                } else {
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            Logger.debug("Commit graph {} ends in a partial record at {}", graphPath, end);
+        }
+        Logger.debug("Commit graph {} holds {} commit(s) and {} bitmap(s)", graphPath, size, bitmaps.size());
+        return end;
+    }
+
+    /**
+     * The position of the commit, indexing it and those of its ancestors that are not indexed yet.
+     */
+    synchronized int add(final ObjectId commitId) {
+        int known = position(commitId);
+        if (known >= 0) {
+            return known;
+        }
+        Deque<ObjectId> pending = new ArrayDeque<>();
+        Map<ObjectId, GitCommit> parsed = new HashMap<>();
+        pending.push(commitId);
+        while (!pending.isEmpty()) {
+            ObjectId objectId = pending.peek();
+            if (position(objectId) >= 0) {
+                pending.pop();
+                continue;
+            }
+            GitCommit gitCommit = parsed.get(objectId);
+            if (gitCommit == null) {
+                gitCommit = parse(objectId);
+                parsed.put(objectId, gitCommit);
+                boolean parentsIndexed = true;
+                for (ObjectId parentId : gitCommit.parents()) {
+                    if (position(parentId) < 0) {
+                        pending.push(parentId);
+                        parentsIndexed = false;
+                    }
+                }
+                if (!parentsIndexed) {
+                    continue;
+                }
+            }
+            pending.pop();
+            parsed.remove(objectId);
+            append(gitCommit);
+        }
+        return position(commitId);
+    }
+
+    /**
+     * The commits reachable from the commit, itself included. Commits are visited newest generation first, so a
+     * remembered bitmap is always met before any of the commits it already covers.
+     *
+     * @param remember whether to keep the bitmap for later runs
+     */
+    synchronized BitSet reachable(final int position, final boolean remember) {
+        long[] packed = bitmaps.get(position);
+        if (packed != null) {
+            return RunLengthBitmap.unpack(packed);
+        }
+        BitSet reachable = new BitSet(position + 1);
+        PriorityQueue<Integer> queue = new PriorityQueue<>(newestGeneration);
+        queue.add(position);
+        while (!queue.isEmpty()) {
+            int next = queue.poll();
+            if (reachable.get(next)) {
+                continue;
+            }
+            long[] bitmap = bitmaps.get(next);
+            if (bitmap != null) {
+                RunLengthBitmap.or(bitmap, reachable);
+                continue;
+            }
+            reachable.set(next);
+            for (int parent : parents[next]) {
+                if (!reachable.get(parent)) {
+                    queue.add(parent);
+                }
+            }
+        }
+        if (remember) {
+            remember(position, RunLengthBitmap.pack(reachable));
+        }
+        return reachable;
+    }
+
+    /**
+     * The commits reachable from the start but not in the excluded set, which holds every ancestor of its commits, e.g.
+     * the commits reachable from another one. Only the commits in the difference are walked: the walk stops at excluded
+     * commits, and a commit with a remembered bitmap adds the part of it that is not excluded instead of its ancestors.
+     */
+    synchronized BitSet difference(final int start, final BitSet excluded) {
+        BitSet difference = new BitSet();
+        PriorityQueue<Integer> queue = new PriorityQueue<>(newestGeneration);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int next = queue.poll();
+            if (difference.get(next) || excluded.get(next)) {
+                continue;
+            }
+            long[] bitmap = bitmaps.get(next);
+            if (bitmap != null) {
+                BitSet reachable = RunLengthBitmap.unpack(bitmap);
+                reachable.andNot(excluded);
+                difference.or(reachable);
+                continue;
+            }
+            difference.set(next);
+            for (int parent : parents[next]) {
+                if (!difference.get(parent) && !excluded.get(parent)) {
+                    queue.add(parent);
+                }
+            }
+        }
+        return difference;
+    }
+
+    /**
+     * The differences of several starts at once, start i with excluded set i as for {@link #difference}: every commit
+     * of any of them, children first, with the indexes of the ranges that hold it. The union is walked once in
+     * descending position, a commit holding the ranges of its children that do not exclude it, so history the ranges
+     * share is walked once rather than once per range. Commits holding the same ranges share one set, which is never
+     * changed once handed out.
+     */
+    synchronized Map<Integer, BitSet> differences(final int[] starts, final BitSet[] excluded) {
+        Map<Integer, BitSet> pending = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Comparator.reverseOrder());
+        for (int range = 0; range < starts.length; range++) {
+            if (!pending.containsKey(starts[range])) {
+                queue.add(starts[range]);
+            }
+            pending.computeIfAbsent(starts[range], start -> new BitSet()).set(range);
+        }
+        Map<Integer, BitSet> differences = new LinkedHashMap<>();
+        while (!queue.isEmpty()) {
+            int next = queue.poll();
+            BitSet ranges = pending.remove(next);
+            BitSet holding = ranges;
+            for (int range = ranges.nextSetBit(0); range >= 0; range = ranges.nextSetBit(range + 1)) {
+                if (excluded[range].get(next)) {
+                    if (holding == ranges) {
+                        holding = (BitSet) ranges.clone();
+                    }
+                    holding.clear(range);
+                }
+            }
+            if (holding.isEmpty()) {
+                continue;
+            }
+            differences.put(next, holding);
+            for (int parent : parents[next]) {
+                BitSet parentRanges = pending.get(parent);
+                if (parentRanges == null) {
+                    pending.put(parent, holding);
+                    queue.add(parent);
+                } else if (parentRanges != holding) {
+                    BitSet merged = (BitSet) parentRanges.clone();
+                    merged.or(holding);
+                    pending.put(parent, merged);
+                }
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * The commits of the set that are reachable from the start, itself included. The walk stops at each commit with a
+     * remembered bitmap and looks the commits of the set up in its packed words, so when the set are the remembered
+     * commits only the commits down to the nearest of them are walked.
+     */
+    synchronized BitSet reachableOf(final int start, final BitSet commits) {
+        BitSet found = new BitSet();
+        BitSet visited = new BitSet(start + 1);
+        PriorityQueue<Integer> queue = new PriorityQueue<>(newestGeneration);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int next = queue.poll();
+            if (visited.get(next)) {
+                continue;
+            }
+            visited.set(next);
+            long[] bitmap = bitmaps.get(next);
+            if (bitmap != null) {
+                commits.stream().filter(commit -> !found.get(commit) && RunLengthBitmap.get(bitmap, commit)).forEach(found::set);
+                continue;
+            }
+            if (commits.get(next)) {
+                found.set(next);
+            }
+            for (int parent : parents[next]) {
+                if (!visited.get(parent)) {
+                    queue.add(parent);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Remembers the bitmaps of the commits that have none yet, oldest generation first so that each one builds on
+     * the previous ones.
+     */
+    synchronized void rememberAll(final List<Integer> commitPositions) {
+        List<Integer> sorted = new ArrayList<>(commitPositions);
+        sorted.sort(newestGeneration.reversed());
+        sorted.forEach(position -> reachable(position, true));
+    }
+
+    /**
+     * Hands over the ids of the commits in the set that are reachable from the start through the set, in commit
+     * date order like {@link RevWalk}: a commit never comes before its children and ties go to the commit seen first.
+     *
+     * <p>The commits in the set are indexed already, and what is indexed never changes, so the walk runs on the arrays
+     * as they are now without holding the graph while the consumer works; growing the graph only replaces them.
+     */
+    void walk(final int start, final BitSet commits, final Consumer<ObjectId> commitIdConsumer) {
+        byte[] walkIds;
+        long[] walkTimes;
+        int[][] walkParents;
+        synchronized (this) {
+            walkIds = ids;
+            walkTimes = commitTimes;
+            walkParents = parents;
+        }
+        if (!commits.get(start)) {
+            return;
+        }
+        PriorityQueue<long[]> queue = new PriorityQueue<>(
+                Comparator.comparingLong((long[] node) -> walkTimes[(int) node[0]]).reversed().thenComparingLong(node -> node[1]));
+        BitSet queued = new BitSet(start + 1);
+        long sequence = 0;
+        queue.add(new long[]{start, sequence++});
+        queued.set(start);
+        while (!queue.isEmpty()) {
+            int position = (int) queue.poll()[0];
+            commitIdConsumer.accept(ObjectId.fromRaw(walkIds, position * ObjectId.LENGTH));
+            for (int parent : walkParents[position]) {
+                if (commits.get(parent) && !queued.get(parent)) {
+                    queued.set(parent);
+                    queue.add(new long[]{parent, sequence++});
+                }
+            }
+        }
+    }
+
+    /**
+     * The tagged commit {@code git describe --tags} picks for the start, or -1 when none is reachable. Commits are visited
+     * in commit date order like {@link RevWalk#describe}, so the same commit is picked without reading any.
+     */
+    synchronized int describe(final int start, final BitSet tagged) {
+        PriorityQueue<long[]> queue = new PriorityQueue<>(
+                Comparator.comparingLong((long[] node) -> commitTimes[(int) node[0]]).reversed().thenComparingLong(node -> node[1]));
+        TagCandidates<Integer> candidates = new TagCandidates<>();
+        int[] flags = new int[start + 1];
+        BitSet queued = new BitSet(start + 1);
+        long sequence = 0;
+        int walked = 0;
+        queue.add(new long[]{start, sequence++});
+        queued.set(start);
+        while (!queue.isEmpty()) {
+            int position = (int) queue.poll()[0];
+            if (tagged.get(position)) {
+                if (candidates.isFull()) {
+                    break;
+                }
+                flags[position] |= candidates.add(position, walked);
+            }
+            walked++;
+            candidates.count(flags[position]);
+            for (int parent : parents[position]) {
+                if (!queued.get(parent)) {
+                    queued.set(parent);
+                    queue.add(new long[]{parent, sequence++});
+                }
+                flags[parent] |= flags[position];
+            }
+            if (!candidates.isEmpty()) {
+                int bestFlag = candidates.bestFlag();
+                if (queue.stream().allMatch(node -> (flags[(int) node[0]] & bestFlag) != 0)) {
+                    break;
+                }
+            }
+        }
+        Integer best = candidates.bestCommit();
+        return best == null ? -1 : best;
+    }
+
+    synchronized long commitTime(final int position) {
+        return commitTimes[position];
+    }
+
+    synchronized ObjectId id(final int position) {
+        return ObjectId.fromRaw(ids, position * ObjectId.LENGTH);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Parses the commit, keeping only what the graph needs so that a long chain of commits waiting for their
+     * parents does not hold on to every message.
+     */
+    private GitCommit parse(final ObjectId commitId) {
+        GitObject gitObject = objectDatabase.read(commitId);
+        if (gitObject.type() != GitObject.COMMIT) {
+            throw new RepositoryException(String.format("Object %s is not a commit", commitId));
+        }
+        return GitCommit.parse(commitId, gitObject.data()).withoutMessage();
+    }
+
+    private void append(final GitCommit gitCommit) {
+        ObjectId[] parentIds = gitCommit.parents();
+        int[] parentPositions = parentIds.length == 0 ? NO_PARENTS : new int[parentIds.length];
+        for (int i = 0; i < parentIds.length; i++) {
+            parentPositions[i] = position(parentIds[i]);
+        }
+        ensureCapacity();
+        gitCommit.id().copyTo(ids, size * ObjectId.LENGTH);
+        index(gitCommit.commitTime(), parentPositions);
+        if (appender != null) {
+            try {
+                byte[] id = new byte[ObjectId.LENGTH];
+                gitCommit.id().copyTo(id, 0);
+                appender.writeByte(COMMIT);
+                appender.write(id);
+                appender.writeLong(gitCommit.commitTime());
+                appender.writeByte(parentPositions.length);
+                for (int parentPosition : parentPositions) {
+                    appender.writeInt(parentPosition);
+                }
+                appended++;
+            } catch (IOException e) {
+                Logger.debug("Cannot append to commit graph {}, continuing without it: {}", graphPath, e.getMessage());
+                closeQuietly();
+            }
+        }
+    }
+
+    private void remember(final int position, final long[] words) {
+        bitmaps.put(position, words);
+        if (appender != null) {
+            try {
+                appender.writeByte(BITMAP);
+                appender.writeInt(position);
+                appender.writeInt(words.length);
+                for (long word : words) {
+                    appender.writeLong(word);
+                }
+            } catch (IOException e) {
+                Logger.debug("Cannot append to commit graph {}, continuing without it: {}", graphPath, e.getMessage());
+                closeQuietly();
+            }
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size == generations.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity * ObjectId.LENGTH);
+            commitTimes = Arrays.copyOf(commitTimes, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+        }
+    }
+
+    /**
+     * Adds the commit whose id was just copied to the next free place in the ids.
+     */
+    private void index(final long commitTime, final int[] parentPositions) {
+        int generation = 1;
+        for (int parentPosition : parentPositions) {
+            generation = Math.max(generation, generations[parentPosition] + 1);
+        }
+        commitTimes[size] = commitTime;
+        generations[size] = generation;
+        parents[size] = parentPositions;
+        size++;
+        if (size * 2 > slots.length) {
+            slots = new int[slots.length * 2];
+            for (int position = 0; position < size; position++) {
+                slot(position);
+            }
+        } else {
+            slot(size - 1);
+        }
+    }
+
+    /**
+     * The position of the commit, or -1 when it is not indexed. Ids are found through an open addressing table of
+     * positions plus one, hashed like {@link ObjectId#hashCode()}, so no id object is kept per commit.
+     */
+    private int position(final ObjectId commitId) {
+        int mask = slots.length - 1;
+        for (int slot = commitId.hashCode() & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int position = slots[slot] - 1;
+            if (commitId.compareTo(ids, position * ObjectId.LENGTH) == 0) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private void slot(final int position) {
+        int offset = position * ObjectId.LENGTH;
+        int hash = (ids[offset] & 0xff) << 24 | (ids[offset + 1] & 0xff) << 16 | (ids[offset + 2] & 0xff) << 8 | ids[offset + 3] & 0xff;
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = position + 1;
+    }
+
+    /**
+     * Writes out what was appended, for a graph kept open between runs.
+     */
+    synchronized void flush() throws IOException {
+        if (appender != null) {
+            appender.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (appender != null) {
+            appender.flush();
+            Logger.debug("Appended {} commit(s) to commit graph {}", appended, graphPath);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        appender = null;
+        channel = null;
+    }
+
+    private void closeQuietly() {
+        try {
+            appender = null;
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            Logger.debug("Cannot close commit graph {}: {}", graphPath, e.getMessage());
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,194 @@
+package net.avdw.git.changelog.repository;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class GitCommit {
+    private static final ObjectId[] NO_PARENTS = new ObjectId[0];
+    private static final byte[] NO_MESSAGE = new byte[0];
+    private final ObjectId id;
+    private final ObjectId tree;
+    private final ObjectId[] parents;
+    private final long commitTime;
+    private final int authorStart;
+    private final int authorEnd;
+    private final byte[] raw;
+    private final int messageStart;
+    private final Charset encoding;
+
+    private GitCommit(final ObjectId id, final ObjectId tree, final ObjectId[] parents, final long commitTime, final int authorStart, final int authorEnd,
+                      final byte[] raw, final int messageStart, final Charset encoding) {
+        this.id = id;
+        this.tree = tree;
+        this.parents = parents;
+        this.commitTime = commitTime;
+        this.authorStart = authorStart;
+        this.authorEnd = authorEnd;
+        this.raw = raw;
+        this.messageStart = messageStart;
+        this.encoding = encoding;
+    }
+
+    static GitCommit parse(final ObjectId id, final byte[] raw) {
+        ObjectId tree = null;
+        List<ObjectId> parentList = new ArrayList<>(1);
+        long commitTime = 0;
+        int authorStart = 0;
+        int authorEnd = 0;
+        Charset encoding = StandardCharsets.UTF_8;
+        int position = 0;
+        while (position < raw.length && raw[position] != '\n') {
+            int lineEnd = lineEnd(raw, position);
+            if (startsWith(raw, position, "tree ")) {
+                tree = ObjectId.fromHex(raw, position + "tree ".length());
+            } else if (startsWith(raw, position, "parent ")) {
+                parentList.add(ObjectId.fromHex(raw, position + "parent ".length()));
+            } else if (startsWith(raw, position, "author ")) {
+                authorStart = position + "author ".length();
+                authorEnd = lineEnd;
+            } else if (startsWith(raw, position, "committer ")) {
+                commitTime = identTime(raw, position, lineEnd);
+            } else if (startsWith(raw, position, "encoding ")) {
+                String name = new String(raw, position + "encoding ".length(), lineEnd - position - "encoding ".length(), StandardCharsets.US_ASCII);
+                encoding = Charset.isSupported(name) ? Charset.forName(name) : StandardCharsets.UTF_8;
+            }
+            position = lineEnd + 1;
+        }
+        int messageStart = Math.min(position + 1, raw.length);
+        ObjectId[] parents = parentList.isEmpty() ? NO_PARENTS : parentList.toArray(new ObjectId[0]);
+        return new GitCommit(id, tree, parents, commitTime, authorStart, authorEnd, raw, messageStart, encoding);
+    }
+
+    /**
+     * The same commit with only its ids and times, to keep many of them at hand cheaply.
+     */
+    GitCommit withoutMessage() {
+        return new GitCommit(id, tree, parents, commitTime, 0, 0, NO_MESSAGE, 0, encoding);
+    }
+
+    public ObjectId id() {
+        return id;
+    }
+
+    public ObjectId tree() {
+        return tree;
+    }
+
+    public ObjectId[] parents() {
+        return parents;
+    }
+
+    public long commitTime() {
+        return commitTime;
+    }
+
+    /**
+     * The author name, as rendered by {@code git log --pretty=%an}.
+     */
+    public String author() {
+        int nameEnd = authorStart;
+        while (nameEnd < authorEnd && raw[nameEnd] != '<') {
+            nameEnd++;
+        }
+        return new String(raw, authorStart, trimEnd(raw, authorStart, nameEnd) - authorStart, encoding);
+    }
+
+    public long authorTime() {
+        return authorEnd == 0 ? commitTime : identTime(raw, authorStart, authorEnd);
+    }
+
+    /**
+     * The message after the first paragraph, as rendered by {@code git log --pretty=%b}.
+     */
+    public String body() {
+        int position = skipBlankLines(raw, messageStart);
+        while (position < raw.length) {
+            int lineEnd = lineEnd(raw, position);
+            if (trimEnd(raw, position, lineEnd) == position) {
+                break;
+            }
+            position = lineEnd + 1;
+        }
+        position = skipBlankLines(raw, position);
+        return position < raw.length ? new String(raw, position, raw.length - position, encoding) : "";
+    }
+
+    /**
+     * The first paragraph of the message with its lines joined by a space, as rendered by {@code git log --pretty=%s}.
+     */
+    public String subject() {
+        StringBuilder subject = new StringBuilder();
+        int position = skipBlankLines(raw, messageStart);
+        while (position < raw.length) {
+            int lineEnd = lineEnd(raw, position);
+            int contentEnd = trimEnd(raw, position, lineEnd);
+            if (contentEnd == position) {
+                break;
+            }
+            if (subject.length() > 0) {
+                subject.append(' ');
+            }
+            subject.append(new String(raw, position, contentEnd - position, encoding));
+            position = lineEnd + 1;
+        }
+        return subject.toString();
+    }
+
+    private static long identTime(final byte[] raw, final int lineStart, final int lineEnd) {
+        int emailEnd = lineStart;
+        for (int i = lineEnd - 1; i > lineStart; i--) {
+            if (raw[i] == '>') {
+                emailEnd = i;
+                break;
+            }
+        }
+        long time = 0;
+        for (int i = emailEnd + 2; i < lineEnd && raw[i] >= '0' && raw[i] <= '9'; i++) {
+            time = time * 10 + (raw[i] - '0');
+        }
+        return time;
+    }
+
+    private static int skipBlankLines(final byte[] raw, final int from) {
+        int position = from;
+        while (position < raw.length) {
+            int lineEnd = lineEnd(raw, position);
+            if (trimEnd(raw, position, lineEnd) != position) {
+                return position;
+            }
+            position = lineEnd + 1;
+        }
+        return position;
+    }
+
+    private static int trimEnd(final byte[] raw, final int lineStart, final int lineEnd) {
+        int end = lineEnd;
+        while (end > lineStart && (raw[end - 1] == ' ' || raw[end - 1] == '\t' || raw[end - 1] == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int lineEnd(final byte[] raw, final int from) {
+        for (int i = from; i < raw.length; i++) {
+            if (raw[i] == '\n') {
+                return i;
+            }
+        }
+        return raw.length;
+    }
+
+    private static boolean startsWith(final byte[] raw, final int offset, final String prefix) {
+        if (offset + prefix.length() > raw.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (raw[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package net.avdw.git.changelog.repository;
+
+public class GitObject {
+    public static final int COMMIT = 1;
+    public static final int TREE = 2;
+    public static final int BLOB = 3;
+    public static final int TAG = 4;
+    public static final int OFS_DELTA = 6;
+    public static final int REF_DELTA = 7;
+
+    private final int type;
+    private final byte[] data;
+
+    public GitObject(final int type, final byte[] data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    public static int typeOf(final String name) {
+        switch (name) {
+            case "commit":
+                return COMMIT;
+            case "tree":
+                return TREE;
+            case "blob":
+                return BLOB;
+            case "tag":
+                return TAG;
+            default:
+                throw new RepositoryException(String.format("Unknown object type: %s", name));
+        }
+    }
+
+    public byte[] data() {
+        return data;
+    }
+
+    public int type() {
+        return type;
+    }
+}
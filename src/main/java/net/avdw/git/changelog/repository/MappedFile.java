@@ -0,0 +1,133 @@
+package net.avdw.git.changelog.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A read-only file mapped into memory, so that packs and their indexes, and the change cache, are read in place instead
+ * of being copied onto the heap. A buffer addresses at most 2 GB, so larger files are mapped as several segments. Segments overlap by
+ * {@link #OVERLAP} bytes, which lets every read of up to that many bytes be served by the one segment it starts in.
+ *
+ * <p>Only absolute reads are used, so one mapping serves all threads. The mapping is released by the garbage
+ * collector once the file is no longer referenced; the channel itself is closed as soon as the file is mapped.
+ */
+public final class MappedFile {
+    static final int OVERLAP = 64;
+    private static final int SEGMENT_SHIFT = 30;
+    private final Path path;
+    private final ByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final long size;
+
+    private MappedFile(final Path path, final ByteBuffer[] segments, final int segmentShift, final long size) {
+        this.path = path;
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.size = size;
+    }
+
+    public static MappedFile map(final Path path) throws IOException {
+        return map(path, SEGMENT_SHIFT);
+    }
+
+    /**
+     * @param segmentShift the base two logarithm of the segment size, small in tests to cross segments cheaply
+     */
+    static MappedFile map(final Path path, final int segmentShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long segmentSize = 1L << segmentShift;
+            ByteBuffer[] segments = new ByteBuffer[(int) Math.max(1, (size + segmentSize - 1) >> segmentShift)];
+            for (int segment = 0; segment < segments.length; segment++) {
+                long start = (long) segment << segmentShift;
+                segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, segmentSize + OVERLAP));
+            }
+            return new MappedFile(path, segments, segmentShift, size);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * The segment to read at the position, together with {@link #offset(long)}; reads of up to {@link #OVERLAP}
+     * bytes from there stay within it.
+     */
+    ByteBuffer segment(final long position) {
+        return segments[(int) (position >>> segmentShift)];
+    }
+
+    int offset(final long position) {
+        return (int) (position & segmentMask);
+    }
+
+    public int get(final long position) {
+        return segment(position).get(offset(position)) & 0xff;
+    }
+
+    public int getInt(final long position) {
+        return segment(position).getInt(offset(position));
+    }
+
+    public long getLong(final long position) {
+        return segment(position).getLong(offset(position));
+    }
+
+    /**
+     * Fills the target with the bytes at the position, following them across segments.
+     */
+    public void get(final long position, final byte[] target) {
+        int copied = 0;
+        while (copied < target.length) {
+            long from = position + copied;
+            ByteBuffer segment = segment(from).duplicate();
+            int start = offset(from);
+            int length = (int) Math.min(target.length - copied, Math.min(segment.capacity(), 1L + segmentMask) - start);
+            if (length <= 0) {
+                throw new IndexOutOfBoundsException(String.format("Read of %d bytes at %d beyond the end of %s", target.length, position, path));
+            }
+            segment.position(start);
+            segment.get(target, copied, length);
+            copied += length;
+        }
+    }
+
+    /**
+     * Inflates the zlib stream at the position straight from the mapping, following it across segments, until the
+     * result is full.
+     */
+    void inflate(final Inflater inflater, final long position, final byte[] result) throws DataFormatException {
+        long input = position;
+        int produced = 0;
+        while (produced < result.length) {
+            if (inflater.needsInput()) {
+                if (input >= size) {
+                    throw new RepositoryException(String.format("Truncated object at %d in %s", position, path));
+                }
+                ByteBuffer segment = segment(input).duplicate();
+                int start = offset(input);
+                int end = (int) Math.min(segment.capacity(), 1L + segmentMask);
+                segment.limit(end).position(start);
+                inflater.setInput(segment);
+                input += end - start;
+            }
+            int inflated = inflater.inflate(result, produced, result.length - produced);
+            produced += inflated;
+            if (inflater.finished() && produced < result.length || inflated == 0 && inflater.needsDictionary()) {
+                throw new RepositoryException(String.format("Object size mismatch at %d in %s", position, path));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package net.avdw.git.changelog.repository;
+
+import lombok.SneakyThrows;
+import org.tinylog.Logger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+class ObjectDatabase implements AutoCloseable {
+    private final List<Path> objectDirectories = new ArrayList<>();
+    private final List<PackFile> packFiles = new CopyOnWriteArrayList<>();
+    private final Function<ObjectId, Optional<GitObject>> missingObjectLoader;
+
+    @SneakyThrows
+    ObjectDatabase(final Path objectDirectory, final Function<ObjectId, Optional<GitObject>> missingObjectLoader) {
+        this.missingObjectLoader = missingObjectLoader;
+        addObjectDirectory(objectDirectory);
+        Logger.debug("Object database {} with {} pack(s)", objectDirectory, packFiles.size());
+    }
+
+    private void addObjectDirectory(final Path objectDirectory) throws IOException {
+        if (!Files.isDirectory(objectDirectory) || objectDirectories.contains(objectDirectory)) {
+            return;
+        }
+        objectDirectories.add(objectDirectory);
+        addPacks(objectDirectory);
+
+        Path alternates = objectDirectory.resolve("info/alternates");
+        if (Files.exists(alternates)) {
+            for (String alternate : Files.readAllLines(alternates, StandardCharsets.UTF_8)) {
+                if (!alternate.isBlank() && !alternate.startsWith("#")) {
+                    addObjectDirectory(objectDirectory.resolve(alternate.trim()).normalize());
+                }
+            }
+        }
+    }
+
+    private void addPacks(final Path objectDirectory) throws IOException {
+        Path packDirectory = objectDirectory.resolve("pack");
+        if (Files.isDirectory(packDirectory)) {
+            try (DirectoryStream<Path> indexes = Files.newDirectoryStream(packDirectory, "*.idx")) {
+                for (Path indexPath : indexes) {
+                    String packName = indexPath.getFileName().toString().replaceAll("\\.idx$", ".pack");
+                    Path packPath = indexPath.resolveSibling(packName);
+                    if (Files.exists(packPath) && packFiles.stream().noneMatch(packFile -> packFile.path().equals(packPath))) {
+                        packFiles.add(new PackFile(packPath, new PackIndex(indexPath), this));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks up the packs written since, e.g. by a fetch or a repack, and lets go of the ones that were removed.
+     * Loose objects are always looked up afresh.
+     */
+    @SneakyThrows
+    synchronized void refresh() {
+        packFiles.removeIf(packFile -> !Files.exists(packFile.path()));
+        for (Path objectDirectory : objectDirectories) {
+            addPacks(objectDirectory);
+        }
+    }
+
+    GitObject read(final ObjectId objectId) {
+        for (PackFile packFile : packFiles) {
+            GitObject gitObject = packFile.read(objectId);
+            if (gitObject != null) {
+                return gitObject;
+            }
+        }
+        for (Path objectDirectory : objectDirectories) {
+            Path loosePath = loosePath(objectDirectory, objectId);
+            if (Files.exists(loosePath)) {
+                return readLoose(loosePath);
+            }
+        }
+        return missingObjectLoader.apply(objectId)
+                .orElseThrow(() -> new RepositoryException(String.format("Missing object %s", objectId)));
+    }
+
+    @SneakyThrows
+    List<ObjectId> findByPrefix(final String hexPrefix) {
+        TreeSet<ObjectId> matches = new TreeSet<>();
+        for (PackFile packFile : packFiles) {
+            matches.addAll(packFile.index().findByPrefix(hexPrefix));
+        }
+        for (Path objectDirectory : objectDirectories) {
+            Path fanout = objectDirectory.resolve(hexPrefix.substring(0, 2));
+            if (Files.isDirectory(fanout)) {
+                try (DirectoryStream<Path> looseObjects = Files.newDirectoryStream(fanout, hexPrefix.substring(2) + "*")) {
+                    for (Path looseObject : looseObjects) {
+                        matches.add(ObjectId.fromHex(hexPrefix.substring(0, 2) + looseObject.getFileName()));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    private static Path loosePath(final Path objectDirectory, final ObjectId objectId) {
+        String name = objectId.name();
+        return objectDirectory.resolve(name.substring(0, 2)).resolve(name.substring(2));
+    }
+
+    @SneakyThrows
+    private static GitObject readLoose(final Path loosePath) {
+        try (InputStream inputStream = new InflaterInputStream(Files.newInputStream(loosePath))) {
+            byte[] content = inputStream.readAllBytes();
+            int space = indexOf(content, (byte) ' ', 0);
+            int nul = indexOf(content, (byte) 0, space);
+            if (space < 0 || nul < 0) {
+                throw new RepositoryException(String.format("Corrupt loose object %s", loosePath));
+            }
+            int type = GitObject.typeOf(new String(content, 0, space, StandardCharsets.US_ASCII));
+            byte[] data = new byte[content.length - nul - 1];
+            System.arraycopy(content, nul + 1, data, 0, data.length);
+            return new GitObject(type, data);
+        } catch (ZipException | EOFException e) {
+            throw new RepositoryException(String.format("Corrupt loose object %s: %s", loosePath, e), e);
+        }
+    }
+
+    private static int indexOf(final byte[] buffer, final byte value, final int from) {
+        for (int i = Math.max(from, 0); i < buffer.length; i++) {
+            if (buffer[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lets go of the packs; their mappings are released once they are collected.
+     */
+    @Override
+    public void close() {
+        packFiles.clear();
+    }
+}
@@ -0,0 +1,120 @@
+package net.avdw.git.changelog.repository;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public final class ObjectId implements Comparable<ObjectId> {
+    public static final int LENGTH = 20;
+    public static final int HEX_LENGTH = 40;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private final byte[] raw;
+    private final int hash;
+
+    private ObjectId(final byte[] raw) {
+        this.raw = raw;
+        this.hash = (raw[0] & 0xff) << 24 | (raw[1] & 0xff) << 16 | (raw[2] & 0xff) << 8 | raw[3] & 0xff;
+    }
+
+    public static ObjectId fromRaw(final byte[] buffer, final int offset) {
+        return new ObjectId(Arrays.copyOfRange(buffer, offset, offset + LENGTH));
+    }
+
+    static ObjectId fromRaw(final ByteBuffer buffer, final int index) {
+        byte[] raw = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            raw[i] = buffer.get(index + i);
+        }
+        return new ObjectId(raw);
+    }
+
+    public static ObjectId fromHex(final CharSequence hex) {
+        if (!isHex(hex, HEX_LENGTH)) {
+            throw new IllegalArgumentException(String.format("Not an object id: %s", hex));
+        }
+        byte[] raw = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            raw[i] = (byte) (Character.digit(hex.charAt(2 * i), 16) << 4 | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return new ObjectId(raw);
+    }
+
+    public static ObjectId fromHex(final byte[] buffer, final int offset) {
+        byte[] raw = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            int high = Character.digit(buffer[offset + 2 * i], 16);
+            int low = Character.digit(buffer[offset + 2 * i + 1], 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Not an object id");
+            }
+            raw[i] = (byte) (high << 4 | low);
+        }
+        return new ObjectId(raw);
+    }
+
+    public static boolean isHex(final CharSequence value, final int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int firstByte() {
+        return raw[0] & 0xff;
+    }
+
+    public int compareTo(final byte[] buffer, final int offset) {
+        return Arrays.compareUnsigned(raw, 0, LENGTH, buffer, offset, offset + LENGTH);
+    }
+
+    int compareTo(final ByteBuffer buffer, final int index) {
+        for (int i = 0; i < LENGTH; i++) {
+            int comparison = Integer.compare(raw[i] & 0xff, buffer.get(index + i) & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    public boolean startsWith(final String hexPrefix) {
+        return name().startsWith(hexPrefix.toLowerCase());
+    }
+
+    public void copyTo(final byte[] buffer, final int offset) {
+        System.arraycopy(raw, 0, buffer, offset, LENGTH);
+    }
+
+    public String name() {
+        char[] hex = new char[HEX_LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            hex[2 * i] = HEX[(raw[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[raw[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    @Override
+    public int compareTo(final ObjectId other) {
+        return Arrays.compareUnsigned(raw, other.raw);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof ObjectId && Arrays.equals(raw, ((ObjectId) other).raw);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
@@ -0,0 +1,152 @@
+package net.avdw.git.changelog.repository;
+
+import lombok.SneakyThrows;
+
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads objects from a {@link MappedFile mapped} pack, inflating them straight from the mapping. Only the objects
+ * asked for are inflated, together with the bases of those that are deltas, so a walk over the commits never touches
+ * the trees and blobs that make up most of a pack.
+ */
+class PackFile {
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    private final MappedFile pack;
+    private final PackIndex index;
+    private final ObjectDatabase objectDatabase;
+
+    @SneakyThrows
+    PackFile(final Path packPath, final PackIndex index, final ObjectDatabase objectDatabase) {
+        this.pack = MappedFile.map(packPath);
+        this.index = index;
+        this.objectDatabase = objectDatabase;
+    }
+
+    Path path() {
+        return pack.path();
+    }
+
+    PackIndex index() {
+        return index;
+    }
+
+    /**
+     * The object, or {@code null} when the pack does not hold it. A pack or index that does not parse, e.g. one cut
+     * short or overwritten in place, fails with a {@link RepositoryException} like any other unreadable object.
+     */
+    GitObject read(final ObjectId objectId) {
+        try {
+            long offset = index.findOffset(objectId);
+            return offset < 0 ? null : readAt(offset);
+        } catch (DataFormatException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new RepositoryException(String.format("Corrupt object %s in %s: %s", objectId, pack.path(), e), e);
+        }
+    }
+
+    private GitObject readAt(final long offset) throws DataFormatException {
+        if (offset + ObjectId.LENGTH + 2 > pack.size()) {
+            throw new RepositoryException(String.format("Object offset %d beyond the end of %s", offset, pack.path()));
+        }
+        long position = offset;
+        int c = pack.get(position++);
+        int type = (c >> 4) & 0x7;
+        long size = c & 0x0f;
+        int shift = 4;
+        while ((c & 0x80) != 0) {
+            c = pack.get(position++);
+            size |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        }
+
+        switch (type) {
+            case GitObject.COMMIT:
+            case GitObject.TREE:
+            case GitObject.BLOB:
+            case GitObject.TAG:
+                return new GitObject(type, inflate(position, size));
+            case GitObject.OFS_DELTA:
+                c = pack.get(position++);
+                long baseDistance = c & 0x7f;
+                while ((c & 0x80) != 0) {
+                    c = pack.get(position++);
+                    baseDistance = ((baseDistance + 1) << 7) | (c & 0x7f);
+                }
+                GitObject ofsBase = readAt(offset - baseDistance);
+                return applyDelta(ofsBase, inflate(position, size));
+            case GitObject.REF_DELTA:
+                GitObject refBase = objectDatabase.read(ObjectId.fromRaw(pack.segment(position), pack.offset(position)));
+                return applyDelta(refBase, inflate(position + ObjectId.LENGTH, size));
+            default:
+                throw new RepositoryException(String.format("Unknown pack object type %d at %d in %s", type, offset, pack.path()));
+        }
+    }
+
+    private byte[] inflate(final long dataOffset, final long size) throws DataFormatException {
+        if (size > Integer.MAX_VALUE) {
+            throw new RepositoryException(String.format("Object too large (%d bytes) in %s", size, pack.path()));
+        }
+        byte[] result = new byte[(int) size];
+        Inflater inflater = INFLATER.get();
+        try {
+            pack.inflate(inflater, dataOffset, result);
+            return result;
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    static GitObject applyDelta(final GitObject base, final byte[] delta) {
+        byte[] source = base.data();
+        int[] position = {0};
+        long sourceSize = readVarInt(delta, position);
+        if (sourceSize != source.length) {
+            throw new RepositoryException("Delta base size mismatch");
+        }
+        byte[] result = new byte[(int) readVarInt(delta, position)];
+        int pos = position[0];
+        int written = 0;
+        while (pos < delta.length) {
+            int op = delta[pos++] & 0xff;
+            if ((op & 0x80) != 0) {
+                int copyOffset = 0;
+                int copySize = 0;
+                for (int bit = 0; bit < 4; bit++) {
+                    if ((op & (1 << bit)) != 0) {
+                        copyOffset |= (delta[pos++] & 0xff) << (8 * bit);
+                    }
+                }
+                for (int bit = 0; bit < 3; bit++) {
+                    if ((op & (0x10 << bit)) != 0) {
+                        copySize |= (delta[pos++] & 0xff) << (8 * bit);
+                    }
+                }
+                if (copySize == 0) {
+                    copySize = 0x10000;
+                }
+                System.arraycopy(source, copyOffset, result, written, copySize);
+                written += copySize;
+            } else if (op != 0) {
+                System.arraycopy(delta, pos, result, written, op);
+                pos += op;
+                written += op;
+            } else {
+                throw new RepositoryException("Invalid delta opcode");
+            }
+        }
+        return new GitObject(base.type(), result);
+    }
+
+    private static long readVarInt(final byte[] buffer, final int[] position) {
+        long value = 0;
+        int shift = 0;
+        int c;
+        do {
+            c = buffer[position[0]++] & 0xff;
+            value |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return value;
+    }
+}
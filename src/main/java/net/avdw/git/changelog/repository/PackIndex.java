@@ -0,0 +1,104 @@
+package net.avdw.git.changelog.repository;
+
+import lombok.SneakyThrows;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a pack index (version 1 or 2) and maps object ids onto pack offsets.
+ * The fan-out table narrows the search to the ids sharing a first byte, which are then binary searched in place in
+ * the {@link MappedFile mapped} index.
+ */
+class PackIndex {
+    private static final int FANOUT_SIZE = 256 * 4;
+    private static final int V2_HEADER = 8;
+    private static final int V2_MAGIC = 0xff744f63;
+    private static final int V1_ENTRY = 4 + ObjectId.LENGTH;
+    private final MappedFile index;
+    private final int objectCount;
+    private final int fanoutStart;
+    private final boolean version2;
+
+    @SneakyThrows
+    PackIndex(final Path indexPath) {
+        this.index = MappedFile.map(indexPath);
+        if (index.size() < FANOUT_SIZE) {
+            throw new RepositoryException(String.format("Truncated pack index: %s", indexPath));
+        }
+        this.version2 = index.getInt(0) == V2_MAGIC;
+        if (version2 && readInt(4) != 2) {
+            throw new RepositoryException(String.format("Unsupported pack index version %d: %s", readInt(4), indexPath));
+        }
+        this.fanoutStart = version2 ? V2_HEADER : 0;
+        this.objectCount = readInt(fanoutStart + 255 * 4);
+    }
+
+    int objectCount() {
+        return objectCount;
+    }
+
+    long findOffset(final ObjectId objectId) {
+        int position = findPosition(objectId);
+        return position < 0 ? -1 : offsetAt(position);
+    }
+
+    List<ObjectId> findByPrefix(final String hexPrefix) {
+        List<ObjectId> matches = new ArrayList<>();
+        int firstByte = Integer.parseInt(hexPrefix.substring(0, 2), 16);
+        int low = firstByte == 0 ? 0 : readInt(fanoutStart + (firstByte - 1) * 4);
+        int high = readInt(fanoutStart + firstByte * 4);
+        for (int position = low; position < high; position++) {
+            long idOffset = idOffset(position);
+            ObjectId candidate = ObjectId.fromRaw(index.segment(idOffset), index.offset(idOffset));
+            if (candidate.startsWith(hexPrefix)) {
+                matches.add(candidate);
+            }
+        }
+        return matches;
+    }
+
+    private int findPosition(final ObjectId objectId) {
+        int firstByte = objectId.firstByte();
+        int low = firstByte == 0 ? 0 : readInt(fanoutStart + (firstByte - 1) * 4);
+        int high = readInt(fanoutStart + firstByte * 4) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long idOffset = idOffset(middle);
+            int comparison = objectId.compareTo(index.segment(idOffset), index.offset(idOffset));
+            if (comparison == 0) {
+                return middle;
+            } else if (comparison < 0) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return -1;
+    }
+
+    private long idOffset(final int position) {
+        if (version2) {
+            return V2_HEADER + FANOUT_SIZE + (long) position * ObjectId.LENGTH;
+        }
+        return FANOUT_SIZE + (long) position * V1_ENTRY + 4;
+    }
+
+    private long offsetAt(final int position) {
+        if (!version2) {
+            return readInt(FANOUT_SIZE + (long) position * V1_ENTRY) & 0xffffffffL;
+        }
+        long offsetTable = V2_HEADER + FANOUT_SIZE + (long) objectCount * (ObjectId.LENGTH + 4);
+        int offset = readInt(offsetTable + position * 4L);
+        if ((offset & 0x80000000) == 0) {
+            return offset;
+        }
+        long largeOffset = offsetTable + objectCount * 4L + (offset & 0x7fffffff) * 8L;
+        return (readInt(largeOffset) & 0xffffffffL) << 32 | readInt(largeOffset + 4) & 0xffffffffL;
+    }
+
+    private int readInt(final long offset) {
+        return index.getInt(offset);
+    }
+}
@@ -0,0 +1,186 @@
+package net.avdw.git.changelog.repository;
+
+import lombok.SneakyThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class RefDatabase {
+    private static final String SYMBOLIC_PREFIX = "ref: ";
+    private static final int MAX_SYMBOLIC_DEPTH = 5;
+    private static final int MIN_ABBREVIATION = 4;
+    private static final Pattern ANCESTRY = Pattern.compile("(.+?)((?:[~^][0-9]*)+)");
+    private static final Pattern ANCESTRY_STEP = Pattern.compile("([~^])([0-9]*)");
+    private static final Pattern HEX = Pattern.compile("[0-9a-fA-F]+");
+    private static final String[] SEARCH_RULES = {"%s", "refs/%s", "refs/tags/%s", "refs/heads/%s", "refs/remotes/%s", "refs/remotes/%s/HEAD"};
+    private final Path gitDirectory;
+    private final Path commonDirectory;
+    private final ObjectDatabase objectDatabase;
+    private Map<String, ObjectId> packedRefs;
+
+    RefDatabase(final Path gitDirectory, final Path commonDirectory, final ObjectDatabase objectDatabase) {
+        this.gitDirectory = gitDirectory;
+        this.commonDirectory = commonDirectory;
+        this.objectDatabase = objectDatabase;
+    }
+
+    /**
+     * Resolves a revision to the commit it names, peeling annotated tags on the way.
+     * Ref names and (abbreviated) object ids are understood, optionally followed by {@code ~n} and {@code ^n}
+     * ancestry steps; anything else is rejected.
+     */
+    ObjectId resolveCommit(final String revision) {
+        Matcher matcher = ANCESTRY.matcher(revision);
+        String base = matcher.matches() ? matcher.group(1) : revision;
+        ObjectId commitId = peel(resolve(base));
+        if (commitId == null) {
+            throw new RepositoryException(String.format("Revision %s does not name a commit", revision));
+        }
+        if (base.length() < revision.length()) {
+            Matcher step = ANCESTRY_STEP.matcher(revision.substring(base.length()));
+            while (step.find()) {
+                int count = step.group(2).isEmpty() ? 1 : Integer.parseInt(step.group(2));
+                commitId = "~".equals(step.group(1)) ? firstParent(commitId, count, revision) : parent(commitId, count, revision);
+            }
+        }
+        return commitId;
+    }
+
+    /**
+     * All refs below the prefix, e.g. {@code refs/tags/}, with loose refs taking precedence over packed ones.
+     */
+    @SneakyThrows
+    Map<String, ObjectId> refs(final String prefix) {
+        Map<String, ObjectId> refs = new TreeMap<>();
+        packedRefs().forEach((name, objectId) -> {
+            if (name.startsWith(prefix)) {
+                refs.put(name, objectId);
+            }
+        });
+        Path looseDirectory = commonDirectory.resolve(prefix);
+        if (Files.isDirectory(looseDirectory)) {
+            List<Path> loosePaths;
+            try (Stream<Path> walk = Files.walk(looseDirectory)) {
+                loosePaths = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+            }
+            for (Path loosePath : loosePaths) {
+                String name = commonDirectory.relativize(loosePath).toString().replace('\\', '/');
+                ObjectId objectId = readRef(name, 0);
+                if (objectId != null) {
+                    refs.put(name, objectId);
+                }
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Follows annotated tags down to the object they point at.
+     *
+     * @return the commit, or {@code null} when the chain ends in something other than a commit
+     */
+    ObjectId peel(final ObjectId target) {
+        ObjectId objectId = target;
+        GitObject gitObject = objectDatabase.read(objectId);
+        while (gitObject.type() == GitObject.TAG) {
+            objectId = ObjectId.fromHex(gitObject.data(), "object ".length());
+            gitObject = objectDatabase.read(objectId);
+        }
+        return gitObject.type() == GitObject.COMMIT ? objectId : null;
+    }
+
+    private ObjectId resolve(final String revision) {
+        if (ObjectId.isHex(revision, ObjectId.HEX_LENGTH)) {
+            return ObjectId.fromHex(revision);
+        }
+        for (String rule : SEARCH_RULES) {
+            ObjectId objectId = readRef(String.format(rule, revision), 0);
+            if (objectId != null) {
+                return objectId;
+            }
+        }
+        if (revision.length() >= MIN_ABBREVIATION && HEX.matcher(revision).matches()) {
+            List<ObjectId> matches = objectDatabase.findByPrefix(revision);
+            if (matches.size() == 1) {
+                return matches.get(0);
+            } else if (matches.size() > 1) {
+                throw new RepositoryException(String.format("Ambiguous revision: %s", revision));
+            }
+        }
+        throw new RepositoryException(String.format("Unknown revision: %s", revision));
+    }
+
+    private ObjectId firstParent(final ObjectId commitId, final int generations, final String revision) {
+        ObjectId ancestor = commitId;
+        for (int i = 0; i < generations; i++) {
+            ancestor = parent(ancestor, 1, revision);
+        }
+        return ancestor;
+    }
+
+    private ObjectId parent(final ObjectId commitId, final int number, final String revision) {
+        if (number == 0) {
+            return commitId;
+        }
+        ObjectId[] parents = GitCommit.parse(commitId, objectDatabase.read(commitId).data()).parents();
+        if (number > parents.length) {
+            throw new RepositoryException(String.format("Unknown revision: %s", revision));
+        }
+        return parents[number - 1];
+    }
+
+    @SneakyThrows
+    private ObjectId readRef(final String name, final int depth) {
+        if (depth > MAX_SYMBOLIC_DEPTH) {
+            throw new RepositoryException(String.format("Symbolic ref loop at %s", name));
+        }
+        Path looseRef = refDirectory(name).resolve(name);
+        if (Files.isRegularFile(looseRef)) {
+            String content = new String(Files.readAllBytes(looseRef), StandardCharsets.UTF_8).trim();
+            if (content.startsWith(SYMBOLIC_PREFIX)) {
+                return readRef(content.substring(SYMBOLIC_PREFIX.length()).trim(), depth + 1);
+            }
+            return ObjectId.fromHex(content);
+        }
+        return packedRefs().get(name);
+    }
+
+    private Path refDirectory(final String name) {
+        boolean perWorktree = !name.startsWith("refs/") || name.startsWith("refs/bisect/") || name.startsWith("refs/worktree/");
+        return perWorktree ? gitDirectory : commonDirectory;
+    }
+
+    /**
+     * Rereads {@code packed-refs} the next time it is needed; loose refs are always read afresh.
+     */
+    synchronized void refresh() {
+        packedRefs = null;
+    }
+
+    @SneakyThrows
+    private synchronized Map<String, ObjectId> packedRefs() {
+        if (packedRefs == null) {
+            packedRefs = new HashMap<>();
+            Path packedRefsPath = commonDirectory.resolve("packed-refs");
+            if (Files.exists(packedRefsPath)) {
+                for (String line : Files.readAllLines(packedRefsPath, StandardCharsets.UTF_8)) {
+                    if (line.isEmpty() || line.charAt(0) == '#' || line.charAt(0) == '^') {
+                        continue;
+                    }
+                    int space = line.indexOf(' ');
+                    packedRefs.put(line.substring(space + 1).trim(), ObjectId.fromHex(line.substring(0, space)));
+                }
+            }
+        }
+        return packedRefs;
+    }
+}
@@ -0,0 +1,383 @@
+package net.avdw.git.changelog.repository;
+
+import lombok.SneakyThrows;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Reads history straight from a {@code .git} directory without starting a git process.
+ */
+public final class Repository implements AutoCloseable {
+    private static final String GITDIR_PREFIX = "gitdir:";
+    private static final String BRANCH_PREFIX = "refs/heads/";
+    private static final String HEAD = "HEAD";
+    private static final String TAG_PREFIX = "refs/tags/";
+    private final Path gitDirectory;
+    private final ObjectDatabase objectDatabase;
+    private final RefDatabase refDatabase;
+    private CommitGraph commitGraph;
+    private BitSet taggedPositions;
+    private boolean tagsRemembered;
+    private Map<ObjectId, List<String>> tagIndex;
+
+    private Repository(final Path gitDirectory, final Path commonDirectory, final Function<ObjectId, Optional<GitObject>> missingObjectLoader) {
+        this.gitDirectory = gitDirectory;
+        this.objectDatabase = new ObjectDatabase(commonDirectory.resolve("objects"), missingObjectLoader);
+        this.refDatabase = new RefDatabase(gitDirectory, commonDirectory, objectDatabase);
+    }
+
+    public static Optional<Repository> open(final Path baseDirectory) {
+        return open(baseDirectory, objectId -> Optional.empty());
+    }
+
+    /**
+     * Opens the repository around the directory. Objects that are not in the object database, e.g. in a partial
+     * clone, are asked of the loader before giving up.
+     */
+    public static Optional<Repository> open(final Path baseDirectory, final Function<ObjectId, Optional<GitObject>> missingObjectLoader) {
+        Optional<Path> gitDirectory = findGitDirectory(baseDirectory);
+        if (gitDirectory.isEmpty()) {
+            Logger.debug("No git directory found from {}", baseDirectory);
+            return Optional.empty();
+        }
+        Logger.debug("Git directory: {}", gitDirectory.get());
+        return Optional.of(new Repository(gitDirectory.get(), commonDirectory(gitDirectory.get()), missingObjectLoader));
+    }
+
+    /**
+     * The git directory of the repository around the directory, e.g. to watch it without opening it.
+     */
+    @SneakyThrows
+    public static Optional<Path> findGitDirectory(final Path baseDirectory) {
+        for (Path directory = baseDirectory.toAbsolutePath().normalize(); directory != null; directory = directory.getParent()) {
+            Path dotGit = directory.resolve(".git");
+            if (Files.isDirectory(dotGit) && isGitDirectory(dotGit)) {
+                return Optional.of(dotGit);
+            } else if (Files.isRegularFile(dotGit)) {
+                String content = new String(Files.readAllBytes(dotGit), StandardCharsets.UTF_8).trim();
+                if (content.startsWith(GITDIR_PREFIX)) {
+                    Path linked = directory.resolve(content.substring(GITDIR_PREFIX.length()).trim()).normalize();
+                    if (isGitDirectory(linked)) {
+                        return Optional.of(linked);
+                    }
+                }
+            } else if (isGitDirectory(directory) && Files.isDirectory(directory.resolve("objects"))) {
+                return Optional.of(directory);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isGitDirectory(final Path directory) {
+        return Files.isRegularFile(directory.resolve(HEAD))
+                && (Files.isDirectory(directory.resolve("objects")) || Files.isRegularFile(directory.resolve("commondir")));
+    }
+
+    /**
+     * The directory the git directory shares refs and objects with, which is the git directory itself unless it is
+     * a linked worktree.
+     */
+    @SneakyThrows
+    public static Path commonDirectory(final Path gitDirectory) {
+        Path commonDir = gitDirectory.resolve("commondir");
+        if (Files.isRegularFile(commonDir)) {
+            String content = new String(Files.readAllBytes(commonDir), StandardCharsets.UTF_8).trim();
+            return gitDirectory.resolve(content).normalize();
+        }
+        return gitDirectory;
+    }
+
+    public Path gitDirectory() {
+        return gitDirectory;
+    }
+
+    /**
+     * Keeps a commit graph with the reachability bitmap of every tagged commit in {@code .git/changelog.graph}, so a
+     * range between tags only touches the commits in between, and later runs only index what is new.
+     */
+    public synchronized void useCommitGraph() {
+        if (commitGraph == null) {
+            commitGraph = CommitGraph.open(gitDirectory, objectDatabase);
+        }
+    }
+
+    /**
+     * The commit graph with the bitmaps of all tagged commits, or {@code null} when none is used.
+     */
+    private synchronized CommitGraph rememberedTags() {
+        if (commitGraph != null && !tagsRemembered) {
+            List<Integer> positions = new ArrayList<>();
+            tagIndex().keySet().forEach(commitId -> positions.add(commitGraph.add(commitId)));
+            commitGraph.rememberAll(positions);
+            taggedPositions = new BitSet();
+            positions.forEach(taggedPositions::set);
+            tagsRemembered = true;
+        }
+        return commitGraph;
+    }
+
+    /**
+     * Reads the commit.
+     */
+    public GitCommit commit(final ObjectId commitId) {
+        GitObject gitObject = objectDatabase.read(commitId);
+        if (gitObject.type() != GitObject.COMMIT) {
+            throw new RepositoryException(String.format("Object %s is not a commit", commitId));
+        }
+        return GitCommit.parse(commitId, gitObject.data());
+    }
+
+    /**
+     * Streams the commits in {@code to..from}, newest first, each read only as it is handed over. An empty bound means
+     * {@code HEAD}, as it does for git.
+     */
+    public void log(final String to, final String from, final Consumer<GitCommit> commitConsumer) {
+        logIds(to, from, commitId -> commitConsumer.accept(commit(commitId)));
+    }
+
+    /**
+     * Streams the ids of the commits in {@code to..from}, newest first, which spares a caller that already knows them
+     * by id from reading the commits. The range is limited before the first id is handed over, so an unknown bound or
+     * a commit missing on the way fails before the consumer has seen anything. While the range is limited at most its
+     * ids are held, never its commits.
+     */
+    public void logIds(final String to, final String from, final Consumer<ObjectId> commitIdConsumer) {
+        ObjectId uninteresting = resolveBound(to);
+        ObjectId interesting = resolveBound(from);
+        BitSet range = limit(uninteresting, interesting);
+        if (range == null) {
+            new RevWalk(objectDatabase).range(uninteresting, interesting, commitIdConsumer);
+        } else {
+            commitGraph.walk(commitGraph.add(interesting), range, commitIdConsumer);
+        }
+    }
+
+    /**
+     * Streams the ids of the commits of several ranges {@code tos[i]..froms[i]} at once, in no particular order, each id
+     * handed over once with the indexes of the ranges holding it. The commit graph limits every range in one
+     * walk of their union, so history the ranges share is walked once; without it each range is walked on its own and
+     * the ids are gathered before the first is handed over.
+     */
+    public void logIds(final List<String> tos, final List<String> froms, final BiConsumer<ObjectId, BitSet> rangesConsumer) {
+        List<ObjectId> uninteresting = new ArrayList<>(tos.size());
+        List<ObjectId> interesting = new ArrayList<>(froms.size());
+        for (int range = 0; range < tos.size(); range++) {
+            uninteresting.add(resolveBound(tos.get(range)));
+            interesting.add(resolveBound(froms.get(range)));
+        }
+        Map<Integer, BitSet> ranges = limit(uninteresting, interesting);
+        if (ranges != null) {
+            ranges.forEach((position, holding) -> rangesConsumer.accept(commitGraph.id(position), holding));
+            return;
+        }
+        Map<ObjectId, BitSet> walked = new LinkedHashMap<>();
+        for (int range = 0; range < tos.size(); range++) {
+            int index = range;
+            new RevWalk(objectDatabase).range(uninteresting.get(range), interesting.get(range),
+                    commitId -> walked.computeIfAbsent(commitId, id -> new BitSet()).set(index));
+        }
+        walked.forEach(rangesConsumer);
+    }
+
+    /**
+     * The positions of each range as limited by the commit graph in one walk, or {@code null} when there is none or it
+     * cannot. Ranges sharing a lower bound share the commits it excludes.
+     */
+    private Map<Integer, BitSet> limit(final List<ObjectId> uninteresting, final List<ObjectId> interesting) {
+        if (commitGraph == null) {
+            return null;
+        }
+        try {
+            CommitGraph graph = rememberedTags();
+            Map<ObjectId, BitSet> excludedByBound = new HashMap<>();
+            int[] starts = new int[interesting.size()];
+            BitSet[] excluded = new BitSet[uninteresting.size()];
+            for (int range = 0; range < starts.length; range++) {
+                starts[range] = graph.add(interesting.get(range));
+                excluded[range] = excludedByBound.computeIfAbsent(uninteresting.get(range), bound -> graph.reachable(graph.add(bound), false));
+            }
+            return graph.differences(starts, excluded);
+        } catch (RepositoryException e) {
+            Logger.debug("Commit graph cannot limit {} range(s), walking instead: {}", interesting.size(), e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * The positions in {@code uninteresting..interesting} as limited by the commit graph, or {@code null} when there
+     * is none or it cannot.
+     */
+    private BitSet limit(final ObjectId uninteresting, final ObjectId interesting) {
+        if (commitGraph == null) {
+            return null;
+        }
+        try {
+            CommitGraph graph = rememberedTags();
+            return graph.difference(graph.add(interesting), graph.reachable(graph.add(uninteresting), false));
+        } catch (RepositoryException e) {
+            Logger.debug("Commit graph cannot limit {}..{}, walking instead: {}", uninteresting, interesting, e.getMessage());
+        }
+        return null;
+    }
+
+    private ObjectId resolveBound(final String bound) {
+        return refDatabase.resolveCommit(bound.isEmpty() ? HEAD : bound);
+    }
+
+    /**
+     * The paths the commit changed relative to each of its parents, like {@code git diff-tree -r --name-only}, one set
+     * per parent; a root commit changes every path of its tree. A changed directory the filter declines is reported by
+     * its own path instead of the files below it, which spares reading its subtrees.
+     */
+    public List<Set<String>> changedPaths(final GitCommit gitCommit, final Predicate<String> descend) {
+        ObjectId[] parents = gitCommit.parents();
+        List<Set<String>> changedPaths = new ArrayList<>(Math.max(1, parents.length));
+        int parent = 0;
+        do {
+            Set<String> changedFromParent = new LinkedHashSet<>();
+            new TreeDiff(objectDatabase, descend, changedFromParent::add).diff(parents.length == 0 ? null : tree(parents[parent]), gitCommit.tree());
+            changedPaths.add(changedFromParent);
+            parent++;
+        } while (parent < parents.length);
+        return changedPaths;
+    }
+
+    private ObjectId tree(final ObjectId commitId) {
+        return GitCommit.parse(commitId, objectDatabase.read(commitId).data()).tree();
+    }
+
+    /**
+     * The names of the local branches, sorted.
+     */
+    public List<String> branches() {
+        List<String> branches = new ArrayList<>();
+        refDatabase.refs(BRANCH_PREFIX).keySet().forEach(ref -> branches.add(ref.substring(BRANCH_PREFIX.length())));
+        return branches;
+    }
+
+    /**
+     * The tags reachable from the revision, oldest commit first.
+     */
+    public List<Tag> tags(final String revision) {
+        List<Tag> tags = new ArrayList<>();
+        if (commitGraph != null) {
+            CommitGraph graph = rememberedTags();
+            BitSet reachable = graph.reachableOf(graph.add(refDatabase.resolveCommit(revision)), taggedPositions());
+            tagIndex().forEach((commitId, names) -> {
+                int position = graph.add(commitId);
+                if (reachable.get(position)) {
+                    names.forEach(name -> tags.add(new Tag(name, commitId, graph.commitTime(position))));
+                }
+            });
+        } else {
+            Set<ObjectId> reachable = new HashSet<>();
+            new RevWalk(objectDatabase).range(null, refDatabase.resolveCommit(revision), reachable::add);
+            tagIndex().forEach((commitId, names) -> {
+                if (reachable.contains(commitId)) {
+                    long commitTime = commit(commitId).commitTime();
+                    names.forEach(name -> tags.add(new Tag(name, commitId, commitTime)));
+                }
+            });
+        }
+        tags.sort(Comparator.comparingLong(Tag::commitTime).thenComparing(Tag::name));
+        return tags;
+    }
+
+    /**
+     * The tag nearest to the revision, like {@code git describe --tags --abbrev=0 <revision>}, without touching the
+     * working tree: of the first tagged commits met walking back in commit date order, the one with the fewest commits
+     * between it and the revision. When a commit carries several tags, annotated tags are preferred, then the greatest
+     * name.
+     */
+    public Optional<Tag> nearestTag(final String revision) {
+        Map<ObjectId, List<String>> tagIndex = tagIndex();
+        ObjectId start = refDatabase.resolveCommit(revision);
+        if (commitGraph != null) {
+            try {
+                CommitGraph graph = rememberedTags();
+                int position = graph.describe(graph.add(start), taggedPositions());
+                return position < 0 ? Optional.empty()
+                        : Optional.of(new Tag(tagIndex.get(graph.id(position)).get(0), graph.id(position), graph.commitTime(position)));
+            } catch (RepositoryException e) {
+                Logger.debug("Commit graph cannot find the tag nearest to {}, walking instead: {}", revision, e.getMessage());
+            }
+        }
+        return Optional.ofNullable(new RevWalk(objectDatabase).describe(start, tagIndex::containsKey))
+                .map(gitCommit -> new Tag(tagIndex.get(gitCommit.id()).get(0), gitCommit.id(), gitCommit.commitTime()));
+    }
+
+    /**
+     * Forgets the refs and packs read so far, so that commits and tags added since are seen. What the commit graph
+     * indexed is kept.
+     */
+    public synchronized void refresh() {
+        refDatabase.refresh();
+        objectDatabase.refresh();
+        tagIndex = null;
+        tagsRemembered = false;
+    }
+
+    private synchronized BitSet taggedPositions() {
+        rememberedTags();
+        return taggedPositions;
+    }
+
+    /**
+     * Peeled commit to tag names, built once per repository. Names on the same commit are ordered by preference:
+     * annotated before lightweight, then descending name.
+     */
+    private synchronized Map<ObjectId, List<String>> tagIndex() {
+        if (tagIndex == null) {
+            Map<ObjectId, List<String>> index = new HashMap<>();
+            Map<String, Boolean> annotated = new HashMap<>();
+            refDatabase.refs(TAG_PREFIX).forEach((ref, objectId) -> {
+                ObjectId commitId = refDatabase.peel(objectId);
+                if (commitId != null) {
+                    String name = ref.substring(TAG_PREFIX.length());
+                    annotated.put(name, !commitId.equals(objectId));
+                    index.computeIfAbsent(commitId, key -> new ArrayList<>()).add(name);
+                }
+            });
+            Comparator<String> preference = Comparator.comparing((String name) -> !annotated.get(name)).thenComparing(Comparator.reverseOrder());
+            index.values().forEach(names -> names.sort(preference));
+            tagIndex = index;
+        }
+        return tagIndex;
+    }
+
+    /**
+     * Writes out what the commit graph indexed so far, for a repository kept open between runs.
+     */
+    public synchronized void flush() throws IOException {
+        if (commitGraph != null) {
+            commitGraph.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (commitGraph != null) {
+            commitGraph.close();
+        }
+        objectDatabase.close();
+    }
+}
@@ -0,0 +1,13 @@
+package net.avdw.git.changelog.repository;
+
+public class RepositoryException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public RepositoryException(final String message) {
+        super(message);
+    }
+
+    public RepositoryException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
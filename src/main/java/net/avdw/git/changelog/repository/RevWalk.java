@@ -0,0 +1,182 @@
+package net.avdw.git.changelog.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Walks {@code uninteresting..interesting} in commit date order, the same way {@code git log} limits a range. Commits
+ * are kept without their messages while walking, so a long range costs little more than its ids.
+ */
+class RevWalk {
+    private static final int SLOP = 5;
+    private final ObjectDatabase objectDatabase;
+    private final Map<ObjectId, Node> nodes = new HashMap<>();
+    private final PriorityQueue<Node> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Node node) -> node.commit.commitTime()).reversed().thenComparingLong(node -> node.sequence));
+    private long sequence;
+    private int interestingQueued;
+
+    RevWalk(final ObjectDatabase objectDatabase) {
+        this.objectDatabase = objectDatabase;
+    }
+
+    /**
+     * Hands over the ids of the commits reachable from {@code interesting} but not from {@code uninteresting}, newest
+     * first, once the whole range is limited. Without an uninteresting commit the whole history of {@code interesting}
+     * is walked.
+     */
+    void range(final ObjectId uninteresting, final ObjectId interesting, final Consumer<ObjectId> commitIdConsumer) {
+        enqueue(node(interesting));
+        if (uninteresting != null) {
+            Node boundary = node(uninteresting);
+            markUninteresting(boundary);
+            enqueue(boundary);
+        }
+
+        List<Node> candidates = new ArrayList<>();
+        long oldestCandidateTime = Long.MAX_VALUE;
+        int slop = SLOP;
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            node.processed = true;
+            if (!node.uninteresting) {
+                interestingQueued--;
+            }
+            for (ObjectId parentId : node.commit.parents()) {
+                Node parent = node(parentId);
+                if (node.uninteresting) {
+                    markUninteresting(parent);
+                }
+                enqueue(parent);
+            }
+            if (node.uninteresting) {
+                slop = stillInteresting(oldestCandidateTime, slop);
+                if (slop == 0) {
+                    break;
+                }
+            } else {
+                oldestCandidateTime = node.commit.commitTime();
+                candidates.add(node);
+            }
+        }
+
+        for (Node candidate : candidates) {
+            if (!candidate.uninteresting) {
+                commitIdConsumer.accept(candidate.commit.id());
+            }
+        }
+    }
+
+    /**
+     * The tagged commit {@code git describe --tags} picks for {@code start}, or {@code null} when none is reachable: of
+     * the first {@link TagCandidates#MAX} tagged commits met in commit date order, the one with the fewest commits
+     * reachable from {@code start} but not from itself. The walk stops once every commit left is reachable from the
+     * best candidate. The commit comes without its message.
+     */
+    GitCommit describe(final ObjectId start, final Predicate<ObjectId> tagged) {
+        TagCandidates<GitCommit> candidates = new TagCandidates<>();
+        int walked = 0;
+        enqueue(node(start));
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            node.processed = true;
+            if (tagged.test(node.commit.id())) {
+                if (candidates.isFull()) {
+                    break;
+                }
+                node.flags |= candidates.add(node.commit, walked);
+            }
+            walked++;
+            candidates.count(node.flags);
+            for (ObjectId parentId : node.commit.parents()) {
+                Node parent = node(parentId);
+                enqueue(parent);
+                parent.flags |= node.flags;
+            }
+            if (!candidates.isEmpty()) {
+                int bestFlag = candidates.bestFlag();
+                if (queue.stream().allMatch(queued -> (queued.flags & bestFlag) != 0)) {
+                    break;
+                }
+            }
+        }
+        return candidates.bestCommit();
+    }
+
+    /**
+     * Keeps walking while the queue still holds interesting commits, or uninteresting ones newer than the oldest
+     * candidate that may yet turn it uninteresting, as git does to cope with clock skew.
+     */
+    private int stillInteresting(final long oldestCandidateTime, final int slop) {
+        if (queue.isEmpty()) {
+            return 0;
+        } else if (oldestCandidateTime <= queue.peek().commit.commitTime() || interestingQueued > 0) {
+            return SLOP;
+        }
+        return slop - 1;
+    }
+
+    private void enqueue(final Node node) {
+        if (!node.queued) {
+            node.queued = true;
+            queue.add(node);
+            if (!node.uninteresting) {
+                interestingQueued++;
+            }
+        }
+    }
+
+    private void markUninteresting(final Node start) {
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            if (node.uninteresting) {
+                continue;
+            }
+            node.uninteresting = true;
+            if (node.queued && !node.processed) {
+                interestingQueued--;
+            } else if (node.processed) {
+                for (ObjectId parentId : node.commit.parents()) {
+                    pending.push(node(parentId));
+                }
+            }
+        }
+    }
+
+    private Node node(final ObjectId objectId) {
+        Node node = nodes.get(objectId);
+        if (node == null) {
+            GitObject gitObject = objectDatabase.read(objectId);
+            if (gitObject.type() != GitObject.COMMIT) {
+                throw new RepositoryException(String.format("Object %s is not a commit", objectId));
+            }
+            node = new Node(GitCommit.parse(objectId, gitObject.data()).withoutMessage(), sequence++);
+            nodes.put(objectId, node);
+        }
+        return node;
+    }
+
+    private static final class Node {
+        private final GitCommit commit;
+        private final long sequence;
+        private boolean queued;
+        private boolean processed;
+        private boolean uninteresting;
+        private int flags;
+
+        Node(final GitCommit commit, final long sequence) {
+            this.commit = commit;
+            this.sequence = sequence;
+        }
+    }
+}
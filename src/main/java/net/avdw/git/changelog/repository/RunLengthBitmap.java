@@ -0,0 +1,104 @@
+package net.avdw.git.changelog.repository;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Packs the words of a bitmap the way EWAH does: runs of all-zero or all-one words are counted instead of stored, and
+ * only the words in between are kept as they are. The reachability bitmap of a tag is mostly one long run of ones
+ * over its ancestors, so it shrinks to a handful of words however long the history is.
+ *
+ * <p>The packed form is a sequence of groups, each a marker word followed by its literal words. A marker holds the
+ * fill bit in bit 63, the run length in words in bits 32 to 62 and the number of literal words in bits 0 to 31.
+ */
+final class RunLengthBitmap {
+    private static final long FILL_BIT = 1L << 63;
+    private static final int RUN_SHIFT = 32;
+    private static final long MAX_RUN = (1L << 31) - 1;
+    private static final long MAX_LITERALS = (1L << 32) - 1;
+    private static final long LITERAL_MASK = MAX_LITERALS;
+
+    private RunLengthBitmap() {
+    }
+
+    static long[] pack(final BitSet bitSet) {
+        long[] words = bitSet.toLongArray();
+        long[] packed = new long[Math.max(4, words.length / 8)];
+        int size = 0;
+        int word = 0;
+        while (word < words.length) {
+            long fill = words[word] == -1L ? -1L : 0L;
+            int runStart = word;
+            while (word < words.length && words[word] == fill && word - runStart < MAX_RUN) {
+                word++;
+            }
+            int literalStart = word;
+            while (word < words.length && words[word] != 0L && words[word] != -1L && word - literalStart < MAX_LITERALS) {
+                word++;
+            }
+            int literals = word - literalStart;
+            if (packed.length < size + 1 + literals) {
+                packed = Arrays.copyOf(packed, Math.max(size + 1 + literals, packed.length * 2));
+            }
+            packed[size++] = (fill == -1L ? FILL_BIT : 0L) | (long) (literalStart - runStart) << RUN_SHIFT | literals;
+            System.arraycopy(words, literalStart, packed, size, literals);
+            size += literals;
+        }
+        return Arrays.copyOf(packed, size);
+    }
+
+    /**
+     * Sets the bits of the packed bitmap in the target.
+     */
+    static void or(final long[] packed, final BitSet target) {
+        long word = 0;
+        int index = 0;
+        while (index < packed.length) {
+            long marker = packed[index++];
+            long run = (marker & ~FILL_BIT) >>> RUN_SHIFT;
+            if ((marker & FILL_BIT) != 0 && run > 0) {
+                target.set(Math.toIntExact(word * Long.SIZE), Math.toIntExact((word + run) * Long.SIZE));
+            }
+            word += run;
+            long literals = marker & LITERAL_MASK;
+            for (long literal = 0; literal < literals; literal++) {
+                long bits = packed[index++];
+                while (bits != 0) {
+                    target.set(Math.toIntExact(word * Long.SIZE + Long.numberOfTrailingZeros(bits)));
+                    bits &= bits - 1;
+                }
+                word++;
+            }
+        }
+    }
+
+    /**
+     * Whether the bit is set, read from the packed words without unpacking them.
+     */
+    static boolean get(final long[] packed, final int bit) {
+        long target = bit / Long.SIZE;
+        long word = 0;
+        int index = 0;
+        while (index < packed.length) {
+            long marker = packed[index++];
+            long run = (marker & ~FILL_BIT) >>> RUN_SHIFT;
+            if (target < word + run) {
+                return (marker & FILL_BIT) != 0;
+            }
+            word += run;
+            long literals = marker & LITERAL_MASK;
+            if (target < word + literals) {
+                return (packed[index + (int) (target - word)] & 1L << bit % Long.SIZE) != 0;
+            }
+            word += literals;
+            index += (int) literals;
+        }
+        return false;
+    }
+
+    static BitSet unpack(final long[] packed) {
+        BitSet bitSet = new BitSet();
+        or(packed, bitSet);
+        return bitSet;
+    }
+}
@@ -0,0 +1,28 @@
+package net.avdw.git.changelog.repository;
+
+public final class Tag {
+    private final ObjectId commitId;
+    private final long commitTime;
+    private final String name;
+
+    Tag(final String name, final ObjectId commitId, final long commitTime) {
+        this.name = name;
+        this.commitId = commitId;
+        this.commitTime = commitTime;
+    }
+
+    public ObjectId commitId() {
+        return commitId;
+    }
+
+    /**
+     * The commit time of the tagged commit, in seconds since the epoch.
+     */
+    public long commitTime() {
+        return commitTime;
+    }
+
+    public String name() {
+        return name;
+    }
+}
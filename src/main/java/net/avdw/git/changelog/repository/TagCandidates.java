@@ -0,0 +1,71 @@
+package net.avdw.git.changelog.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tagged commits {@code git describe} weighs against each other while it walks back from a commit in commit date
+ * order. Each candidate owns a flag bit that the walk hands from a commit to its parents, and its depth counts the
+ * commits walked that do not carry its flag, i.e. are not reachable from it. The best candidate has the smallest depth,
+ * ties going to the one found first. Like git, only the first {@link #MAX} tagged commits met are weighed.
+ */
+final class TagCandidates<C> {
+    static final int MAX = 10;
+    private final List<C> commits = new ArrayList<>(MAX);
+    private final int[] depths = new int[MAX];
+
+    boolean isFull() {
+        return commits.size() == MAX;
+    }
+
+    boolean isEmpty() {
+        return commits.isEmpty();
+    }
+
+    /**
+     * Adds the tagged commit, met after walking that many other commits.
+     *
+     * @return the flag of the new candidate
+     */
+    int add(final C commit, final int walked) {
+        depths[commits.size()] = walked;
+        commits.add(commit);
+        return 1 << commits.size() - 1;
+    }
+
+    /**
+     * Counts a walked commit with the flags it carries.
+     */
+    void count(final int flags) {
+        for (int candidate = 0; candidate < commits.size(); candidate++) {
+            if ((flags & 1 << candidate) == 0) {
+                depths[candidate]++;
+            }
+        }
+    }
+
+    private int best() {
+        int best = 0;
+        for (int candidate = 1; candidate < commits.size(); candidate++) {
+            if (depths[candidate] < depths[best]) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The flag of the best candidate so far. Once every commit still to walk carries it, no other candidate can do
+     * better: the depths of the others only grow, and a candidate found later starts at least as deep.
+     */
+    int bestFlag() {
+        return 1 << best();
+    }
+
+    /**
+     * The best candidate, or {@code null} when no tagged commit was met.
+     */
+    C bestCommit() {
+        return commits.isEmpty() ? null : commits.get(best());
+    }
+}
@@ -0,0 +1,156 @@
+package net.avdw.git.changelog.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Reports the paths that differ between two trees, as {@code git diff-tree -r --name-only} does. Subtrees with the
+ * same id are skipped without being read. A changed directory the filter does not want to look into is reported as
+ * a whole, by its own path.
+ */
+class TreeDiff {
+    private static final byte[] EMPTY_TREE = new byte[0];
+    private final ObjectDatabase objectDatabase;
+    private final Predicate<String> descend;
+    private final Consumer<String> changedPathConsumer;
+
+    TreeDiff(final ObjectDatabase objectDatabase, final Predicate<String> descend, final Consumer<String> changedPathConsumer) {
+        this.objectDatabase = objectDatabase;
+        this.descend = descend;
+        this.changedPathConsumer = changedPathConsumer;
+    }
+
+    /**
+     * @param oldTree the tree before, or {@code null} for a root commit
+     */
+    void diff(final ObjectId oldTree, final ObjectId newTree) {
+        diff("", read(oldTree), read(newTree));
+    }
+
+    private void diff(final String directory, final byte[] oldData, final byte[] newData) {
+        Entry oldEntry = new Entry(oldData);
+        Entry newEntry = new Entry(newData);
+        oldEntry.next();
+        newEntry.next();
+        while (oldEntry.present() || newEntry.present()) {
+            int order = !oldEntry.present() ? 1 : !newEntry.present() ? -1 : oldEntry.compareTo(newEntry);
+            if (order < 0) {
+                changed(directory, oldEntry, null);
+                oldEntry.next();
+            } else if (order > 0) {
+                changed(directory, null, newEntry);
+                newEntry.next();
+            } else {
+                if (!oldEntry.sameObject(newEntry) || oldEntry.mode != newEntry.mode) {
+                    changed(directory, oldEntry, newEntry);
+                }
+                oldEntry.next();
+                newEntry.next();
+            }
+        }
+    }
+
+    /**
+     * Either entry may be missing, but when both are present they carry the same name and kind.
+     */
+    private void changed(final String directory, final Entry oldEntry, final Entry newEntry) {
+        Entry named = newEntry == null ? oldEntry : newEntry;
+        String path = directory.isEmpty() ? named.name() : directory + '/' + named.name();
+        if (named.isTree() && descend.test(path)) {
+            diff(path, oldEntry == null ? EMPTY_TREE : read(oldEntry.id()), newEntry == null ? EMPTY_TREE : read(newEntry.id()));
+        } else {
+            changedPathConsumer.accept(path);
+        }
+    }
+
+    private byte[] read(final ObjectId treeId) {
+        if (treeId == null) {
+            return EMPTY_TREE;
+        }
+        GitObject gitObject = objectDatabase.read(treeId);
+        if (gitObject.type() != GitObject.TREE) {
+            throw new RepositoryException(String.format("Object %s is not a tree", treeId));
+        }
+        return gitObject.data();
+    }
+
+    /**
+     * Cursor over the {@code mode SP name NUL id[20]} entries of a tree.
+     */
+    private static final class Entry {
+        private static final int TYPE_MASK = 0xf000;
+        private static final int TREE_MODE = 0x4000;
+        private final byte[] data;
+        private int position;
+        private int mode;
+        private int nameStart;
+        private int nameEnd;
+
+        Entry(final byte[] data) {
+            this.data = data;
+        }
+
+        void next() {
+            if (position >= data.length) {
+                nameStart = -1;
+                return;
+            }
+            mode = 0;
+            while (data[position] != ' ') {
+                mode = (mode << 3) + (data[position++] - '0');
+            }
+            nameStart = ++position;
+            while (data[position] != 0) {
+                position++;
+            }
+            nameEnd = position;
+            position += 1 + ObjectId.LENGTH;
+            if (position > data.length) {
+                throw new RepositoryException("Truncated tree entry");
+            }
+        }
+
+        boolean present() {
+            return nameStart >= 0;
+        }
+
+        boolean isTree() {
+            return (mode & TYPE_MASK) == TREE_MODE;
+        }
+
+        ObjectId id() {
+            return ObjectId.fromRaw(data, nameEnd + 1);
+        }
+
+        String name() {
+            return new String(data, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8);
+        }
+
+        boolean sameObject(final Entry other) {
+            return Arrays.equals(data, nameEnd + 1, nameEnd + 1 + ObjectId.LENGTH,
+                    other.data, other.nameEnd + 1, other.nameEnd + 1 + ObjectId.LENGTH);
+        }
+
+        /**
+         * Git orders entries by name, comparing a tree as if its name ended in a slash. A file and a tree of the same
+         * name therefore compare as different entries.
+         */
+        int compareTo(final Entry other) {
+            int length = Math.min(nameEnd - nameStart, other.nameEnd - other.nameStart);
+            int order = Arrays.compareUnsigned(data, nameStart, nameStart + length, other.data, other.nameStart, other.nameStart + length);
+            if (order != 0) {
+                return order;
+            }
+            return Integer.compare(terminator(length), other.terminator(length));
+        }
+
+        private int terminator(final int length) {
+            if (nameStart + length < nameEnd) {
+                return data[nameStart + length] & 0xff;
+            }
+            return isTree() ? '/' : 0;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package net.avdw.git.changelog.temp;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import lombok.SneakyThrows;
 import org.codehaus.plexus.util.FileUtils;
 import org.tinylog.Logger;
@@ -9,12 +11,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+/**
+ * Binds a {@link Temp} directory that is removed on exit. The directory is only created, and the shutdown hook only
+ * registered, when something asks for it.
+ */
 public class TempModule extends AbstractModule {
-    @Override
-    protected void configure() {
+    @Provides
+    @Singleton
+    @Temp
+    Path tmpDir() {
         Path tmpDir = Paths.get("tmp");
         tmpDir.toFile().mkdirs();
-        bind(Path.class).annotatedWith(Temp.class).toInstance(tmpDir);
 
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
@@ -26,5 +33,6 @@ public class TempModule extends AbstractModule {
                 }
             }
         });
+        return tmpDir;
     }
 }
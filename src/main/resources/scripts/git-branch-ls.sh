@@ -0,0 +1,2 @@
+#!/usr/bin/env bash
+git for-each-ref --format="%(refname:short)" refs/heads
\ No newline at end of file
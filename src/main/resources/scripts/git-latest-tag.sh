@@ -1,2 +1,2 @@
 #!/usr/bin/env bash
-git describe --tags --abbrev=0
\ No newline at end of file
+git describe --tags --abbrev=0 "${1:-HEAD}"
\ No newline at end of file
@@ -29,4 +29,10 @@ while :; do
   shift
 done
 
-git log --pretty='{subject: "%s"}' "${to}".."${from}"
+# One record per commit: id, author, author time, subject and body, each terminated by NUL, then a record separator.
+# Any remaining arguments limit the log to the commits touching those paths.
+if [ $# -gt 0 ]; then
+  git log --pretty='tformat:%H%x00%an%x00%at%x00%s%x00%b%x00%x1e' "${to}".."${from}" -- "$@"
+else
+  git log --pretty='tformat:%H%x00%an%x00%at%x00%s%x00%b%x00%x1e' "${to}".."${from}"
+fi
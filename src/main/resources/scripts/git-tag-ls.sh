@@ -0,0 +1,2 @@
+#!/usr/bin/env bash
+git for-each-ref --merged="$1" --format="%(refname:short) %(committerdate:unix)%(*committerdate:unix)" refs/tags
\ No newline at end of file
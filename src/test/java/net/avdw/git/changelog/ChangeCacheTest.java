@@ -0,0 +1,123 @@
+package net.avdw.git.changelog;
+
+import net.avdw.git.changelog.repository.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ChangeCacheTest {
+    private static final ObjectId FIRST = ObjectId.fromHex("1111111111111111111111111111111111111111");
+    private static final ObjectId SECOND = ObjectId.fromHex("2222222222222222222222222222222222222222");
+    private static final ObjectId THIRD = ObjectId.fromHex("1a1a1a1a1a1a1a1a1a1a1a1a1a1a1a1a1a1a1a1a");
+    private GitChangeClassifier classifier;
+    private Path gitDirectory;
+
+    private static GitChange gitChange(final String subject, final ChangeType changeType) {
+        GitChange gitChange = new GitChange();
+        gitChange.subject = subject;
+        gitChange.changeType = changeType;
+        return gitChange;
+    }
+
+    @Before
+    public void beforeTest() throws Exception {
+        classifier = new GitChangeClassifier(Map.of(ChangeType.ADDED, List.of("add"), ChangeType.FIXED, List.of("fix")));
+        gitDirectory = Files.createTempDirectory("git");
+    }
+
+    @Test
+    public void testReopenKeepsChanges() throws Exception {
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            assertNull(changeCache.get(FIRST));
+            changeCache.put(FIRST, gitChange("Add feature", ChangeType.ADDED));
+            GitChange breaking = gitChange("Fix typo — ünïcode", ChangeType.FIXED);
+            breaking.breaking = true;
+            changeCache.put(SECOND, breaking);
+        }
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            assertEquals(2, changeCache.size());
+            assertEquals("Add feature", changeCache.get(FIRST).subject);
+            assertFalse(changeCache.get(FIRST).breaking);
+            assertTrue(changeCache.get(SECOND).breaking);
+            assertEquals(ChangeType.FIXED, changeCache.get(SECOND).changeType);
+            assertEquals("Fix typo — ünïcode", changeCache.get(SECOND).subject);
+        }
+    }
+
+    @Test
+    public void testRuleChangeInvalidates() throws Exception {
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            changeCache.put(FIRST, gitChange("Add feature", ChangeType.ADDED));
+        }
+        GitChangeClassifier otherClassifier = new GitChangeClassifier(Map.of(ChangeType.CHANGED, List.of("add")));
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, otherClassifier)) {
+            assertNull(changeCache.get(FIRST));
+            changeCache.put(SECOND, gitChange("Add more", ChangeType.CHANGED));
+        }
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            assertNull(changeCache.get(FIRST));
+            assertNull(changeCache.get(SECOND));
+        }
+    }
+
+    @Test
+    public void testIndexIsMergedOnClose() throws Exception {
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            changeCache.put(SECOND, gitChange("Fix typo", ChangeType.FIXED));
+            changeCache.put(FIRST, gitChange("Add feature", ChangeType.ADDED));
+            assertEquals("Fix typo", changeCache.get(SECOND).subject);
+        }
+        Path indexPath = gitDirectory.resolve(ChangeCache.INDEX_FILE_NAME);
+        long indexLength = Files.size(indexPath);
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            assertEquals(2, changeCache.size());
+            changeCache.put(THIRD, gitChange("Add more", ChangeType.ADDED));
+            changeCache.put(FIRST, gitChange("Fix feature", ChangeType.FIXED));
+            assertEquals("Add more", changeCache.get(THIRD).subject);
+        }
+        assertEquals(indexLength + ObjectId.LENGTH + Long.BYTES, Files.size(indexPath));
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            assertEquals(3, changeCache.size());
+            assertEquals("Add feature", changeCache.get(FIRST).subject);
+            assertEquals(ChangeType.FIXED, changeCache.get(SECOND).changeType);
+            assertEquals("Add more", changeCache.get(THIRD).subject);
+            assertNull(changeCache.get(ObjectId.fromHex("3333333333333333333333333333333333333333")));
+        }
+    }
+
+    @Test
+    public void testPartialRecordIsDropped() throws Exception {
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            changeCache.put(FIRST, gitChange("Add feature", ChangeType.ADDED));
+            changeCache.put(SECOND, gitChange("Fix typo", ChangeType.FIXED));
+        }
+        Path cachePath = gitDirectory.resolve(ChangeCache.FILE_NAME);
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            assertNotNull(changeCache.get(FIRST));
+            assertNull(changeCache.get(SECOND));
+            changeCache.put(SECOND, gitChange("Fix typo", ChangeType.FIXED));
+        }
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            assertEquals(2, changeCache.size());
+        }
+    }
+
+    @Test
+    public void testUnclassifiedChangeIsNotCached() throws Exception {
+        try (ChangeCache changeCache = ChangeCache.open(gitDirectory, classifier)) {
+            changeCache.put(FIRST, gitChange("Add feature", null));
+            assertNull(changeCache.get(FIRST));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package net.avdw.git.changelog;
+
+import net.avdw.git.changelog.metrics.Metrics;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CommitStoreTest {
+    private static GitChange gitChange(final int number, final ChangeType changeType) {
+        GitChange gitChange = new GitChange();
+        gitChange.id = number % 5 == 0 ? "abc" + number : String.format("%040x", number * 7919L);
+        gitChange.author = number % 4 == 0 ? "Ådne Øvergård" : "Author " + number % 7;
+        gitChange.subject = "Change " + number + " — ünïcode";
+        gitChange.body = number % 2 == 0 ? "" : "Details\n\nSigned-off-by: Ådne";
+        gitChange.time = 1_600_000_000L + number;
+        gitChange.changeType = changeType;
+        gitChange.breaking = number % 3 == 0;
+        return gitChange;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        CommitStore commitStore = new CommitStore();
+        for (int number = 0; number < 1000; number++) {
+            assertEquals(number, commitStore.add(gitChange(number, ChangeType.values()[number % ChangeType.values().length])));
+        }
+        assertEquals(1000, commitStore.size());
+        for (int number = 0; number < 1000; number++) {
+            GitChange expected = gitChange(number, ChangeType.values()[number % ChangeType.values().length]);
+            GitChange actual = commitStore.get(number);
+            assertEquals(expected.id, actual.id);
+            assertEquals(expected.author, actual.author);
+            assertEquals(expected.subject, actual.subject);
+            assertEquals(expected.body, actual.body);
+            assertEquals(expected.time, actual.time);
+            assertEquals(expected.changeType, actual.changeType);
+            assertEquals(expected.breaking, actual.breaking);
+            assertEquals(GitTrailers.parse(expected.body), actual.trailers);
+        }
+    }
+
+    @Test
+    public void testAddAllShiftsIndexes() {
+        CommitStore older = new CommitStore();
+        older.add(gitChange(1, ChangeType.FIXED));
+        int olderArenaSize = older.arenaSize();
+        CommitStore newer = new CommitStore();
+        newer.add(gitChange(2, ChangeType.ADDED));
+        newer.add(gitChange(3, ChangeType.FIXED));
+        CommitStore.IndexList olderFixed = older.new IndexList();
+        olderFixed.add(0);
+        CommitStore.IndexList newerFixed = newer.new IndexList();
+        newerFixed.add(1);
+
+        int shift = older.addAll(newer);
+        olderFixed.addFirst(newerFixed, shift);
+
+        assertEquals(3, older.size());
+        assertEquals(gitChange(2, ChangeType.ADDED).subject, older.get(1).subject);
+        assertEquals(List.of(gitChange(3, ChangeType.FIXED).subject, gitChange(1, ChangeType.FIXED).subject),
+                List.of(olderFixed.get(0).subject, olderFixed.get(1).subject));
+        assertEquals(olderArenaSize + newer.arenaSize(), older.arenaSize());
+        assertTrue(older.get(2).breaking);
+    }
+
+    @Test
+    public void testSinkFilesIntoIndexLists() {
+        ChangeTypeSink changeTypeSink = new ChangeTypeSink(new GitChangeClassifier(Map.of()), new Metrics());
+        changeTypeSink.accept(gitChange(1, ChangeType.ADDED));
+        changeTypeSink.accept(gitChange(2, ChangeType.FIXED));
+        changeTypeSink.accept(gitChange(4, ChangeType.ADDED));
+        assertEquals(2, changeTypeSink.categorisedGitChangeMap().get(ChangeType.ADDED).size());
+        assertEquals(gitChange(4, ChangeType.ADDED).subject, changeTypeSink.categorisedGitChangeMap().get(ChangeType.ADDED).get(1).subject);
+        assertFalse(changeTypeSink.hasBreakingChange());
+
+        ChangeTypeSink newer = new ChangeTypeSink(new GitChangeClassifier(Map.of()), new Metrics());
+        newer.accept(gitChange(6, ChangeType.ADDED));
+        changeTypeSink.addNewer(newer);
+        assertEquals(gitChange(6, ChangeType.ADDED).subject, changeTypeSink.categorisedGitChangeMap().get(ChangeType.ADDED).get(0).subject);
+        assertTrue(changeTypeSink.hasBreakingChange());
+    }
+}
@@ -0,0 +1,45 @@
+package net.avdw.git.changelog;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConventionalCommitTest {
+
+    @Test
+    public void testHeader() {
+        String subject = "feat(repository walker)!: read packs";
+        long header = ConventionalCommit.parse(subject);
+        assertEquals("feat", subject.substring(0, ConventionalCommit.typeEnd(header)));
+        assertEquals("repository walker", subject.substring(ConventionalCommit.scopeStart(header), ConventionalCommit.scopeEnd(header)));
+        assertEquals("read packs", subject.substring(ConventionalCommit.descriptionStart(header)));
+        assertTrue(ConventionalCommit.isBreaking(header));
+    }
+
+    @Test
+    public void testHeaderWithoutScope() {
+        long header = ConventionalCommit.parse("fix: x");
+        assertEquals(3, ConventionalCommit.typeEnd(header));
+        assertEquals(ConventionalCommit.scopeStart(header), ConventionalCommit.scopeEnd(header));
+        assertEquals(5, ConventionalCommit.descriptionStart(header));
+        assertFalse(ConventionalCommit.isBreaking(header));
+    }
+
+    @Test
+    public void testNotConventional() {
+        for (String subject : new String[]{"", "Merge branch 'x'", "fix:no space", "fix: ", "fix:  leading blank",
+                "fix()", "fix(): empty scope", "fix(a(b)): nested", "fix(open: x", "1fix: digit", "fix !: x", "fix"}) {
+            assertEquals(subject, ConventionalCommit.NOT_CONVENTIONAL, ConventionalCommit.parse(subject));
+        }
+        assertFalse(ConventionalCommit.isBreaking(ConventionalCommit.NOT_CONVENTIONAL));
+    }
+
+    @Test
+    public void testBreakingFooter() {
+        assertTrue(ConventionalCommit.hasBreakingFooter("BREAKING CHANGE: first line"));
+        assertTrue(ConventionalCommit.hasBreakingFooter("Body\n\nBREAKING-CHANGE: footer"));
+        assertFalse(ConventionalCommit.hasBreakingFooter("breaking change: lower case"));
+        assertFalse(ConventionalCommit.hasBreakingFooter("BREAKING CHANGE:no space"));
+        assertFalse(ConventionalCommit.hasBreakingFooter(null));
+    }
+}
@@ -0,0 +1,91 @@
+package net.avdw.git.changelog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DaemonServerTest {
+    private static final String TOKEN = "test-token";
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private Path workingDirectory;
+    private DaemonServer daemonServer;
+
+    @Before
+    public void beforeTest() throws Exception {
+        workingDirectory = temporaryFolder.getRoot().toPath();
+        TestRepository.copyTo(workingDirectory);
+        daemonServer = new DaemonServer(0, 2, TOKEN);
+    }
+
+    @After
+    public void afterTest() {
+        daemonServer.close();
+    }
+
+    @Test
+    public void testRunMatchesInProcess() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = DaemonClient.send(daemonServer.port(), TOKEN, workingDirectory, new String[]{"v1.0.0", "v1.1.0", "-r=repository"}, out, err);
+
+        StringWriter expected = new StringWriter();
+        int expectedExitCode = DaemonServer.execute(Paths.get(""), List.of("v1.0.0", "v1.1.0", "-r=" + workingDirectory.resolve("repository")), new PrintWriter(expected), new PrintWriter(new StringWriter()));
+        assertEquals(expectedExitCode, exitCode);
+        assertEquals("", err.toString(StandardCharsets.UTF_8));
+        assertNotEquals("", out.toString(StandardCharsets.UTF_8));
+        assertEquals(expected.toString(), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testUsageErrorGoesToErrorOutput() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = DaemonClient.send(daemonServer.port(), TOKEN, workingDirectory, new String[]{"--bogus"}, out, err);
+        assertNotEquals(0, exitCode);
+        assertEquals("", out.toString(StandardCharsets.UTF_8));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Unknown option"));
+    }
+
+    @Test
+    public void testRepositoryStaysResident() throws Exception {
+        ResidentRepositories residentRepositories = GuiceFactory.getInstance().create(ResidentRepositories.class);
+        for (int run = 0; run < 2; run++) {
+            DaemonClient.send(daemonServer.port(), TOKEN, workingDirectory, new String[]{"v1.0.0", "v1.1.0", "-r=repository"},
+                    new ByteArrayOutputStream(), new ByteArrayOutputStream());
+            assertEquals(1, residentRepositories.size());
+        }
+        assertTrue(Files.exists(workingDirectory.resolve("repository/.git/changelog.cache.idx")));
+
+        daemonServer.close();
+        assertEquals(0, residentRepositories.size());
+        assertFalse(residentRepositories.isKept());
+    }
+
+    @Test
+    public void testMetricsFileIsResolvedAgainstTheClient() throws Exception {
+        int exitCode = DaemonClient.send(daemonServer.port(), TOKEN, workingDirectory, new String[]{"v1.0.0", "v1.1.0", "-r=repository", "--metrics=metrics.json"},
+                new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        assertEquals(0, exitCode);
+        assertTrue(Files.readString(workingDirectory.resolve("metrics.json")).startsWith("{"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongTokenIsRefused() throws Exception {
+        DaemonClient.send(daemonServer.port(), "other-token", workingDirectory, new String[0], new ByteArrayOutputStream(), new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,101 @@
+package net.avdw.git.changelog;
+
+import com.google.inject.Guice;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class GitChangeClassifierTest {
+    private GitChangeClassifier classifier;
+
+    @Before
+    public void beforeTest() {
+        Map<ChangeType, List<String>> rules = new EnumMap<>(ChangeType.class);
+        rules.put(ChangeType.ADDED, GitChangeClassifier.parseRule("add"));
+        rules.put(ChangeType.CHANGED, GitChangeClassifier.parseRule("update, change,enhance,refactor"));
+        rules.put(ChangeType.FIXED, GitChangeClassifier.parseRule("fix"));
+        rules.put(ChangeType.IGNORED, GitChangeClassifier.parseRule("setup,maintain,merge,added by bot"));
+        Map<ChangeType, List<String>> conventionalRules = new EnumMap<>(ChangeType.class);
+        conventionalRules.put(ChangeType.ADDED, GitChangeClassifier.parseRule("feat"));
+        conventionalRules.put(ChangeType.FIXED, GitChangeClassifier.parseRule("fix,perf"));
+        conventionalRules.put(ChangeType.IGNORED, GitChangeClassifier.parseRule("chore,refactor"));
+        classifier = new GitChangeClassifier(rules, conventionalRules);
+    }
+
+    private static GitChange gitChange(final String subject, final String body) {
+        GitChange gitChange = new GitChange();
+        gitChange.subject = subject;
+        gitChange.body = body;
+        return gitChange;
+    }
+
+    @Test
+    public void testConventionalType() {
+        assertEquals(ChangeType.ADDED, classifier.classify("feat(parser): read scopes"));
+        assertEquals(ChangeType.ADDED, classifier.classify("FEAT: shout"));
+        assertEquals(ChangeType.FIXED, classifier.classify("perf: skip equal subtrees"));
+        assertEquals(ChangeType.IGNORED, classifier.classify("refactor: split the walker"));
+        assertEquals(ChangeType.IGNORED, classifier.classify("chore(deps)!: drop java 8"));
+        assertEquals("SHOULD fall back to the prefixes for unknown types", ChangeType.ADDED, classifier.classify("add: without type"));
+        assertEquals("SHOULD fall back to the prefixes without a header", ChangeType.CHANGED, classifier.classify("Refactored the walker"));
+        assertEquals(ChangeType.UNCLASSIFIED, classifier.classify("feature: unknown"));
+    }
+
+    @Test
+    public void testDefaultRulesKeepRefactorAsChange() {
+        GitChangeClassifier defaultClassifier = Guice.createInjector(new MainModule()).getInstance(GitChangeClassifier.class);
+        assertEquals(ChangeType.CHANGED, defaultClassifier.classify("refactor: split the walker"));
+        assertEquals(ChangeType.CHANGED, defaultClassifier.classify("Refactor the walker"));
+        assertEquals(ChangeType.IGNORED, defaultClassifier.classify("chore: bump dependencies"));
+    }
+
+    @Test
+    public void testBreakingChange() {
+        GitChange gitChange = gitChange("feat(api)!: drop v1 endpoints", "");
+        assertEquals(ChangeType.ADDED, classifier.classify(gitChange));
+        assertTrue(gitChange.breaking);
+
+        gitChange = gitChange("fix: tighten parsing", "Rejects trailing commas.\n\nBREAKING CHANGE: lenient input fails");
+        assertEquals(ChangeType.FIXED, classifier.classify(gitChange));
+        assertTrue(gitChange.breaking);
+
+        gitChange = gitChange("fix: tighten parsing", "Refs: #12\nBREAKING-CHANGE: lenient input fails");
+        classifier.classify(gitChange);
+        assertTrue(gitChange.breaking);
+
+        gitChange = gitChange("fix: tighten parsing", "Mentions a breaking change: but not as footer\n  BREAKING CHANGE: indented");
+        classifier.classify(gitChange);
+        assertFalse(gitChange.breaking);
+    }
+
+    @Test
+    public void testCaseInsensitivePrefix() {
+        assertEquals(ChangeType.ADDED, classifier.classify("ADD feature"));
+        assertEquals(ChangeType.ADDED, classifier.classify("Addition of feature"));
+        assertEquals(ChangeType.CHANGED, classifier.classify("Refactored parser"));
+        assertEquals(ChangeType.FIXED, classifier.classify("fix"));
+    }
+
+    @Test
+    public void testIgnoredTakesPrecedence() {
+        assertEquals(ChangeType.IGNORED, classifier.classify("Added by bot: lockfile"));
+        assertEquals(ChangeType.ADDED, classifier.classify("Added by hand"));
+    }
+
+    @Test
+    public void testUnclassified() {
+        assertEquals(ChangeType.UNCLASSIFIED, classifier.classify(""));
+        assertEquals(ChangeType.UNCLASSIFIED, classifier.classify("ad"));
+        assertEquals(ChangeType.UNCLASSIFIED, classifier.classify("Remove old stuff"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnclassifiedRule() {
+        new GitChangeClassifier(Map.of(ChangeType.UNCLASSIFIED, List.of("wip")));
+    }
+}
@@ -0,0 +1,59 @@
+package net.avdw.git.changelog;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GitChangeDecoderTest {
+    private static final byte[] RECORDS = ("1111111111111111111111111111111111111111\0Jane Doe\0001600000000\0Fix \"quoted\" \\ path\0\0\u001e\n"
+            + "2222222222222222222222222222222222222222\0Jöhn\0001600000060\0Add feature\0"
+            + "Longer explanation.\n\nSigned-off-by: Jöhn <john@example.com>\nRefs: #12\n  and #13\n\0\u001e\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private List<GitChange> decode(final int chunkSize) {
+        List<GitChange> gitChanges = new ArrayList<>();
+        try (GitChangeDecoder gitChangeDecoder = new GitChangeDecoder(gitChanges::add)) {
+            for (int offset = 0; offset < RECORDS.length; offset += chunkSize) {
+                gitChangeDecoder.write(RECORDS, offset, Math.min(chunkSize, RECORDS.length - offset));
+            }
+        }
+        return gitChanges;
+    }
+
+    @Test
+    public void testRecords() {
+        List<GitChange> gitChanges = decode(RECORDS.length);
+        assertEquals(2, gitChanges.size());
+        assertEquals("1111111111111111111111111111111111111111", gitChanges.get(0).id);
+        assertEquals("Jane Doe", gitChanges.get(0).author);
+        assertEquals(1600000000L, gitChanges.get(0).time);
+        assertEquals("Fix \"quoted\" \\ path", gitChanges.get(0).subject);
+        assertEquals("", gitChanges.get(0).body);
+        assertTrue(gitChanges.get(0).trailers.isEmpty());
+
+        assertEquals("Jöhn", gitChanges.get(1).author);
+        assertEquals(List.of("Jöhn <john@example.com>"), gitChanges.get(1).trailers.get("Signed-off-by"));
+        assertEquals(List.of("#12 and #13"), gitChanges.get(1).trailers.get("Refs"));
+    }
+
+    @Test
+    public void testChunkBoundaries() {
+        for (int chunkSize = 1; chunkSize < 8; chunkSize++) {
+            List<GitChange> gitChanges = decode(chunkSize);
+            assertEquals(2, gitChanges.size());
+            assertEquals("Jöhn", gitChanges.get(1).author);
+            assertEquals("Add feature", gitChanges.get(1).subject);
+        }
+    }
+
+    @Test
+    public void testTruncatedRecord() {
+        GitChangeDecoder gitChangeDecoder = new GitChangeDecoder(gitChange -> fail());
+        gitChangeDecoder.write(RECORDS, 0, 60);
+        assertThrows(IllegalStateException.class, gitChangeDecoder::close);
+    }
+}
@@ -2,10 +2,13 @@ package net.avdw.git.changelog;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.util.Modules;
 import net.avdw.git.changelog.process.ProcessRunner;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.tinylog.Logger;
 import picocli.CommandLine;
 
@@ -13,8 +16,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -23,8 +29,10 @@ public class MainCliTest {
     private static final Path checkoutScript = Paths.get("src/main/resources/scripts/git-checkout.sh").toAbsolutePath();
     private static final ByteArrayOutputStream scriptOutput = new ByteArrayOutputStream();
     private static final PrintStream printStream = new PrintStream(scriptOutput);
-    private static final Path testRepository = Paths.get("src/test/repository").toAbsolutePath();
     private static ProcessRunner processRunner;
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private Path testRepository;
     private CommandLine commandLine;
     private StringWriter errWriter;
     private StringWriter outWriter;
@@ -48,7 +56,8 @@ public class MainCliTest {
     }
 
     @Before
-    public void beforeTest() {
+    public void beforeTest() throws Exception {
+        testRepository = TestRepository.copyTo(temporaryFolder.getRoot().toPath());
         commandLine = new CommandLine(MainCli.class, GuiceFactory.getInstance());
         errWriter = new StringWriter();
         outWriter = new StringWriter();
@@ -64,11 +73,24 @@ public class MainCliTest {
 
     @Test
     public void testEmptyArguments() {
-        assertSuccess(commandLine.execute());
+        assertSuccess(commandLine.execute("--no-cache"));
         assertFalse("SHOULD NOT output usage help", outWriter.toString().contains("Usage"));
         assertTrue(outWriter.toString().contains("Released on"));
     }
 
+    @Test
+    public void testMetricsReportOnlyItsOwnRun() {
+        String[] range = {"v1.0.0", "v1.1.0", "--no-cache", "--metrics", "-r=" + testRepository};
+        assertEquals(0, commandLine.execute(range));
+        String alone = errWriter.toString();
+        assertEquals(0, commandLine.execute("--history", "--no-cache", "--metrics", "-r=" + testRepository));
+        errWriter.getBuffer().setLength(0);
+        assertEquals(0, commandLine.execute(range));
+        String afterHistory = errWriter.toString();
+        assertEquals(alone.substring(alone.indexOf("\"commits\"")), afterHistory.substring(afterHistory.indexOf("\"commits\"")));
+        assertTrue(afterHistory, afterHistory.contains("\"parse\": {\"count\": 1,"));
+    }
+
     @Test
     public void testVoidRepository() {
         assertSuccess(commandLine.execute("-r=" + System.getProperty("user.home")));
@@ -80,6 +102,152 @@ public class MainCliTest {
         assertSuccess(commandLine.execute("-r=" + testRepository));
     }
 
+    @Test
+    public void testBatch() throws Exception {
+        Path batchDirectory = temporaryFolder.newFolder("batch").toPath();
+        Path manifest = batchDirectory.resolve("manifest.txt");
+        Files.write(manifest, List.of("# repository to from", testRepository + " v1.0.0 v1.1.0", testRepository + " v2021-08-02.11.03"));
+        assertSuccess(commandLine.execute("batch", manifest.toString(), "-o=" + batchDirectory.resolve("out"), "-t=2"));
+        assertTrue(outWriter.toString().contains("2 repositories, 0 failed"));
+        assertTrue(Files.readString(batchDirectory.resolve("out/repository.md")).contains("Released on"));
+        assertTrue(Files.exists(batchDirectory.resolve("out/repository-2.md")));
+    }
+
+    @Test
+    public void testModules() throws Exception {
+        Path moduleDirectory = temporaryFolder.newFolder("modules").toPath();
+        assertEquals(0, commandLine.execute("v1.0.0", "v1.1.0", "-r=" + testRepository, "-m=.", "-m=f.txt", "-m=missing/", "-o=" + moduleDirectory.resolve("native")));
+        assertEquals(0, commandLine.execute("v1.0.0", "v1.1.0", "-r=" + testRepository, "-m=.", "-m=f.txt", "-m=missing/", "-o=" + moduleDirectory.resolve("git"), "--no-native"));
+        assertEquals("", errWriter.toString());
+        String changelog = Files.readString(moduleDirectory.resolve("native/root.md"));
+        assertTrue(changelog.contains("Released on"));
+        assertEquals(changelog, Files.readString(moduleDirectory.resolve("native/f.txt.md")));
+        assertFalse(Files.readString(moduleDirectory.resolve("native/missing.md")).contains("Released on"));
+        for (String module : List.of("root.md", "f.txt.md", "missing.md")) {
+            assertEquals(Files.readString(moduleDirectory.resolve("native").resolve(module)), Files.readString(moduleDirectory.resolve("git").resolve(module)));
+        }
+    }
+
+    private static void git(final Path baseDir, final String... args) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "user.name=Test", "-c", "user.email=test@example.com", "-c", "init.defaultBranch=master"));
+        command.addAll(List.of(args));
+        assertEquals(0, new ProcessBuilder(command).directory(baseDir.toFile()).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start().waitFor());
+    }
+
+    private static void awaitChangelog(final Path changelog, final String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!(Files.exists(changelog) && Files.readString(changelog).contains(expected)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(String.format("SHOULD contain %s", expected), Files.readString(changelog).contains(expected));
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        Path baseDir = temporaryFolder.newFolder("watch").toPath();
+        Path changelog = baseDir.resolve("CHANGELOG.md");
+        git(baseDir, "init");
+        git(baseDir, "commit", "--allow-empty", "-m", "Initial commit");
+        git(baseDir, "commit", "--allow-empty", "-m", "Add first feature");
+        Thread watcher = new Thread(() -> commandLine.execute("--watch", "-r=" + baseDir, "-o=" + changelog));
+        watcher.start();
+        try {
+            awaitChangelog(changelog, "- Add first feature");
+            git(baseDir, "commit", "--allow-empty", "-m", "Fix watched bug");
+            awaitChangelog(changelog, "- Fix watched bug");
+            assertTrue(Files.readString(changelog).contains("- Add first feature"));
+            git(baseDir, "tag", "v1.0.0");
+            awaitChangelog(changelog, "No changes found");
+        } finally {
+            watcher.interrupt();
+            watcher.join(10_000);
+        }
+        assertFalse(watcher.isAlive());
+        assertEquals("", errWriter.toString());
+    }
+
+    @Test
+    public void testWatchPastTimeout() throws Exception {
+        Path baseDir = temporaryFolder.newFolder("watch").toPath();
+        Path changelog = baseDir.resolve("CHANGELOG.md");
+        git(baseDir, "init");
+        git(baseDir, "commit", "--allow-empty", "-m", "Initial commit");
+        git(baseDir, "commit", "--allow-empty", "-m", "Add first feature");
+        Thread watcher = new Thread(() -> commandLine.execute("--watch", "-r=" + baseDir, "-o=" + changelog, "--timeout=1"));
+        watcher.start();
+        try {
+            awaitChangelog(changelog, "- Add first feature");
+            Thread.sleep(1_500);
+            git(baseDir, "commit", "--allow-empty", "-m", "Add late feature");
+            awaitChangelog(changelog, "- Add late feature");
+        } finally {
+            watcher.interrupt();
+            watcher.join(10_000);
+        }
+        assertFalse(watcher.isAlive());
+        assertEquals("", errWriter.toString());
+    }
+
+    @Test
+    public void testWatchNeedsOutput() {
+        assertNotEquals(0, commandLine.execute("--watch", "-r=" + testRepository));
+        assertTrue(errWriter.toString().contains("--watch needs --output"));
+    }
+
+    @Test
+    public void testHistory() {
+        assertSuccess(commandLine.execute("--history", "-r=" + testRepository));
+        String changelog = outWriter.toString();
+        assertTrue(changelog.contains("[v2021-08-02.11.30]"));
+        assertTrue(changelog.contains("[v1.1.0]"));
+        assertTrue(changelog.indexOf("[v2021-08-02.11.30]") < changelog.indexOf("[v1.1.0]"));
+    }
+
+    @Test
+    public void testHistoryWithoutNativeReader() {
+        assertSuccess(commandLine.execute("--history", "--no-native", "-r=" + testRepository));
+        assertTrue(outWriter.toString().contains("[v1.1.0]"));
+    }
+
+    @Test
+    public void testSyntheticHistory() {
+        useSyntheticHistory();
+        assertSuccess(commandLine.execute("--history", "--no-cache"));
+        String changelog = outWriter.toString();
+        assertTrue(changelog.contains("[v2.0.0]"));
+        assertTrue(changelog.indexOf("[v2.0.0]") < changelog.indexOf("[v1.0.0]"));
+        assertTrue(changelog.indexOf("[v3.0.0] (Major release") < changelog.indexOf("[v2.0.0]"));
+        assertFalse(changelog.contains("${version}"));
+    }
+
+    @Test
+    public void testSyntheticVersions() {
+        useSyntheticHistory();
+        assertSuccess(commandLine.execute("versions", "--no-cache"));
+        String versions = outWriter.toString();
+        assertTrue(versions, versions.matches("(?s).*master +v2\\.0\\.0 +3\\.0\\.0 +Major +500\\s.*"));
+        assertTrue(versions.contains("1 branches"));
+    }
+
+    @Test
+    public void testVersionsRememberClassifiedCommits() throws Exception {
+        assertSuccess(commandLine.execute("versions", "--no-cache", "-r=" + testRepository));
+        String uncached = outWriter.toString().replaceAll("\\d+ ms", "");
+        outWriter.getBuffer().setLength(0);
+        assertSuccess(commandLine.execute("versions", "-r=" + testRepository));
+        assertTrue(Files.size(testRepository.resolve(".git").resolve(ChangeCache.FILE_NAME)) > 0);
+        assertEquals(uncached, outWriter.toString().replaceAll("\\d+ ms", ""));
+    }
+
+    private void useSyntheticHistory() {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(binder -> binder.bind(CommitSource.Factory.class)
+                .toInstance((repository, nativeReader, cache) -> new SyntheticCommitSource(2500, 1000))));
+        commandLine = new CommandLine(MainCli.class, new GuiceFactory(injector));
+        commandLine.setOut(new PrintWriter(outWriter));
+        commandLine.setErr(new PrintWriter(errWriter));
+    }
+
     @Test
     public void testVersion() {
         assertSuccess(commandLine.execute("--version"));
@@ -0,0 +1,75 @@
+package net.avdw.git.changelog;
+
+import net.avdw.git.changelog.metrics.Metrics;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ParallelClassifierTest {
+    private static final List<String> PREFIXES = List.of("Add", "Fix", "Change", "Remove", "Secure", "Tidy");
+
+    private static GitChange gitChange(final int number) {
+        GitChange gitChange = new GitChange();
+        gitChange.id = String.format("%040x", number);
+        gitChange.author = "Author " + number % 3;
+        gitChange.subject = PREFIXES.get(number * 7 % PREFIXES.size()) + " change " + number;
+        gitChange.body = number == 4321 ? "BREAKING CHANGE: drops the old format" : "";
+        return gitChange;
+    }
+
+    private static Map<ChangeType, List<String>> subjects(final ChangeTypeSink changeTypeSink) {
+        return changeTypeSink.categorisedGitChangeMap().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+                entry -> entry.getValue().stream().map(gitChange -> gitChange.subject).collect(Collectors.toList())));
+    }
+
+    @Test
+    public void testKeepsOrderOfLog() {
+        GitChangeClassifier gitChangeClassifier = new GitChangeClassifier(Map.of(
+                ChangeType.ADDED, List.of("add"), ChangeType.FIXED, List.of("fix"), ChangeType.CHANGED, List.of("change"),
+                ChangeType.REMOVED, List.of("remove"), ChangeType.SECURITY, List.of("secure")));
+        ChangeTypeSink sequential = new ChangeTypeSink(gitChangeClassifier, new Metrics());
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        ParallelClassifier parallelClassifier = new ParallelClassifier(() -> new ChangeTypeSink(gitChangeClassifier, new Metrics()), forkJoinPool, 100);
+        for (int number = 0; number < 10_050; number++) {
+            sequential.accept(gitChange(number));
+            parallelClassifier.accept(gitChange(number));
+        }
+        ChangeTypeSink parallel = parallelClassifier.join();
+        forkJoinPool.shutdown();
+
+        assertEquals(6, parallel.categorisedGitChangeMap().size());
+        assertEquals(subjects(sequential), subjects(parallel));
+        assertEquals(gitChange(6).subject, parallel.categorisedGitChangeMap().get(ChangeType.ADDED).get(1).subject);
+        assertTrue(parallel.hasBreakingChange());
+        assertEquals(ReleaseType.MAJOR, parallel.releaseType());
+    }
+
+    @Test
+    public void testHandsOnWhatItClassified() {
+        GitChangeClassifier gitChangeClassifier = new GitChangeClassifier(Map.of(ChangeType.ADDED, List.of("add")));
+        Map<String, ChangeType> classified = new ConcurrentHashMap<>();
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        ParallelClassifier parallelClassifier = new ParallelClassifier(() -> new ChangeTypeSink(gitChangeClassifier, new Metrics(),
+                gitChange -> assertNull(classified.put(gitChange.id, gitChange.changeType))), forkJoinPool, 100);
+        for (int number = 0; number < 1_000; number++) {
+            GitChange gitChange = gitChange(number);
+            if (number % 10 == 0) {
+                gitChange.changeType = ChangeType.REMOVED;
+            }
+            parallelClassifier.accept(gitChange);
+        }
+        ChangeTypeSink parallel = parallelClassifier.join();
+        forkJoinPool.shutdown();
+
+        assertEquals(900, classified.size());
+        assertFalse(classified.containsKey(gitChange(10).id));
+        assertEquals(ChangeType.ADDED, classified.get(gitChange(6).id));
+        assertEquals(100, parallel.categorisedGitChangeMap().get(ChangeType.REMOVED).size());
+    }
+}
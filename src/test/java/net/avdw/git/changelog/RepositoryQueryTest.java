@@ -0,0 +1,74 @@
+package net.avdw.git.changelog;
+
+import lombok.SneakyThrows;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RepositoryQueryTest {
+    private ExecutorService executorService;
+
+    @Before
+    public void beforeTest() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void afterTest() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testLookupsRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        RepositoryQuery query = new RepositoryQuery(executorService, Duration.ofSeconds(10));
+        CompletableFuture<Boolean> first = query.submit(() -> awaitQuietly(bothStarted));
+        CompletableFuture<Boolean> second = query.submit(() -> awaitQuietly(bothStarted));
+        assertTrue(query.await(first));
+        assertTrue(query.await(second));
+    }
+
+    @Test
+    public void testTimeoutCancelsPendingLookups() {
+        RepositoryQuery query = new RepositoryQuery(executorService, Duration.ofMillis(50));
+        CompletableFuture<Boolean> slow = query.submit(() -> awaitQuietly(new CountDownLatch(2)));
+        CompletableFuture<Boolean> other = query.submit(() -> awaitQuietly(new CountDownLatch(2)));
+        try {
+            query.await(slow);
+            fail("MUST time out");
+        } catch (IllegalStateException e) {
+            assertTrue(other.isCancelled());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUndeclaredCheckedFailureIsRethrown() {
+        RepositoryQuery query = new RepositoryQuery(executorService, Duration.ofSeconds(10));
+        query.await(query.submit(RepositoryQueryTest::failWithIOException));
+    }
+
+    @SneakyThrows
+    private static String failWithIOException() {
+        throw new IOException("No such directory");
+    }
+
+    private static boolean awaitQuietly(final CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
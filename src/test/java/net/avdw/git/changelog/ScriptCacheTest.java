@@ -0,0 +1,35 @@
+package net.avdw.git.changelog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ScriptCacheTest {
+    private Path cacheDirectory;
+
+    @Before
+    public void beforeTest() throws Exception {
+        cacheDirectory = Files.createTempDirectory("scripts");
+    }
+
+    @Test
+    public void testRepeatResolveReusesDirectory() throws Exception {
+        Path first = new ScriptCache(cacheDirectory).resolve();
+        for (String script : ScriptCache.SCRIPTS) {
+            assertTrue(script, Files.isRegularFile(first.resolve(script)));
+        }
+        Path marker = Files.createFile(first.resolve("marker"));
+
+        Path second = new ScriptCache(cacheDirectory).resolve();
+        assertEquals(first, second);
+        assertTrue(Files.exists(marker));
+        try (Stream<Path> entries = Files.list(cacheDirectory)) {
+            assertEquals(1, entries.count());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package net.avdw.git.changelog;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SemanticVersionTest {
+    private static String next(final String tag, final ReleaseType releaseType) {
+        return SemanticVersion.parse(tag).orElseThrow().next(releaseType).toString();
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals("1.2.3", SemanticVersion.parse("v1.2.3").orElseThrow().toString());
+        assertEquals("1.2.3", SemanticVersion.parse("1.2.3+build.5").orElseThrow().toString());
+        assertFalse(SemanticVersion.parse("v2021-08-02.11.30").isPresent());
+        assertFalse(SemanticVersion.parse("v1.2").isPresent());
+        assertFalse(SemanticVersion.parse("v01.2.3").isPresent());
+        assertFalse(SemanticVersion.parse("v9999999999.0.0").isPresent());
+    }
+
+    @Test
+    public void testNext() {
+        assertEquals("2.0.0", next("v1.2.3", ReleaseType.MAJOR));
+        assertEquals("1.3.0", next("v1.2.3", ReleaseType.FEATURE));
+        assertEquals("1.2.4", next("v1.2.3", ReleaseType.MAINTENANCE));
+        assertEquals("1.2.3", next("v1.2.3", ReleaseType.NONE));
+        assertEquals("0.1.0", SemanticVersion.INITIAL.next(ReleaseType.FEATURE).toString());
+    }
+
+    @Test
+    public void testNextAfterPreRelease() {
+        assertEquals("2.0.0", next("v2.0.0-rc.1", ReleaseType.MAJOR));
+        assertEquals("2.0.0", next("v2.0.0-rc.1", ReleaseType.MAINTENANCE));
+        assertEquals("3.0.0", next("v2.1.0-rc.1", ReleaseType.MAJOR));
+        assertEquals("2.1.0", next("v2.1.0-rc.1", ReleaseType.FEATURE));
+        assertEquals("2.2.0", next("v2.1.1-rc.1", ReleaseType.FEATURE));
+    }
+
+    @Test
+    public void testReleaseType() {
+        assertEquals(ReleaseType.MAJOR, ReleaseType.of(ChangeType.FIXED, true));
+        assertEquals(ReleaseType.MAJOR, ReleaseType.of(ChangeType.REMOVED, false));
+        assertEquals(ReleaseType.FEATURE, ReleaseType.of(ChangeType.DEPRECATED, false));
+        assertEquals(ReleaseType.MAINTENANCE, ReleaseType.of(ChangeType.IGNORED, false));
+        assertEquals(ReleaseType.FEATURE, ReleaseType.MAINTENANCE.max(ReleaseType.FEATURE));
+    }
+}
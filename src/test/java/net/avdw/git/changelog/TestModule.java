@@ -38,12 +38,9 @@ class TestModule extends AbstractPropertyModule {
     @GitLs
     @Singleton
     @SneakyThrows
-    Path gitLsFile(@Temp final Path tmpDir, final JarExtractor jarExtractor) {
+    Path gitLsFile(@Temp final Path tmpDir) {
         Path script = Paths.get(this.getClass().getProtectionDomain().getCodeSource().getLocation().toURI())
                 .resolve("scripts/git-ls.sh");
-        if (!Files.exists(script)) {
-            jarExtractor.extract(tmpDir, ".*\\.sh");
-        }
-        return script;
+        return Files.exists(script) ? script : new ScriptCache(tmpDir).resolve().resolve("scripts/git-ls.sh");
     }
 }
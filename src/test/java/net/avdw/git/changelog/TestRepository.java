@@ -0,0 +1,35 @@
+package net.avdw.git.changelog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Copies of the test repository, so that a test may check out, cache and change it without affecting the others.
+ */
+final class TestRepository {
+    static final Path SOURCE = Paths.get("src/test/repository").toAbsolutePath();
+
+    private TestRepository() {
+    }
+
+    /**
+     * Copies the test repository into the directory, without the caches an earlier run may have left in it.
+     */
+    static Path copyTo(final Path directory) throws IOException {
+        Path copy = directory.resolve(SOURCE.getFileName());
+        try (Stream<Path> paths = Files.walk(SOURCE)) {
+            paths.filter(path -> !path.getFileName().toString().startsWith("changelog.")).forEach(path -> {
+                try {
+                    Files.copy(path, copy.resolve(SOURCE.relativize(path).toString()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,91 @@
+package net.avdw.git.changelog.metrics;
+
+import net.avdw.git.changelog.ChangeType;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    private static double wallMillis(final String json, final Stage stage) {
+        Matcher matcher = Pattern.compile(String.format("\"%s\": \\{\"count\": \\d+, \"wallMillis\": ([0-9.]+)", stage.name().toLowerCase())).matcher(json);
+        assertTrue(matcher.find());
+        return Double.parseDouble(matcher.group(1));
+    }
+
+    private static String json(final Metrics.Run run) {
+        StringWriter json = new StringWriter();
+        run.writeJson(new PrintWriter(json));
+        return json.toString();
+    }
+
+    @Test
+    public void testNestedStageIsExcludedFromOuter() throws Exception {
+        Metrics metrics = new Metrics();
+        Metrics.Run run = metrics.startRun(false);
+        try (Metrics.Timer outer = metrics.start(Stage.PARSE)) {
+            try (Metrics.Timer inner = metrics.start(Stage.PROCESS, "sleep")) {
+                Thread.sleep(50);
+            }
+        }
+        run.close();
+        String json = json(run);
+        assertTrue(json, wallMillis(json, Stage.PROCESS) >= 50);
+        assertTrue(json, wallMillis(json, Stage.PARSE) < 50);
+        assertTrue(json, json.contains("\"process\": {\"count\": 1,"));
+    }
+
+    @Test
+    public void testCommitsPerChangeType() {
+        Metrics metrics = new Metrics();
+        try (Metrics.Run run = metrics.startRun(false)) {
+            metrics.count(ChangeType.ADDED, 3);
+            metrics.count(ChangeType.ADDED, 2);
+            metrics.count(ChangeType.FIXED, 1);
+            String json = json(run);
+            assertTrue(json, json.contains("\"added\": 5,"));
+            assertTrue(json, json.contains("\"fixed\": 1,"));
+            assertTrue(json, json.contains("\"removed\": 0,"));
+        }
+    }
+
+    @Test
+    public void testDetailIsScopedToEnablingRuns() throws Exception {
+        Metrics metrics = new Metrics();
+        assertFalse(metrics.isDetailed());
+        try (Metrics.Run run = metrics.startRun(true)) {
+            assertTrue(metrics.isDetailed());
+            assertTrue("SHOULD be detailed where the run hands its work", run.bind(metrics::isDetailed).get());
+            Thread other = new Thread(() -> assertFalse(metrics.isDetailed()));
+            other.start();
+            other.join();
+        }
+        assertFalse(metrics.isDetailed());
+    }
+
+    @Test
+    public void testRunsKeepTheirOwnTotals() throws Exception {
+        Metrics metrics = new Metrics();
+        Metrics.Run first = metrics.startRun(false);
+        metrics.count(ChangeType.ADDED, 3);
+        first.close();
+        try (Metrics.Run second = metrics.startRun(false)) {
+            ForkJoinPool forkJoinPool = second.forkJoinPool();
+            try {
+                forkJoinPool.submit(() -> metrics.count(ChangeType.FIXED, 1)).get();
+            } finally {
+                forkJoinPool.shutdown();
+            }
+            String json = json(second);
+            assertTrue(json, json.contains("\"added\": 0,"));
+            assertTrue(json, json.contains("\"fixed\": 1,"));
+        }
+        metrics.count(ChangeType.ADDED, 1);
+        assertTrue(json(first).contains("\"added\": 3,"));
+    }
+}
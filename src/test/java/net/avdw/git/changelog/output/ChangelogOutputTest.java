@@ -0,0 +1,83 @@
+package net.avdw.git.changelog.output;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ChangelogOutputTest {
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void beforeTest() throws Exception {
+        directory = Files.createTempDirectory("output");
+        file = directory.resolve("CHANGELOG.md");
+        Files.write(file, List.of("previous"), StandardCharsets.UTF_8);
+    }
+
+    private List<Path> directoryListing() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testCommitReplacesFile() throws Exception {
+        try (ChangelogOutput changelogOutput = ChangelogOutput.toFile(file, StandardCharsets.UTF_8)) {
+            changelogOutput.writer().println("## [v1.0.0] — ünïcode");
+            assertEquals("MUST NOT touch the file before commit", List.of("previous"), Files.readAllLines(file));
+            changelogOutput.commit();
+        }
+        assertEquals(List.of("## [v1.0.0] — ünïcode"), Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertEquals(List.of(file), directoryListing());
+    }
+
+    @Test
+    public void testCommitKeepsPermissions() throws Exception {
+        assumeTrue(Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class));
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+        try (ChangelogOutput changelogOutput = ChangelogOutput.toFile(file, StandardCharsets.UTF_8)) {
+            changelogOutput.commit();
+        }
+        assertEquals(PosixFilePermissions.fromString("rw-r--r--"), Files.getPosixFilePermissions(file));
+
+        Path newFile = directory.resolve("NEW.md");
+        try (ChangelogOutput changelogOutput = ChangelogOutput.toFile(newFile, StandardCharsets.UTF_8)) {
+            changelogOutput.commit();
+        }
+        Path plainFile = Files.createFile(directory.resolve("plain.md"));
+        assertEquals(Files.getPosixFilePermissions(plainFile), Files.getPosixFilePermissions(newFile));
+    }
+
+    @Test
+    public void testUncommittedOutputIsDiscarded() throws Exception {
+        try (ChangelogOutput changelogOutput = ChangelogOutput.toFile(file, StandardCharsets.UTF_8)) {
+            changelogOutput.writer().println("half a changelog");
+        }
+        assertEquals(List.of("previous"), Files.readAllLines(file));
+        assertEquals(List.of(file), directoryListing());
+    }
+
+    @Test
+    public void testWriterIsFlushedOnCommit() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        try (ChangelogOutput changelogOutput = ChangelogOutput.toWriter(stringWriter)) {
+            changelogOutput.writer().print("line");
+            assertEquals("", stringWriter.toString());
+            changelogOutput.commit();
+            assertEquals("line", stringWriter.toString());
+        }
+    }
+}
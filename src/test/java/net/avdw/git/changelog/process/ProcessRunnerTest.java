@@ -0,0 +1,70 @@
+package net.avdw.git.changelog.process;
+
+import net.avdw.git.changelog.metrics.Metrics;
+import net.avdw.git.changelog.repository.GitObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class ProcessRunnerTest {
+    private static final Path testRepository = Paths.get("src/test/repository").toAbsolutePath();
+    private static final Path bash = Paths.get(new ProcessModule().findExecutableOnPath("bash").orElse("bash"));
+    private ProcessRunner processRunner;
+    private Path script;
+
+    @Before
+    public void beforeTest() throws Exception {
+        processRunner = new ProcessRunner(bash, new Metrics());
+        script = Files.createTempFile("echo", ".sh");
+        Files.write(script, List.of("#!/usr/bin/env bash", "for arg in \"$@\"; do echo \"$arg\"; done", "printf 'no newline'", "exit 3"));
+    }
+
+    @Test
+    public void testArgumentsAndPartialLastLine() {
+        List<String> lines = new ArrayList<>();
+        processRunner.stream(script, null, lines::add, "it's", "two words", "$HOME");
+        assertEquals(List.of("it's", "two words", "$HOME", "no newline"), lines);
+    }
+
+    @Test
+    public void testShellIsReused() {
+        for (int i = 0; i < 3; i++) {
+            List<String> lines = new ArrayList<>();
+            processRunner.stream(script, null, lines::add, String.valueOf(i));
+            assertEquals(List.of(String.valueOf(i), "no newline"), lines);
+        }
+    }
+
+    @Test
+    public void testCatFile() {
+        Optional<GitObject> head = processRunner.catFile(testRepository, "HEAD");
+        assertTrue(head.isPresent());
+        assertEquals(GitObject.COMMIT, head.get().type());
+        assertTrue(new String(head.get().data(), StandardCharsets.UTF_8).startsWith("tree "));
+        assertFalse(processRunner.catFile(testRepository, "0000000000000000000000000000000000000000").isPresent());
+        assertTrue(processRunner.catFile(testRepository, "HEAD~1").isPresent());
+    }
+
+    @Test
+    public void testIdleProcessesAreClosed() throws Exception {
+        ProcessRunner shortLived = new ProcessRunner(bash, new Metrics(), Duration.ofSeconds(1));
+        shortLived.stream(script, null, line -> { });
+        shortLived.stream(script, testRepository, line -> { });
+        assertEquals(2, shortLived.idleCount());
+        Thread.sleep(1500);
+        shortLived.stream(script, testRepository, line -> { });
+        assertEquals(1, shortLived.idleCount());
+        shortLived.close();
+        assertEquals(0, shortLived.idleCount());
+    }
+}
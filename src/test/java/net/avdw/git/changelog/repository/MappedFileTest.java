@@ -0,0 +1,75 @@
+package net.avdw.git.changelog.repository;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.*;
+
+public class MappedFileTest {
+    private static final int SEGMENT_SHIFT = 8;
+
+    @Test
+    public void testReadsAcrossSegments() throws Exception {
+        byte[] content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path path = Files.createTempFile("mapped", ".bin");
+        Files.write(path, content);
+
+        MappedFile mappedFile = MappedFile.map(path, SEGMENT_SHIFT);
+        assertEquals(content.length, mappedFile.size());
+        for (int i = 0; i < content.length; i++) {
+            assertEquals(content[i] & 0xff, mappedFile.get(i));
+        }
+        assertEquals(ByteBuffer.wrap(content).getInt(254), mappedFile.getInt(254));
+        assertEquals(ByteBuffer.wrap(content).getInt(996), mappedFile.getInt(996));
+        assertEquals(ByteBuffer.wrap(content).getLong(250), mappedFile.getLong(250));
+        byte[] bulk = new byte[600];
+        mappedFile.get(200, bulk);
+        assertArrayEquals(Arrays.copyOfRange(content, 200, 800), bulk);
+        assertThrows(IndexOutOfBoundsException.class, () -> mappedFile.get(900, new byte[200]));
+    }
+
+    @Test
+    public void testInflatesAcrossSegments() throws Exception {
+        byte[] data = new byte[5000];
+        new Random(42).nextBytes(data);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(new byte[100]);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(file, new Deflater(Deflater.BEST_SPEED))) {
+            deflater.write(data);
+        }
+        Path path = Files.createTempFile("mapped", ".zlib");
+        Files.write(path, file.toByteArray());
+
+        byte[] result = new byte[data.length];
+        Inflater inflater = new Inflater();
+        try {
+            MappedFile.map(path, SEGMENT_SHIFT).inflate(inflater, 100, result);
+        } finally {
+            inflater.end();
+        }
+        assertArrayEquals(data, result);
+    }
+
+    @Test(expected = RepositoryException.class)
+    public void testTruncatedStream() throws Exception {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(file)) {
+            deflater.write(new byte[1000]);
+        }
+        Path path = Files.createTempFile("mapped", ".zlib");
+        Files.write(path, file.toByteArray());
+        MappedFile.map(path, SEGMENT_SHIFT).inflate(new Inflater(), 0, new byte[2000]);
+    }
+}
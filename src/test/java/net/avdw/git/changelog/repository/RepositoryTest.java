@@ -0,0 +1,256 @@
+package net.avdw.git.changelog.repository;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class RepositoryTest {
+    private static final Path testRepository = Paths.get("src/test/repository").toAbsolutePath();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<String> git(final Path baseDir, final String... args) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git"));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).directory(baseDir.toFile()).start();
+        List<String> subjects = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                subjects.add(line);
+            }
+        }
+        process.waitFor();
+        return subjects;
+    }
+
+    private List<String> gitLogSubjects(final Path baseDir, final String range) throws Exception {
+        return git(baseDir, "log", "--pretty=%s", range);
+    }
+
+    private List<String> nativeLogSubjects(final Path baseDir, final String to, final String from) throws Exception {
+        List<String> subjects = new ArrayList<>();
+        try (Repository repository = Repository.open(baseDir).orElseThrow()) {
+            repository.log(to, from, gitCommit -> subjects.add(gitCommit.subject()));
+        }
+        return subjects;
+    }
+
+    @Test
+    public void testTagRangeMatchesGit() throws Exception {
+        assertEquals(gitLogSubjects(testRepository, "v1.0.0..v1.1.0"), nativeLogSubjects(testRepository, "v1.0.0", "v1.1.0"));
+        assertEquals(gitLogSubjects(testRepository, "v2021-08-02.11.03..master"), nativeLogSubjects(testRepository, "v2021-08-02.11.03", "master"));
+    }
+
+    @Test
+    public void testEmptyBoundIsHead() throws Exception {
+        assertEquals(gitLogSubjects(testRepository, "v1.0.0.."), nativeLogSubjects(testRepository, "v1.0.0", ""));
+    }
+
+    @Test
+    public void testNearestTagMatchesGit() throws Exception {
+        try (Repository repository = Repository.open(testRepository).orElseThrow()) {
+            for (String revision : List.of("master", "hotfix", "v1.1.0", "v1.1.0~1", "v2021-08-02.11.30~1")) {
+                assertEquals(revision, git(testRepository, "describe", "--tags", "--abbrev=0", revision),
+                        repository.nearestTag(revision).map(Tag::name).stream().collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void testNearestTagCountsCommitsLikeGit() throws Exception {
+        Path mergeRepository = temporaryFolder.newFolder("describe").toPath();
+        git(mergeRepository, "init", "-q");
+        write(mergeRepository, "a");
+        commitAt(mergeRepository, "Setup project", 1);
+        git(mergeRepository, "checkout", "-q", "-b", "side");
+        write(mergeRepository, "t");
+        commitAt(mergeRepository, "Add side", 10);
+        git(mergeRepository, "tag", "newest");
+        git(mergeRepository, "checkout", "-q", "-");
+        for (int time = 2; time <= 4; time++) {
+            write(mergeRepository, "m" + time);
+            commitAt(mergeRepository, "Add main " + time, time);
+            if (time == 3) {
+                git(mergeRepository, "tag", "closest");
+            }
+        }
+        gitAt(mergeRepository, 11, "merge", "-q", "--no-ff", "side", "-m", "Merge side");
+
+        assertEquals(List.of("closest"), git(mergeRepository, "describe", "--tags", "--abbrev=0"));
+        for (boolean commitGraph : new boolean[]{false, true}) {
+            try (Repository repository = Repository.open(mergeRepository).orElseThrow()) {
+                if (commitGraph) {
+                    repository.useCommitGraph();
+                }
+                for (String revision : List.of("HEAD", "HEAD^1", "HEAD^2", "closest~1")) {
+                    assertEquals(revision, git(mergeRepository, "describe", "--tags", "--abbrev=0", revision),
+                            repository.nearestTag(revision).map(Tag::name).stream().collect(Collectors.toList()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testChangedPathsMatchGit() throws Exception {
+        Path monorepo = temporaryFolder.newFolder("monorepo").toPath();
+        git(monorepo, "init", "-q");
+        write(monorepo, "services/api/a", "services/web/w", "docs/d");
+        commit(monorepo, "Setup project");
+        git(monorepo, "tag", "v0");
+        write(monorepo, "services/api/a", "services/api/deep/er/f");
+        commit(monorepo, "Add api endpoint");
+        Files.delete(monorepo.resolve("docs/d"));
+        Files.delete(monorepo.resolve("docs"));
+        write(monorepo, "docs", "services/web/w");
+        commit(monorepo, "Replace docs");
+
+        try (Repository repository = Repository.open(monorepo).orElseThrow()) {
+            List<GitCommit> gitCommits = new ArrayList<>();
+            repository.log("v0", "HEAD", gitCommits::add);
+            gitCommits.add(repository.commit(repository.tags("HEAD").get(0).commitId()));
+            assertEquals(3, gitCommits.size());
+            for (GitCommit gitCommit : gitCommits) {
+                List<String> expected = git(monorepo, "diff-tree", "--root", "-r", "--name-only", "--no-commit-id", gitCommit.id().name());
+                assertEquals(List.of(new HashSet<>(expected)), repository.changedPaths(gitCommit, directory -> true));
+            }
+            assertEquals(List.of(Set.of("services/api")), repository.changedPaths(gitCommits.get(1), "services"::equals));
+            assertEquals(List.of(Set.of("docs", "services")), repository.changedPaths(gitCommits.get(0), directory -> false));
+            assertEquals(List.of(Set.of("docs", "services")), repository.changedPaths(gitCommits.get(2), directory -> false));
+        }
+    }
+
+    @Test
+    public void testCommitGraphMatchesGit() throws Exception {
+        Path mergeRepository = temporaryFolder.newFolder("graph").toPath();
+        git(mergeRepository, "init", "-q");
+        write(mergeRepository, "a");
+        commit(mergeRepository, "Setup project");
+        git(mergeRepository, "tag", "v1");
+        git(mergeRepository, "checkout", "-q", "-b", "side");
+        write(mergeRepository, "b");
+        commit(mergeRepository, "Add side");
+        git(mergeRepository, "checkout", "-q", "-");
+        write(mergeRepository, "c");
+        commit(mergeRepository, "Add main");
+        git(mergeRepository, "-c", "user.name=Test", "-c", "user.email=test@example.com", "merge", "-q", "--no-ff", "side", "-m", "Merge side");
+        git(mergeRepository, "tag", "v2");
+        write(mergeRepository, "d");
+        commit(mergeRepository, "Add more");
+
+        String[][] ranges = {{"v1", "v2"}, {"v2", "HEAD"}, {"side", "HEAD"}, {"HEAD", "side"}, {"v1", "side"}};
+        for (int run = 0; run < 2; run++) {
+            try (Repository repository = Repository.open(mergeRepository).orElseThrow()) {
+                repository.useCommitGraph();
+                for (String[] range : ranges) {
+                    List<String> subjects = new ArrayList<>();
+                    repository.log(range[0], range[1], gitCommit -> subjects.add(gitCommit.subject()));
+                    assertEquals(gitLogSubjects(mergeRepository, range[0] + ".." + range[1]), subjects);
+                }
+                assertRangesMatchGit(repository, mergeRepository, ranges);
+                assertEquals(List.of("v1", "v2"), repository.tags("HEAD").stream().map(Tag::name).collect(Collectors.toList()));
+                assertEquals(List.of("v1"), repository.tags("side").stream().map(Tag::name).collect(Collectors.toList()));
+            }
+            assertTrue(Files.size(mergeRepository.resolve(".git").resolve(CommitGraph.FILE_NAME)) > 0);
+        }
+        try (Repository repository = Repository.open(mergeRepository).orElseThrow()) {
+            assertRangesMatchGit(repository, mergeRepository, ranges);
+        }
+    }
+
+    private void assertRangesMatchGit(final Repository repository, final Path baseDir, final String[][] ranges) throws Exception {
+        List<Set<String>> subjects = new ArrayList<>();
+        for (int range = 0; range < ranges.length; range++) {
+            subjects.add(new HashSet<>());
+        }
+        Set<ObjectId> handedOver = new HashSet<>();
+        repository.logIds(Arrays.stream(ranges).map(range -> range[0]).collect(Collectors.toList()),
+                Arrays.stream(ranges).map(range -> range[1]).collect(Collectors.toList()), (commitId, holding) -> {
+                    assertTrue(handedOver.add(commitId));
+                    String subject = repository.commit(commitId).subject();
+                    holding.stream().forEach(range -> subjects.get(range).add(subject));
+                });
+        for (int range = 0; range < ranges.length; range++) {
+            assertEquals(new HashSet<>(gitLogSubjects(baseDir, ranges[range][0] + ".." + ranges[range][1])), subjects.get(range));
+        }
+    }
+
+    private void write(final Path baseDir, final String... paths) throws Exception {
+        for (String path : paths) {
+            Files.createDirectories(baseDir.resolve(path).getParent());
+            Files.writeString(baseDir.resolve(path), path + System.nanoTime());
+        }
+    }
+
+    private void gitAt(final Path baseDir, final long time, final String... args) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "user.name=Test", "-c", "user.email=test@example.com"));
+        command.addAll(List.of(args));
+        ProcessBuilder processBuilder = new ProcessBuilder(command).directory(baseDir.toFile());
+        processBuilder.environment().put("GIT_AUTHOR_DATE", "@" + (1_600_000_000L + time) + " +0000");
+        processBuilder.environment().put("GIT_COMMITTER_DATE", "@" + (1_600_000_000L + time) + " +0000");
+        processBuilder.start().waitFor();
+    }
+
+    private void commitAt(final Path baseDir, final String message, final long time) throws Exception {
+        git(baseDir, "add", "-A");
+        gitAt(baseDir, time, "commit", "-q", "-m", message);
+    }
+
+    private void commit(final Path baseDir, final String message) throws Exception {
+        git(baseDir, "add", "-A");
+        git(baseDir, "-c", "user.name=Test", "-c", "user.email=test@example.com", "commit", "-q", "-m", message);
+    }
+
+    @Test
+    public void testUnknownRevision() {
+        Optional<Repository> repository = Repository.open(testRepository);
+        assertTrue(repository.isPresent());
+        assertThrows(RepositoryException.class, () -> repository.get().log("does-not-exist", "master", gitCommit -> fail()));
+    }
+
+    @Test
+    public void testCorruptPack() throws Exception {
+        Path corruptRepository = temporaryFolder.newFolder("corrupt").toPath();
+        git(corruptRepository, "init", "-q");
+        write(corruptRepository, "a");
+        commit(corruptRepository, "Setup project");
+        git(corruptRepository, "tag", "v1");
+        write(corruptRepository, "b");
+        commit(corruptRepository, "Add more");
+        git(corruptRepository, "gc", "-q");
+        try (DirectoryStream<Path> packs = Files.newDirectoryStream(corruptRepository.resolve(".git/objects/pack"), "*.pack")) {
+            for (Path pack : packs) {
+                byte[] content = Files.readAllBytes(pack);
+                Arrays.fill(content, 12, content.length, (byte) '1');
+                pack.toFile().setWritable(true);
+                Files.write(pack, content);
+            }
+        }
+
+        try (Repository repository = Repository.open(corruptRepository).orElseThrow()) {
+            assertThrows(RepositoryException.class, () -> repository.log("v1", "HEAD", gitCommit -> fail()));
+        }
+    }
+
+    @Test
+    public void testNotARepository() {
+        assertFalse(Repository.open(Paths.get(System.getProperty("java.io.tmpdir"))).isPresent());
+    }
+}
@@ -0,0 +1,55 @@
+package net.avdw.git.changelog.repository;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RunLengthBitmapTest {
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            BitSet bitSet = new BitSet();
+            int position = random.nextInt(100);
+            while (position < 20_000) {
+                int length = random.nextInt(run % 2 == 0 ? 10 : 3_000);
+                bitSet.set(position, position + length);
+                position += length + random.nextInt(run % 3 == 0 ? 5 : 2_000);
+            }
+            assertEquals(bitSet, RunLengthBitmap.unpack(RunLengthBitmap.pack(bitSet)));
+        }
+        assertEquals(new BitSet(), RunLengthBitmap.unpack(RunLengthBitmap.pack(new BitSet())));
+    }
+
+    @Test
+    public void testGetReadsPackedWords() {
+        Random random = new Random(7);
+        BitSet bitSet = new BitSet();
+        bitSet.set(64, 64 * 40);
+        for (int i = 0; i < 300; i++) {
+            bitSet.set(64 * 40 + random.nextInt(5_000));
+        }
+        long[] packed = RunLengthBitmap.pack(bitSet);
+        for (int bit = 0; bit < 64 * 40 + 6_000; bit++) {
+            assertEquals(Integer.toString(bit), bitSet.get(bit), RunLengthBitmap.get(packed, bit));
+        }
+    }
+
+    @Test
+    public void testAncestryPacksSmall() {
+        BitSet ancestry = new BitSet();
+        ancestry.set(0, 1_000_000);
+        ancestry.clear(500_003);
+        long[] packed = RunLengthBitmap.pack(ancestry);
+        assertTrue(packed.length <= 4);
+
+        BitSet target = new BitSet();
+        target.set(500_003);
+        target.set(2_000_000);
+        RunLengthBitmap.or(packed, target);
+        assertEquals(1_000_001, target.cardinality());
+    }
+}